@@ -54,8 +54,35 @@ public interface IPlan {
     /**
      * Return a set of the guests seated at a particular table. If the
      * table number of out of range it will raise IndexOutOfBoundsException.
+     * The set is read-only, and is a view of the table rather than a copy, so it keeps up with guests
+     * being added and removed. Copy it first if it is needed as it is now.
      * @param t the table number
      * @return a set of strings - the guests at that table
      */
     Set<String> getGuestsAtTable(int t);
+
+    /**
+     * Return how many guests are seated at a particular table. If the table number is out of range
+     * it will raise IndexOutOfBoundsException. Implementations should override this if they can count the
+     * guests without making the set of them, as this default asks getGuestsAtTable for it.
+     * @param t the table number
+     * @return the number of guests at that table
+     */
+    default int getNumberOfGuestsAtTable(int t) {
+        return getGuestsAtTable(t).size();
+    }
+
+    /**
+     * Return the number of the table a guest is sitting at. Implementations should override this
+     * if they can do better than searching every table, which is what this default does.
+     * @param guest the name of the guest
+     * @return the table number, or -1 if the guest is not at any table
+     */
+    default int getTableOf(String guest) {
+        for (int t = 0; t < getNumberOfTables(); t++) {
+            if (getGuestsAtTable(t).contains(guest))
+                return t;
+        }
+        return -1;
+    }
 }
@@ -1,6 +1,7 @@
 package uk.ac.aber.cs21120.wedding.interfaces;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -31,4 +32,117 @@ public interface IRules {
      */
     boolean isPlanOK(IPlan p);
 
+    /**
+     * Return true if a guest who has just been added to a table has not broken any of the stored rules,
+     * assuming the plan did not break any rules before they were added. This lets a solver check each move
+     * without re-checking the whole plan. The default just checks the whole plan.
+     * @param p a plan, which the guest has already been added to
+     * @param table the table the guest was added to
+     * @param guest the guest who was added
+     * @return true if the plan is still OK, false if the new guest breaks rules.
+     */
+    default boolean isPlacementOK(IPlan p, int table, String guest) {
+        return isPlanOK(p);
+    }
+
+    /**
+     * Return a guest who represents the group of guests that must sit with the given guest. Two guests
+     * must sit together exactly when they have the same representative. The default treats every guest as
+     * their own group.
+     * @param guest a guest
+     * @return the representative of the guest's group
+     */
+    default String getGroupOf(String guest) {
+        return guest;
+    }
+
+    /**
+     * Return how many guests are in the group that must sit with the given guest, including them.
+     * The default treats every guest as their own group.
+     * @param guest a guest
+     * @return the size of the group, at least 1
+     */
+    default int getGroupSize(String guest) {
+        return 1;
+    }
+
+    /**
+     * Return the guests in the group that must sit with the given guest, including them.
+     * The default treats every guest as their own group.
+     * @param guest a guest
+     * @return a set of the guests in the group
+     */
+    default Set<String> getGroupMembers(String guest) {
+        return Set.of(guest);
+    }
+
+    /**
+     * Return the guests who must never sit at the same table as the given guest.
+     * The default says nobody, so it can only ever be used to make a search smarter, never to reject a plan.
+     * @param guest a guest
+     * @return a set of the guest's enemies
+     */
+    default Set<String> getEnemies(String guest) {
+        return Set.of();
+    }
+
+    /**
+     * Add a soft rule that two guests would like to sit at the same table. A plan can break it, but a plan which
+     * keeps it scores the weight higher (see getScore). Adding the same rule twice adds the weights together.
+     * The default doesn't support soft rules.
+     * @param a a guest
+     * @param b another guest
+     * @param weight how much it matters, more than 0
+     * @throws UnsupportedOperationException if these rules don't support soft rules
+     */
+    default void preferTogether(String a, String b, int weight) {
+        throw new UnsupportedOperationException("These rules don't support preferences.");
+    }
+
+    /**
+     * Add a soft rule that two guests would rather not sit at the same table. A plan can break it, but a plan which
+     * does scores the weight lower (see getScore). Adding the same rule twice adds the weights together.
+     * The default doesn't support soft rules.
+     * @param a a guest
+     * @param b another guest
+     * @param weight how much it matters, more than 0
+     * @throws UnsupportedOperationException if these rules don't support soft rules
+     */
+    default void preferApart(String a, String b, int weight) {
+        throw new UnsupportedOperationException("These rules don't support preferences.");
+    }
+
+    /**
+     * Return how much the given guest sitting at the same table as each of the other guests adds to the score of
+     * a plan: the weight of preferTogether less the weight of preferApart. Guests it makes no difference to are left out.
+     * The default leaves everybody out, which is right for rules that don't support soft rules.
+     * @param guest a guest
+     * @return a map from the other guests to the weights
+     */
+    default Map<String, Integer> getPreferences(String guest) {
+        return Map.of();
+    }
+
+    /**
+     * Return the score of a plan: the total weight of the pairs of guests sat at the same table who prefer to be together,
+     * less the total weight of the pairs sat at the same table who prefer to be apart. Guests who aren't seated add nothing.
+     * It doesn't check the hard rules, see isPlanOK for that.
+     * @param p a plan
+     * @return the score, higher is better
+     */
+    default long getScore(IPlan p) {
+        long score = 0;
+        for (int t = 0; t < p.getNumberOfTables(); t++) {
+            Set<String> table = p.getGuestsAtTable(t);
+            for (String guest : table) {
+                for (Map.Entry<String, Integer> preference : getPreferences(guest).entrySet()) {
+                    if (table.contains(preference.getKey())) {
+                        score += preference.getValue();
+                    }
+                }
+            }
+        }
+        return score / 2; //every pair was counted once from each side
+    }
+
 }
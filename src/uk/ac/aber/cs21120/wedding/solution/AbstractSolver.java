@@ -0,0 +1,80 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.ISolver;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The base of the solvers, which gives every solver the same ways of being run: the plain solve() from ISolver,
+ * solve() with a time limit or a CancellationToken, and solveAsync() which runs the solver on another thread.
+ * A solver only has to implement solve(CancellationToken), checking the token as it searches.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public abstract class AbstractSolver implements ISolver {
+
+    /**
+     * Method for solving the problem, stopping early if the token is cancelled or its time limit runs out.
+     * If the search is stopped, the plan is left the way it was.
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before it found out
+     */
+    public abstract SolveResult solve(CancellationToken token);
+
+    /**
+     * Method for solving the problem with no time limit.
+     * @return true if the current implementation of the problem is solvable given the guests and rules, false if not
+     */
+    @Override
+    public boolean solve() {
+        return solve(new CancellationToken()) == SolveResult.SOLVED;
+    }
+
+    /**
+     * Method for solving the problem with a time limit. The search gives up on its own once the time has run out,
+     * so the calling thread is never left waiting much longer than the limit.
+     * @param timeout how long the search is allowed to take
+     * @return SOLVED, UNSATISFIABLE, or TIMED_OUT if the limit ran out first
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public SolveResult solve(Duration timeout) throws IllegalArgumentException {
+        return solve(CancellationToken.withTimeout(timeout));
+    }
+
+    /**
+     * Method for solving the problem on another thread, with no time limit.
+     * Cancelling the returned future cancels the search as well.
+     * @return a future which will hold the result of the search
+     */
+    public CompletableFuture<SolveResult> solveAsync() {
+        return solveAsync(new CancellationToken());
+    }
+
+    /**
+     * Method for solving the problem on another thread (one of the common ForkJoinPool's), checking the given token.
+     * Cancelling the returned future cancels the token, which stops the search.
+     * @param token the token to check while searching
+     * @return a future which will hold the result of the search
+     */
+    public CompletableFuture<SolveResult> solveAsync(CancellationToken token) {
+        CompletableFuture<SolveResult> future = CompletableFuture.supplyAsync(() -> solve(token));
+        future.whenComplete((result, error) -> {
+            if (error != null) { //cancelled, or the search failed - either way it shouldn't keep going
+                token.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Method to turn a token that stopped a search into the result to give back
+     * @param token the token which was cancelled
+     * @return TIMED_OUT if its time limit ran out, CANCELLED if it was cancelled
+     */
+    protected static SolveResult stoppedResult(CancellationToken token) {
+        return token.isTimedOut() ? SolveResult.TIMED_OUT : SolveResult.CANCELLED;
+    }
+}
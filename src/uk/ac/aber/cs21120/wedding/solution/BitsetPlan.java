@@ -0,0 +1,337 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An alternative implementation of the wedding seating plan, as given by the IPlan Interface.
+ * Instead of holding each table as a set of names, every guest is given an integer ID by a GuestRegistry,
+ * each table is held as a bitset of those IDs (one bit per guest, 64 guests to a long) and a guest -> table
+ * array remembers where everyone is sat. This means adding, removing and checking a guest is O(1)
+ * and never has to hash the name more than once.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class BitsetPlan implements IPlan {
+
+    private static final int NOT_PLACED = -1;
+
+    private final int numberOfTables;
+    private final int seatsPerTable;
+    private final GuestRegistry registry;
+
+    private long[][] tables; //tables[t] is the bitset of guest IDs sat at table t
+    private final int[] tableSizes; //how many guests are at each table, so we don't have to count the bits
+    private int[] tableOf; //guest ID -> table they are sat at, or NOT_PLACED
+    private final List<Set<String>> tableViews; //read-only views of each table's bitset, made once so reading a table doesn't allocate
+
+    /**
+     * Constructor to create the bitset implementation of the seating plan, with its own registry of guests.
+     *
+     * @param numberOfTables defines how many tables are included in the plan
+     * @param seatsPerTable defines how many seats are available for each table
+     */
+    public BitsetPlan(int numberOfTables, int seatsPerTable){
+        this(numberOfTables, seatsPerTable, new GuestRegistry());
+    }
+
+    /**
+     * Constructor to create the bitset implementation of the seating plan, sharing a registry of guests
+     * (so that the IDs used here mean the same guests as the IDs used by anything else sharing it)
+     *
+     * @param numberOfTables defines how many tables are included in the plan
+     * @param seatsPerTable defines how many seats are available for each table
+     * @param registry the registry used to turn guest names into IDs
+     */
+    public BitsetPlan(int numberOfTables, int seatsPerTable, GuestRegistry registry){
+        this.numberOfTables = numberOfTables;
+        this.seatsPerTable = seatsPerTable;
+        this.registry = registry;
+
+        int words = wordsFor(Math.max(registry.size(), 64));
+        this.tables = new long[numberOfTables][words];
+        this.tableSizes = new int[numberOfTables];
+        this.tableOf = new int[words * 64];
+        Arrays.fill(this.tableOf, NOT_PLACED);
+
+        this.tableViews = new ArrayList<>(numberOfTables);
+        for (int t = 0; t < numberOfTables; t++){
+            this.tableViews.add(Collections.unmodifiableSet(new TableView(t)));
+        }
+    }
+
+    /**
+     * Method to return the total number of seats at each table
+     * @return returns the number of seats
+     * Runtime --> O(1)
+     */
+    @Override
+    public int getSeatsPerTable() {
+        return seatsPerTable;
+    }
+
+    /**
+     * Method to return the number of tables in the plan
+     * @return returns the number of tables
+     * Runtime --> O(1)
+     */
+    @Override
+    public int getNumberOfTables() {
+        return numberOfTables;
+    }
+
+    /**
+     * Method to add a guest to a table.
+     * The guest is given an ID if they don't have one, and if they aren't already seated and the
+     * table isn't full, their bit is set on the table.
+     * @param table the table number
+     * @param guest the name of the guest
+     * @throws IndexOutOfBoundsException if the table number given does not match a table
+     * Runtime --> O(1) (amortised, the bitsets occasionally have to grow when new guests turn up)
+     */
+    @Override
+    public void addGuestToTable(int table, String guest) throws IndexOutOfBoundsException{
+        seatGuest(table, guest);
+    }
+
+    /**
+     * Method to add a guest to a table the same way as addGuestToTable(), which also says whether it worked
+     * @param table the table number
+     * @param guest the name of the guest
+     * @return the guest's ID if they were seated, or -1 if the plan was left alone
+     * @throws IndexOutOfBoundsException if the table number given does not match a table
+     * Runtime --> O(1) (amortised)
+     */
+    int seatGuest(int table, String guest) throws IndexOutOfBoundsException{
+        validateTable(table);
+
+        if (validateGuestExistence(guest) && tableSizes[table] < seatsPerTable){
+            int id = registry.intern(guest);
+            ensureCapacity(id);
+            if (tableOf[id] == NOT_PLACED){
+                tables[table][id >>> 6] |= 1L << id;
+                tableOf[id] = table;
+                tableSizes[table]++;
+                return id;
+            }
+        }
+        return NOT_PLACED;
+    }
+
+    /**
+     * Method to remove a guest from any table in the plan.
+     * The guest -> table array means we know exactly which bit to clear, so no tables have to be searched.
+     * @param guest the name of the guest
+     * Runtime --> O(1)
+     */
+    @Override
+    public void removeGuestFromTable(String guest) {
+        if (validateGuestExistence(guest)){
+            unseatId(registry.idOf(guest));
+        }
+    }
+
+    /**
+     * Method to remove a guest from any table by their ID, without looking up their name
+     * @param id the guest's ID
+     * Runtime --> O(1)
+     */
+    void unseatId(int id){
+        if (id >= 0 && id < tableOf.length && tableOf[id] != NOT_PLACED){
+            int table = tableOf[id];
+            tables[table][id >>> 6] &= ~(1L << id);
+            tableOf[id] = NOT_PLACED;
+            tableSizes[table]--;
+        }
+    }
+
+    /**
+     * Method to check if a guest is placed in the seating plan
+     * @param guest the name of the guest
+     * @return true if the guest is at a table, false otherwise (or if they are null or blank)
+     * Runtime --> O(1)
+     */
+    @Override
+    public boolean isGuestPlaced(String guest) {
+        if (validateGuestExistence(guest)){
+            int id = registry.idOf(guest);
+            return id >= 0 && id < tableOf.length && tableOf[id] != NOT_PLACED;
+        }
+        return false;
+    }
+
+    /**
+     * Method to return the guests at a table, after checking that the given number is not invalid.
+     * The set can't be changed, so guests can only be added and removed through the plan, but it is a view of the
+     * table's bitset rather than a copy, so it keeps up with the plan.
+     * @param t the table number
+     * @return the guests at the table as an unmodifiable Set
+     * @throws IndexOutOfBoundsException if the number given does not match any table in the plan
+     * Runtime --> O(1)
+     */
+    @Override
+    public Set<String> getGuestsAtTable(int t) throws IndexOutOfBoundsException{
+        validateTable(t);
+        return tableViews.get(t);
+    }
+
+    /**
+     * Method to find which table a guest is sat at
+     * @param guest the name of the guest
+     * @return the table number, or -1 if the guest isn't in the plan
+     * Runtime --> O(1)
+     */
+    @Override
+    public int getTableOf(String guest) {
+        return validateGuestExistence(guest) ? getTableOfId(registry.idOf(guest)) : NOT_PLACED;
+    }
+
+    /**
+     * Method to return the registry this plan uses to give guests their IDs
+     * @return the registry
+     */
+    public GuestRegistry getRegistry(){
+        return registry;
+    }
+
+    /**
+     * Method to return the raw bitset of a table, for classes in this package which want to work on the IDs directly.
+     * This is the plan's own array, so it MUST NOT be modified.
+     * @param t the table number
+     * @return the bitset of guest IDs at the table
+     */
+    long[] getTableBits(int t){
+        validateTable(t);
+        return tables[t];
+    }
+
+    /**
+     * Method to return how many guests are sat at a table, without walking the bitset
+     * @param t the table number
+     * @return the number of guests at the table
+     * @throws IndexOutOfBoundsException if the number given does not match any table in the plan
+     * Runtime --> O(1)
+     */
+    @Override
+    public int getNumberOfGuestsAtTable(int t) throws IndexOutOfBoundsException{
+        validateTable(t);
+        return tableSizes[t];
+    }
+
+    /**
+     * Method to return the table a guest ID is sat at
+     * @param id the guest's ID
+     * @return the table number, or -1 if the guest isn't placed
+     * Runtime --> O(1)
+     */
+    int getTableOfId(int id){
+        return id >= 0 && id < tableOf.length ? tableOf[id] : NOT_PLACED;
+    }
+
+    /**
+     * Method to make sure the bitsets and the guest -> table array are big enough to hold a guest ID.
+     * They double in size each time, so growing is amortised O(1) per guest.
+     * @param id the guest ID that needs to fit
+     */
+    private void ensureCapacity(int id){
+        if (id >= tableOf.length){
+            int words = wordsFor(Math.max(id + 1, tableOf.length * 2));
+            for (int t = 0; t < numberOfTables; t++){
+                tables[t] = Arrays.copyOf(tables[t], words);
+            }
+            int oldLength = tableOf.length;
+            tableOf = Arrays.copyOf(tableOf, words * 64);
+            Arrays.fill(tableOf, oldLength, tableOf.length, NOT_PLACED);
+        }
+    }
+
+    private static int wordsFor(int bits){
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Method to validate the table number that is passed to functions.
+     * @param t the table number to be checked
+     * @throws IndexOutOfBoundsException if the table number does not correspond to an actual table in the plan
+     * Runtime --> O(1)
+     */
+    private void validateTable(int t) throws IndexOutOfBoundsException{
+        if (t < 0 || t > numberOfTables -1){
+            throw new IndexOutOfBoundsException("This table doesn't exist, please double-check " +
+                    "the table number you want to check.");
+        }
+    }
+
+    private boolean validateGuestExistence(String guest){
+        return guest != null && !guest.isBlank();
+    }
+
+    /**
+     * A set of the guests at one table, read straight from the table's bitset every time it is used.
+     * The size comes from tableSizes and contains() looks the guest up in the guest -> table array,
+     * so only iterating over it touches the bitset.
+     */
+    private class TableView extends AbstractSet<String> {
+
+        private final int table;
+
+        private TableView(int table){
+            this.table = table;
+        }
+
+        /**
+         * Runtime --> O(1)
+         */
+        @Override
+        public int size(){
+            return tableSizes[table];
+        }
+
+        /**
+         * Runtime --> O(1)
+         */
+        @Override
+        public boolean contains(Object o){
+            return o instanceof String && getTableOf((String) o) == table;
+        }
+
+        /**
+         * Runtime --> O(W + S) for the whole walk, where W is the number of words in the bitset and S is the number of seats
+         */
+        @Override
+        public Iterator<String> iterator(){
+            long[] bits = tables[table]; //read now, as the array is swapped for a bigger one when the plan grows
+            return new Iterator<String>() {
+                private int w = 0;
+                private long word = bits.length > 0 ? bits[0] : 0;
+
+                @Override
+                public boolean hasNext(){
+                    while (word == 0 && w + 1 < bits.length){
+                        word = bits[++w];
+                    }
+                    return word != 0;
+                }
+
+                @Override
+                public String next(){
+                    if (!hasNext()){
+                        throw new NoSuchElementException();
+                    }
+                    int id = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1; //clears the lowest set bit
+                    return registry.nameOf(id);
+                }
+            };
+        }
+    }
+}
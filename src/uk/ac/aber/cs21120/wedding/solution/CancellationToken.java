@@ -0,0 +1,103 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.time.Duration;
+
+/**
+ * A token used to stop a search early, either by calling cancel() from another thread or by a time limit running out.
+ * Searches check the token as they go, so stopping them never needs the thread to be interrupted or killed,
+ * and they always leave the plan the way it was.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class CancellationToken {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final CancellationToken parent; //if the parent is cancelled, so is this
+    private final long deadline; //System.nanoTime() by which the search has to stop, or NO_DEADLINE
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+
+    /**
+     * Constructor for a token with no time limit, which only stops a search when cancel() is called.
+     */
+    public CancellationToken() {
+        this(null, NO_DEADLINE);
+    }
+
+    private CancellationToken(CancellationToken parent, long deadline) {
+        this.parent = parent;
+        this.deadline = deadline;
+        this.cancelled = false;
+        this.timedOut = false;
+    }
+
+    /**
+     * Method to create a token which stops a search once a time limit has passed (or when cancel() is called).
+     * The time starts as soon as the token is created.
+     * @param timeout how long the search is allowed to take
+     * @return the token
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public static CancellationToken withTimeout(Duration timeout) throws IllegalArgumentException {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("The time limit can't be negative.");
+        }
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        }
+        catch (ArithmeticException e) { //too long to count in nanoseconds, so it may as well be forever
+            return new CancellationToken();
+        }
+        return new CancellationToken(null, System.nanoTime() + nanos);
+    }
+
+    /**
+     * Method to create a token which is cancelled whenever this one is, but which can also be cancelled on its own,
+     * so a solver can stop the searches it started without stopping whoever gave it this token.
+     * @return the new token
+     */
+    public CancellationToken child() {
+        return new CancellationToken(this, NO_DEADLINE);
+    }
+
+    /**
+     * Method to ask any search using this token to stop. It can be called from any thread, and more than once.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Method to check if the search should stop, because it was cancelled, the time limit has run out,
+     * or the token this one was made from has been cancelled.
+     * @return true if the search should stop
+     * Runtime --> O(D) where D is how many parents the token has (normally 0 or 1)
+     */
+    public boolean isCancelled() {
+        if (cancelled) {
+            return true;
+        }
+        if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) {
+            timedOut = true;
+            cancelled = true;
+            return true;
+        }
+        if (parent != null && parent.isCancelled()) {
+            timedOut = parent.isTimedOut();
+            cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method to check if the token was cancelled because a time limit ran out, rather than by cancel()
+     * @return true if a time limit ran out
+     */
+    public boolean isTimedOut() {
+        return isCancelled() && timedOut;
+    }
+}
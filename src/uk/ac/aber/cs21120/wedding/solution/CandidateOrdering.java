@@ -0,0 +1,23 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+/**
+ * Strategies for the order in which the Solver tries candidates for a free seat (the value ordering of the search).
+ * The Solver fills one table at a time, so rather than choosing a table for a guest, it chooses guests for a table.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public enum CandidateOrdering {
+
+    /**
+     * Candidates are tried in the guest order.
+     */
+    IN_ORDER,
+
+    /**
+     * Candidates who are in the same must-be-together group as someone already at the table are tried first,
+     * then everyone else in the guest order. A groupmate has to end up at that table anyway, so seating them takes
+     * no options away from anyone, whereas seating anybody else uses up a seat the group will need.
+     */
+    LEAST_CONSTRAINING
+}
@@ -0,0 +1,206 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A quick check, done before any searching, of whether the must-be-together groups can physically fit on the tables.
+ * It only looks at the sizes of the groups, not at who is enemies with who, so it can prove that a problem can't be
+ * solved but never that it can.
+ *
+ * Everyone at a full table has to have their whole group with them, and every table has to end up full, so:
+ *  - a group with more guests than there are seats at a table can never be seated
+ *  - a group with someone who isn't on the guest list (and isn't already seated) can never be seated either
+ *  - if that leaves fewer guests than free seats, there is no solution
+ *  - if it leaves exactly as many guests as free seats, every one of them has to be seated, which makes seating the
+ *    groups a bin-packing problem. First-fit-decreasing is tried first, and if it can't pack the groups onto the
+ *    tables the Martello-Toth L2 lower bound is worked out, and if that needs more tables than there are, there is
+ *    no solution.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class CapacityCheck {
+
+    private final int seatsPerTable;
+    private final Set<String> unseatableGroups; //the representatives of the groups which can never be seated
+    private final IRules rules;
+    private boolean mightFit;
+
+    /**
+     * Constructor which runs the check for a set of guests who are about to be seated.
+     * @param guests the guests to be seated (any of them may already be in the plan)
+     * @param plan the plan they are to be seated in
+     * @param rules the rules they have to follow
+     * Runtime --> O(G + T + S^2) plus the sort, where G is the number of guests, T the number of tables and S the seats per table
+     */
+    public CapacityCheck(String[] guests, IPlan plan, IRules rules){
+        this.seatsPerTable = plan.getSeatsPerTable();
+        this.unseatableGroups = new HashSet<>();
+        this.rules = rules;
+
+        int numTables = plan.getNumberOfTables();
+        int[] occupied = new int[numTables]; //guests at each table, plus the groupmates who will have to join them
+        int freeSeats = 0;
+        for (int t = 0; t < numTables; t++){
+            occupied[t] = plan.getNumberOfGuestsAtTable(t);
+            freeSeats += seatsPerTable - occupied[t];
+        }
+
+        Set<String> listed = new LinkedHashSet<>(Arrays.asList(guests));
+        Map<String, Integer> groupSizes = new HashMap<>(); //group representative -> guests from it who still need a seat
+        this.mightFit = true;
+        int seatableGuests = 0;
+
+        for (String guest : listed){
+            String group = rules.getGroupOf(guest);
+            if (groupSizes.containsKey(group) || unseatableGroups.contains(group)){
+                continue;
+            }
+            int table = -1;
+            int waiting = 0;
+            boolean seatable = rules.getGroupSize(guest) <= seatsPerTable;
+            for (String member : rules.getGroupMembers(guest)){
+                int memberTable = plan.getTableOf(member);
+                if (memberTable < 0){
+                    waiting++;
+                    seatable &= listed.contains(member);
+                }
+                else if (table < 0 || table == memberTable){
+                    table = memberTable;
+                }
+                else {
+                    seatable = false; //the group is already split between two tables
+                }
+            }
+
+            if (!seatable){
+                unseatableGroups.add(group);
+            }
+            else if (table >= 0){ //the rest of the group can only go to the table their groupmates are at
+                groupSizes.put(group, 0);
+                occupied[table] += waiting;
+                seatableGuests += waiting;
+                if (occupied[table] > seatsPerTable){
+                    mightFit = false;
+                }
+            }
+            else {
+                groupSizes.put(group, waiting);
+                seatableGuests += waiting;
+            }
+        }
+
+        if (seatableGuests < freeSeats){
+            mightFit = false;
+        }
+        else if (mightFit && seatableGuests == freeSeats){ //every guest has to be seated, so the groups have to pack onto the tables
+            int[] sizes = new int[groupSizes.size() + numTables];
+            int items = 0;
+            int bins = 0;
+            for (int size : groupSizes.values()){
+                if (size > 0) sizes[items++] = size;
+            }
+            for (int t = 0; t < numTables; t++){
+                if (plan.getNumberOfGuestsAtTable(t) < seatsPerTable){
+                    bins++;
+                    if (occupied[t] > 0) sizes[items++] = occupied[t]; //the guests already here count as a group which could go anywhere
+                }
+            }
+            sizes = Arrays.copyOf(sizes, items);
+            mightFit = firstFitDecreasing(sizes, seatsPerTable) <= bins || lowerBoundL2(sizes, seatsPerTable) <= bins;
+        }
+    }
+
+    /**
+     * Method to return the result of the check
+     * @return false if the problem definitely can't be solved, true if it might be
+     */
+    public boolean mightFit(){
+        return mightFit;
+    }
+
+    /**
+     * Method to check if a guest could ever be seated, going by the size of their group
+     * @param guest the guest
+     * @return false if their group is too big for a table or has someone missing from the guest list
+     */
+    public boolean isSeatable(String guest){
+        return unseatableGroups.isEmpty() || !unseatableGroups.contains(rules.getGroupOf(guest));
+    }
+
+    /**
+     * Method to pack groups onto tables with the first-fit-decreasing heuristic: the biggest group goes first,
+     * and each group goes on the first table with room for it.
+     * @param sizes the size of each group, none bigger than capacity
+     * @param capacity the seats at each table
+     * @return how many tables the packing used, which is never less than the fewest tables possible
+     * Runtime --> O(N log N + N*B) where N is the number of groups and B the number of tables used
+     */
+    static int firstFitDecreasing(int[] sizes, int capacity){
+        int[] sorted = sizes.clone();
+        Arrays.sort(sorted);
+        int[] space = new int[sorted.length];
+        int bins = 0;
+        for (int i = sorted.length - 1; i >= 0; i--){
+            int bin = 0;
+            while (bin < bins && space[bin] < sorted[i]){
+                bin++;
+            }
+            if (bin == bins){
+                space[bins++] = capacity;
+            }
+            space[bin] -= sorted[i];
+        }
+        return bins;
+    }
+
+    /**
+     * Method to work out the Martello-Toth L2 lower bound on how many tables are needed for groups of the given sizes.
+     * For each threshold K up to half a table, the groups bigger than capacity - K can't share a table with any group of
+     * size K or more, the groups bigger than half a table can't share with eachother, and the groups between K and half a
+     * table have to go in the space left next to those bigger ones or on tables of their own.
+     * @param sizes the size of each group, none bigger than capacity
+     * @param capacity the seats at each table
+     * @return the fewest tables any packing could possibly use
+     * Runtime --> O(N + S^2) where N is the number of groups and S the capacity
+     */
+    static int lowerBoundL2(int[] sizes, int capacity){
+        int[] count = new int[capacity + 1]; //count[w] is how many groups have size w
+        for (int size : sizes){
+            count[size]++;
+        }
+        int best = 0;
+        for (int k = 0; k <= capacity / 2; k++){
+            if (k > 0 && count[k] == 0){
+                continue; //the bound only changes at sizes that actually turn up
+            }
+            int big = 0; //groups bigger than capacity - k
+            int medium = 0; //groups bigger than half a table, but no bigger than capacity - k
+            long mediumSpace = 0; //seats left free next to the medium groups
+            long small = 0; //seats taken by the groups from k to half a table
+            for (int w = Math.max(k, 1); w <= capacity; w++){
+                if (w > capacity - k){
+                    big += count[w];
+                }
+                else if (2 * w > capacity){
+                    medium += count[w];
+                    mediumSpace += (long) count[w] * (capacity - w);
+                }
+                else {
+                    small += (long) count[w] * w;
+                }
+            }
+            long overflow = Math.max(0, small - mediumSpace);
+            best = (int) Math.max(best, big + medium + (overflow + capacity - 1) / capacity);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,650 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A conflict-driven clause learning (CDCL) SAT solver, which finds an assignment to a set of boolean variables that
+ * makes every clause of a CNF formula true, or proves that there isn't one. SatSolver uses it to solve the wedding
+ * encoded by SatEncoding, but it works on any CNF formula, including ones read from a DIMACS file.
+ *
+ * Variables are numbered from 1 and literals are written the DIMACS way: v for the variable being true, -v for false.
+ * It is the usual CDCL loop:
+ *  - unit propagation with two watched literals per clause, so a clause is only looked at when one of the two
+ *    literals it is watching becomes false
+ *  - when a clause is broken, the first unique implication point clause is learned (with the literals whose reasons
+ *    are already in it taken out) and the search jumps back to the level where it becomes a unit
+ *  - decisions pick the unassigned variable with the highest VSIDS activity (bumped when a variable is in a conflict,
+ *    decayed over time), set the way it was last set (phase saving)
+ *  - restarts follow the Luby sequence, and half of the learned clauses are thrown out every so often, least active first
+ * Clauses can be added between calls to solve(), so a formula can be solved again with more clauses.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class CdclSolver {
+
+    private static final double VAR_DECAY = 0.95;
+    private static final double CLAUSE_DECAY = 0.999;
+    private static final int RESTART_UNIT = 100; //conflicts in the shortest run between restarts
+    private static final int STOP_CHECK = 256; //how many conflicts or decisions there are between checks of the token
+
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+    private static final byte UNASSIGNED = 0;
+
+    private enum Status { SATISFIABLE, UNSATISFIABLE, RESTART, STOPPED }
+
+    /**
+     * A clause, as internal literals (2 * variable for true, 2 * variable + 1 for false, variables from 0).
+     * The first two literals are the ones being watched.
+     */
+    private static class Clause {
+        final int[] literals;
+        final boolean learned;
+        double activity;
+        boolean deleted;
+
+        Clause(int[] literals, boolean learned) {
+            this.literals = literals;
+            this.learned = learned;
+        }
+    }
+
+    private final int numVariables;
+    private final List<Clause> learnedClauses;
+    private final List<List<Clause>> watches; //literal -> the clauses watching its negation, looked at when it becomes true
+    private final byte[] values; //variable -> TRUE, FALSE or UNASSIGNED
+    private final int[] levels; //variable -> the decision level it was set at
+    private final Clause[] reasons; //variable -> the clause which forced it, or null for a decision
+    private final boolean[] phases; //variable -> what it was last set to
+    private final boolean[] seen; //used by analyze()
+    private final int[] toClear; //used by analyze()
+    private final int[] trail; //the literals made true, in order
+    private int trailSize;
+    private int[] levelStarts; //decision level -> where it starts on the trail
+    private int decisionLevel;
+    private int propagated; //how much of the trail has been propagated
+
+    private final double[] activities;
+    private double variableIncrement;
+    private double clauseIncrement;
+    private final int[] heap; //the variables, as a max-heap on activity
+    private final int[] heapIndex; //variable -> where it is in the heap, or -1
+    private int heapSize;
+
+    private int clauseCount;
+    private double maxLearned;
+    private boolean unsatisfiable; //a clause has been broken with nothing decided, so it never will be satisfiable
+    private boolean[] model;
+    private long conflicts;
+    private long decisions;
+
+    /**
+     * Constructor for a solver with a number of variables and no clauses
+     * @param numVariables how many variables there are, numbered 1 to numVariables
+     * @throws IllegalArgumentException if numVariables is negative
+     */
+    public CdclSolver(int numVariables) throws IllegalArgumentException {
+        if (numVariables < 0) {
+            throw new IllegalArgumentException("There can't be a negative number of variables.");
+        }
+        this.numVariables = numVariables;
+        this.learnedClauses = new ArrayList<>();
+        this.watches = new ArrayList<>(2 * numVariables);
+        for (int i = 0; i < 2 * numVariables; i++) {
+            watches.add(new ArrayList<>(2));
+        }
+        this.values = new byte[numVariables];
+        this.levels = new int[numVariables];
+        this.reasons = new Clause[numVariables];
+        this.phases = new boolean[numVariables]; //false first, which suits a plan where most guests aren't at most tables
+        this.seen = new boolean[numVariables];
+        this.toClear = new int[numVariables];
+        this.trail = new int[numVariables];
+        this.levelStarts = new int[16];
+        this.activities = new double[numVariables];
+        this.variableIncrement = 1;
+        this.clauseIncrement = 1;
+        this.heap = new int[numVariables];
+        this.heapIndex = new int[numVariables];
+        for (int v = 0; v < numVariables; v++) {
+            heap[v] = v;
+            heapIndex[v] = v;
+        }
+        this.heapSize = numVariables;
+    }
+
+    /**
+     * Method to read a CNF formula in DIMACS format: comment lines starting with c, a "p cnf variables clauses" line,
+     * then the clauses as literals separated by whitespace, each ending with a 0
+     * @param in where to read the formula from
+     * @return a solver holding the formula
+     * @throws IOException if the formula can't be read
+     * @throws IllegalArgumentException if it isn't in DIMACS format
+     */
+    public static CdclSolver readDimacs(Reader in) throws IOException, IllegalArgumentException {
+        BufferedReader lines = new BufferedReader(in);
+        CdclSolver solver = null;
+        List<Integer> clause = new ArrayList<>();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("c") || line.startsWith("%")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            if (tokens[0].equals("p")) {
+                if (solver != null || tokens.length != 4 || !tokens[1].equals("cnf")) {
+                    throw new IllegalArgumentException("Bad problem line: " + line);
+                }
+                solver = new CdclSolver(parse(tokens[2]));
+                continue;
+            }
+            if (solver == null) {
+                throw new IllegalArgumentException("A clause came before the problem line.");
+            }
+            for (String token : tokens) {
+                int literal = parse(token);
+                if (literal == 0) {
+                    solver.addClause(clause.stream().mapToInt(Integer::intValue).toArray());
+                    clause.clear();
+                }
+                else {
+                    clause.add(literal);
+                }
+            }
+        }
+        if (solver == null) {
+            throw new IllegalArgumentException("There is no problem line.");
+        }
+        if (!clause.isEmpty()) { //the last clause is allowed to be missing its 0
+            solver.addClause(clause.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return solver;
+    }
+
+    private static int parse(String token) {
+        try {
+            return Integer.parseInt(token);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + token);
+        }
+    }
+
+    /**
+     * Method to return how many variables there are
+     */
+    public int getVariableCount() {
+        return numVariables;
+    }
+
+    /**
+     * Method to return how many clauses have been added (not counting the learned ones, or ones that were always true)
+     */
+    public int getClauseCount() {
+        return clauseCount;
+    }
+
+    /**
+     * Method to return how many conflicts the solver has run into so far, across every call to solve()
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Method to add a clause. Any search in progress is forgotten, but what has been learned is kept.
+     * @param literals the clause's literals, v for variable v being true and -v for it being false.
+     * An empty clause makes the formula unsatisfiable.
+     * @throws IllegalArgumentException if a literal is 0 or its variable doesn't exist
+     * Runtime --> O(L log L) where L is the number of literals
+     */
+    public void addClause(int... literals) throws IllegalArgumentException {
+        int[] clause = new int[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            int variable = Math.abs(literals[i]);
+            if (variable == 0 || variable > numVariables) {
+                throw new IllegalArgumentException("There is no variable " + literals[i] + ".");
+            }
+            clause[i] = 2 * (variable - 1) + (literals[i] < 0 ? 1 : 0);
+        }
+        clauseCount++;
+        backtrack(0);
+        if (unsatisfiable) {
+            return;
+        }
+
+        Arrays.sort(clause); //a literal and its negation end up next to eachother
+        int size = 0;
+        for (int i = 0; i < clause.length; i++) {
+            int literal = clause[i];
+            if (valueOf(literal) == TRUE || (i > 0 && literal == (clause[i - 1] ^ 1))) {
+                clauseCount--; //already true, so it can never be broken
+                return;
+            }
+            if (valueOf(literal) == FALSE || (size > 0 && literal == clause[size - 1])) {
+                continue;
+            }
+            clause[size++] = literal;
+        }
+        if (size == 0) {
+            unsatisfiable = true;
+        }
+        else if (size == 1) {
+            assign(clause[0], null);
+            unsatisfiable = propagate() != null;
+        }
+        else {
+            attach(new Clause(Arrays.copyOf(clause, size), false));
+        }
+    }
+
+    /**
+     * Method to find an assignment which satisfies every clause, checking the token as it goes
+     * @param stop the token to check, or null if the search can't be stopped
+     * @return true if there is one (see getModel()), false if there isn't, or null if the token stopped it first
+     */
+    public Boolean solve(CancellationToken stop) {
+        model = null;
+        if (unsatisfiable) {
+            return false;
+        }
+        backtrack(0);
+        if (propagate() != null) {
+            unsatisfiable = true;
+            return false;
+        }
+        if (maxLearned == 0) {
+            maxLearned = Math.max(1000, clauseCount / 3.0);
+        }
+        for (int run = 0; ; run++) {
+            Status status = search(luby(run) * RESTART_UNIT, stop);
+            if (status == Status.SATISFIABLE) {
+                return true;
+            }
+            if (status == Status.UNSATISFIABLE) {
+                return false;
+            }
+            if (status == Status.STOPPED) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Method to return the assignment found by the last call to solve()
+     * @return the value of each variable, by number (so index 0 isn't used), or null if the last call didn't find one
+     */
+    public boolean[] getModel() {
+        return model;
+    }
+
+    /**
+     * Method to run the search until it finds an answer, runs into enough conflicts to restart, or is stopped
+     */
+    private Status search(long conflictBudget, CancellationToken stop) {
+        long conflictsHere = 0;
+        int[] learned = new int[Math.max(1, numVariables)];
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                conflictsHere++;
+                if (decisionLevel == 0) {
+                    unsatisfiable = true;
+                    return Status.UNSATISFIABLE;
+                }
+                int size = analyze(conflict, learned);
+                int jumpTo = 0;
+                for (int i = 1; i < size; i++) { //the literal set deepest goes second, so it is watched
+                    if (levels[learned[i] >> 1] > jumpTo) {
+                        jumpTo = levels[learned[i] >> 1];
+                        int swap = learned[1];
+                        learned[1] = learned[i];
+                        learned[i] = swap;
+                    }
+                }
+                backtrack(jumpTo);
+                if (size == 1) {
+                    assign(learned[0], null);
+                }
+                else {
+                    Clause clause = new Clause(Arrays.copyOf(learned, size), true);
+                    learnedClauses.add(clause);
+                    attach(clause);
+                    bumpClause(clause);
+                    assign(learned[0], clause);
+                }
+                variableIncrement /= VAR_DECAY;
+                clauseIncrement /= CLAUSE_DECAY;
+                if (stop != null && conflicts % STOP_CHECK == 0 && stop.isCancelled()) {
+                    return Status.STOPPED;
+                }
+            }
+            else {
+                if (conflictsHere >= conflictBudget) {
+                    backtrack(0);
+                    return Status.RESTART;
+                }
+                if (learnedClauses.size() - trailSize >= maxLearned) {
+                    reduceLearned();
+                }
+                int next = pickBranch();
+                if (next < 0) {
+                    model = new boolean[numVariables + 1];
+                    for (int v = 0; v < numVariables; v++) {
+                        model[v + 1] = values[v] == TRUE;
+                    }
+                    return Status.SATISFIABLE;
+                }
+                decisions++;
+                if (stop != null && decisions % STOP_CHECK == 0 && stop.isCancelled()) {
+                    return Status.STOPPED;
+                }
+                if (decisionLevel == levelStarts.length) {
+                    levelStarts = Arrays.copyOf(levelStarts, levelStarts.length * 2);
+                }
+                levelStarts[decisionLevel++] = trailSize;
+                assign(next, null);
+            }
+        }
+    }
+
+    /**
+     * Method to make every literal the trail says is true propagate through the clauses watching its negation
+     * @return a clause which has been broken, or null if there isn't one
+     * Runtime --> O(total length of the clauses looked at)
+     */
+    private Clause propagate() {
+        while (propagated < trailSize) {
+            int trueLiteral = trail[propagated++];
+            int falseLiteral = trueLiteral ^ 1;
+            List<Clause> watching = watches.get(trueLiteral);
+            int kept = 0;
+            int size = watching.size();
+            for (int i = 0; i < size; i++) {
+                Clause clause = watching.get(i);
+                if (clause.deleted) { //thrown out by reduceLearned(), so it is dropped from the list now
+                    continue;
+                }
+                int[] literals = clause.literals;
+                if (literals[0] == falseLiteral) { //the false literal goes second
+                    literals[0] = literals[1];
+                    literals[1] = falseLiteral;
+                }
+                if (valueOf(literals[0]) == TRUE) {
+                    watching.set(kept++, clause);
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < literals.length && !moved; k++) {
+                    if (valueOf(literals[k]) != FALSE) { //watch this one instead
+                        literals[1] = literals[k];
+                        literals[k] = falseLiteral;
+                        watches.get(literals[1] ^ 1).add(clause);
+                        moved = true;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                watching.set(kept++, clause);
+                if (valueOf(literals[0]) == FALSE) { //every literal is false
+                    for (i++; i < size; i++) {
+                        watching.set(kept++, watching.get(i));
+                    }
+                    watching.subList(kept, size).clear();
+                    propagated = trailSize;
+                    return clause;
+                }
+                assign(literals[0], clause);
+            }
+            watching.subList(kept, size).clear();
+        }
+        return null;
+    }
+
+    /**
+     * Method to work out the first unique implication point clause of a conflict: the literals of the conflict are
+     * swapped for the reasons they were set, until only one of them was set at the current level
+     * @param conflict the clause which was broken
+     * @param learned where to put the clause, the asserting literal first
+     * @return how many literals it has
+     */
+    private int analyze(Clause conflict, int[] learned) {
+        int size = 1;
+        int atThisLevel = 0;
+        int literal = -1;
+        int index = trailSize - 1;
+        Clause clause = conflict;
+        do {
+            if (clause.learned) {
+                bumpClause(clause);
+            }
+            for (int k = literal == -1 ? 0 : 1; k < clause.literals.length; k++) {
+                int other = clause.literals[k];
+                int variable = other >> 1;
+                if (!seen[variable] && levels[variable] > 0) {
+                    bumpVariable(variable);
+                    seen[variable] = true;
+                    if (levels[variable] >= decisionLevel) {
+                        atThisLevel++;
+                    }
+                    else {
+                        learned[size++] = other;
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            literal = trail[index--];
+            clause = reasons[literal >> 1];
+            seen[literal >> 1] = false;
+            atThisLevel--;
+        } while (atThisLevel > 0);
+        learned[0] = literal ^ 1;
+
+        System.arraycopy(learned, 1, toClear, 0, size - 1);
+        int kept = 1;
+        for (int i = 1; i < size; i++) { //a literal whose reason is already covered by the clause isn't needed
+            if (!isImplied(learned[i])) {
+                learned[kept++] = learned[i];
+            }
+        }
+        for (int i = 0; i < size - 1; i++) {
+            seen[toClear[i] >> 1] = false;
+        }
+        return kept;
+    }
+
+    private boolean isImplied(int literal) {
+        Clause reason = reasons[literal >> 1];
+        if (reason == null) {
+            return false;
+        }
+        for (int k = 1; k < reason.literals.length; k++) {
+            int variable = reason.literals[k] >> 1;
+            if (!seen[variable] && levels[variable] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to throw out half of the learned clauses, the least active first. Clauses of two literals, and ones which
+     * are the reason for something on the trail, are kept.
+     */
+    private void reduceLearned() {
+        learnedClauses.sort(Comparator.comparingDouble(clause -> clause.activity));
+        int toRemove = learnedClauses.size() / 2;
+        List<Clause> kept = new ArrayList<>(learnedClauses.size() - toRemove);
+        for (Clause clause : learnedClauses) {
+            boolean locked = reasons[clause.literals[0] >> 1] == clause && valueOf(clause.literals[0]) == TRUE;
+            if (toRemove > 0 && clause.literals.length > 2 && !locked) {
+                clause.deleted = true; //taken out of the watch lists the next time they are looked at
+                toRemove--;
+            }
+            else {
+                kept.add(clause);
+            }
+        }
+        learnedClauses.clear();
+        learnedClauses.addAll(kept);
+        maxLearned *= 1.1;
+    }
+
+    private void attach(Clause clause) {
+        watches.get(clause.literals[0] ^ 1).add(clause);
+        watches.get(clause.literals[1] ^ 1).add(clause);
+    }
+
+    private void assign(int literal, Clause reason) {
+        int variable = literal >> 1;
+        values[variable] = (literal & 1) == 0 ? TRUE : FALSE;
+        levels[variable] = decisionLevel;
+        reasons[variable] = reason;
+        trail[trailSize++] = literal;
+    }
+
+    private byte valueOf(int literal) {
+        byte value = values[literal >> 1];
+        return (literal & 1) == 0 ? value : (byte) -value;
+    }
+
+    /**
+     * Method to undo every assignment made after a decision level, saving the way each variable was set
+     */
+    private void backtrack(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= levelStarts[level]; i--) {
+            int variable = trail[i] >> 1;
+            phases[variable] = values[variable] == TRUE;
+            values[variable] = UNASSIGNED;
+            reasons[variable] = null;
+            if (heapIndex[variable] < 0) {
+                heapInsert(variable);
+            }
+        }
+        trailSize = levelStarts[level];
+        propagated = trailSize;
+        decisionLevel = level;
+    }
+
+    /**
+     * Method to pick the next decision: the unassigned variable with the highest activity, set the way it was last set
+     * @return the literal to make true, or -1 if every variable is assigned
+     */
+    private int pickBranch() {
+        while (heapSize > 0) {
+            int variable = heapRemoveMax();
+            if (values[variable] == UNASSIGNED) {
+                return 2 * variable + (phases[variable] ? 0 : 1);
+            }
+        }
+        return -1;
+    }
+
+    private void bumpVariable(int variable) {
+        activities[variable] += variableIncrement;
+        if (activities[variable] > 1e100) { //scale everything down before it overflows
+            for (int v = 0; v < numVariables; v++) {
+                activities[v] *= 1e-100;
+            }
+            variableIncrement *= 1e-100;
+        }
+        if (heapIndex[variable] >= 0) {
+            siftUp(heapIndex[variable]);
+        }
+    }
+
+    private void bumpClause(Clause clause) {
+        clause.activity += clauseIncrement;
+        if (clause.activity > 1e20) {
+            for (Clause learned : learnedClauses) {
+                learned.activity *= 1e-20;
+            }
+            clauseIncrement *= 1e-20;
+        }
+    }
+
+    /**
+     * Method to return the i-th number of the Luby sequence 1 1 2 1 1 2 4 1 1 2 1 1 2 4 8 ..., which decides how
+     * many conflicts each run between restarts gets
+     */
+    static long luby(int i) {
+        int size = 1;
+        int power = 0;
+        while (size < i + 1) {
+            power++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            power--;
+            i = i % size;
+        }
+        return 1L << power;
+    }
+
+    private void heapInsert(int variable) {
+        heap[heapSize] = variable;
+        heapIndex[variable] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int variable = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activities[heap[parent]] >= activities[variable]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = variable;
+        heapIndex[variable] = i;
+    }
+
+    private void siftDown(int i) {
+        int variable = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) {
+                child++;
+            }
+            if (activities[heap[child]] <= activities[variable]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = variable;
+        heapIndex[variable] = i;
+    }
+}
@@ -0,0 +1,429 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * A solver for weddings where the rules only link up small groups of guests (families, groups of friends from work...)
+ * and most guests have no rules at all. Rather than searching for a place for every guest in one big search like the
+ * Solver, it splits the guests up:
+ *  - the groups of guests linked by enemies are found (a group with no enemies is one on its own), and each of them
+ *    is split into as few clusters as it can be, where a cluster is groups with no enemies between them which fit at
+ *    one table. Each one is a separate little search, so they are all done at once, in parallel.
+ *  - guests from different components never have rules between them, so the clusters are then packed onto the
+ *    tables with first-fit-decreasing, biggest first, only keeping clusters from the same component apart
+ *  - the guests with no rules at all can sit anywhere, so they just fill up the seats left over, in the order of the
+ *    guest list. They are the ones left without a seat if there are too many guests.
+ *
+ * Packing the clusters can fail when a solution does exist, because the clusters were chosen without knowing about
+ * the other ones, and it can't be used at all if the guests with rules need more seats than there are, or anyone is
+ * already seated. Then the Solver is run instead, so a solution is always found if there is one, and the answer
+ * is never wrong.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class DecompositionSolver extends AbstractSolver {
+
+    private static final int NODE_LIMIT = 10_000; //how many places a cluster search tries for each number of clusters
+    private static final int STOP_CHECK = 256; //how many places a cluster search tries between checking the token
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private List<Set<String>> unsatisfiableClique;
+    private boolean decomposed;
+    private int components;
+
+    /**
+     * Constructor for the decomposition solver.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan object to add the guests to
+     * @param rules  holds the rules object to check against the plan
+     */
+    public DecompositionSolver(String[] guests, IPlan plan, IRules rules) {
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.unsatisfiableClique = List.of();
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, see Solver.getUnsatisfiableClique()
+     * @return the groups of guests who all have to be apart, or an empty list
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Method to check if the last call to solve() found its answer by splitting the problem up, rather than with the Solver
+     * @return true if the clusters were packed onto the tables, false if the Solver was used
+     */
+    public boolean wasDecomposed() {
+        return decomposed;
+    }
+
+    /**
+     * Method to return how many separate groups of guests linked by enemies the last call to solve() split the guests into
+     * @return the number of components searched, not counting the guests with no rules at all
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * Method for solving the problem by splitting it up.
+     * The token is checked while each cluster search runs, and by the Solver if it is needed.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before it found out
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) {
+        unsatisfiableClique = List.of();
+        decomposed = false;
+        components = 0;
+        CapacityCheck capacity = new CapacityCheck(guests, plan, rules);
+        if (!capacity.mightFit()) {
+            return SolveResult.UNSATISFIABLE;
+        }
+        EnemyGraphCheck enemyGraph = new EnemyGraphCheck(guests, plan, rules, capacity);
+        if (!enemyGraph.mightFit()) {
+            unsatisfiableClique = enemyGraph.getClique();
+            return SolveResult.UNSATISFIABLE;
+        }
+
+        if (!hasAnyoneSeated()) {
+            GuestGroups groups = new GuestGroups(guests, plan, rules, capacity);
+            int[] tableOf = decompose(groups, token);
+            if (token.isCancelled()) {
+                return stoppedResult(token);
+            }
+            if (tableOf != null && seat(groups, tableOf)) {
+                decomposed = true;
+                return SolveResult.SOLVED;
+            }
+        }
+        Solver solver = new Solver(guests, plan, rules);
+        SolveResult result = solver.solve(token);
+        unsatisfiableClique = solver.getUnsatisfiableClique();
+        return result;
+    }
+
+    /**
+     * Method to check if anyone is already seated in the plan
+     */
+    private boolean hasAnyoneSeated() {
+        for (int t = 0; t < plan.getNumberOfTables(); t++) {
+            if (plan.getNumberOfGuestsAtTable(t) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to split the groups with rules into components, split each component into clusters, and pack the clusters
+     * onto the tables. The guests with no rules are left for seat() to fill in around them.
+     * @return the table for each group (or -1 for no seat), or null if the clusters don't fit
+     */
+    private int[] decompose(GuestGroups groups, CancellationToken token) {
+        int seats = groups.seatsPerTable;
+        boolean[] free = new boolean[groups.count]; //guests with no rules, who can sit anywhere
+        List<int[]> found = new ArrayList<>();
+        boolean[] visited = new boolean[groups.count];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int guestsWithRules = 0;
+        for (int start = 0; start < groups.movable; start++) {
+            if (groups.sizeOf[start] == 1 && isolated(groups, start)) {
+                free[start] = true;
+                continue;
+            }
+            if (visited[start]) {
+                continue;
+            }
+            List<Integer> component = new ArrayList<>();
+            visited[start] = true;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int group = queue.poll();
+                component.add(group);
+                guestsWithRules += groups.sizeOf[group];
+                for (int enemy : groups.enemiesOf[group]) {
+                    if (enemy < groups.movable && !visited[enemy]) {
+                        visited[enemy] = true;
+                        queue.add(enemy);
+                    }
+                }
+            }
+            found.add(component.stream().mapToInt(Integer::intValue).toArray());
+        }
+        components = found.size();
+        if (guestsWithRules > groups.numTables * seats) {
+            return null; //some of the guests with rules would have to go without a seat, which needs the Solver
+        }
+
+        List<int[]> clusters = new ArrayList<>(); //for each cluster, its size and component followed by its groups
+        List<List<int[]>> clustered = IntStream.range(0, found.size()).parallel()
+                .mapToObj(component -> clusters(groups, found.get(component), component, token)).toList();
+        for (List<int[]> componentClusters : clustered) {
+            clusters.addAll(componentClusters);
+        }
+        if (token.isCancelled()) {
+            return null;
+        }
+
+        clusters.sort((a, b) -> b[0] - a[0]);
+        int[] tableOf = new int[groups.count];
+        Arrays.fill(tableOf, -1);
+        int[] used = new int[groups.numTables];
+        BitSet[] tablesOf = new BitSet[found.size()]; //component -> the tables it has a cluster at
+        for (int[] cluster : clusters) {
+            if (tablesOf[cluster[1]] == null) {
+                tablesOf[cluster[1]] = new BitSet();
+            }
+            BitSet taken = tablesOf[cluster[1]];
+            int table = 0;
+            while (table < groups.numTables && (used[table] + cluster[0] > seats || taken.get(table))) {
+                table++; //two clusters from the same component have enemies between them, so can't share a table
+            }
+            if (table == groups.numTables) {
+                return null;
+            }
+            used[table] += cluster[0];
+            taken.set(table);
+            for (int i = 2; i < cluster.length; i++) {
+                tableOf[cluster[i]] = table;
+            }
+        }
+        int table = 0;
+        for (int group = 0; group < groups.movable; group++) { //fill the rest of the seats with the guests with no rules
+            if (!free[group]) {
+                continue;
+            }
+            while (table < groups.numTables && used[table] == seats) {
+                table++;
+            }
+            if (table == groups.numTables) {
+                break;
+            }
+            used[table]++;
+            tableOf[group] = table;
+        }
+        return tableOf;
+    }
+
+    /**
+     * Method to check if a group has no rules to do with any of the guests who could be seated
+     */
+    private static boolean isolated(GuestGroups groups, int group) {
+        for (int enemy : groups.enemiesOf[group]) {
+            if (enemy < groups.movable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to split a component into as few clusters as it can. First-fit (biggest groups first, each to the first
+     * cluster it fits in with no enemies) gives a number of clusters to beat, then a backtracking search tries each
+     * smaller number of clusters from the fewest the guests could fit in, giving up on a number after NODE_LIMIT places.
+     * Like the Solver, a group is only ever tried in the first empty cluster.
+     * @return the clusters, each as its size and the component's number followed by its groups
+     */
+    private static List<int[]> clusters(GuestGroups groups, int[] component, int number, CancellationToken token) {
+        int seats = groups.seatsPerTable;
+        int n = component.length;
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = component[i];
+        }
+        Arrays.sort(sorted, (a, b) -> groups.sizeOf[a] != groups.sizeOf[b] ? groups.sizeOf[b] - groups.sizeOf[a]
+                : groups.enemiesOf[b].length - groups.enemiesOf[a].length);
+        int[] order = Arrays.stream(sorted).mapToInt(Integer::intValue).toArray();
+
+        int total = 0;
+        for (int group : order) {
+            total += groups.sizeOf[group];
+        }
+        ClusterSearch search = new ClusterSearch(groups, order, token);
+        int[] best = search.firstFit();
+        int bestCount = search.count(best);
+        for (int k = Math.max(1, (total + seats - 1) / seats); k < bestCount; k++) {
+            int[] better = search.find(k);
+            if (better != null) {
+                best = better;
+                bestCount = k;
+                break;
+            }
+        }
+
+        List<int[]> clusters = new ArrayList<>();
+        for (int c = 0; c < bestCount; c++) {
+            int size = 0;
+            int members = 0;
+            for (int i = 0; i < n; i++) {
+                if (best[i] == c) {
+                    size += groups.sizeOf[order[i]];
+                    members++;
+                }
+            }
+            int[] cluster = new int[members + 2];
+            cluster[0] = size;
+            cluster[1] = number;
+            int j = 2;
+            for (int i = 0; i < n; i++) {
+                if (best[i] == c) {
+                    cluster[j++] = order[i];
+                }
+            }
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    /**
+     * Method to seat the guests where decompose() put their groups, checking the plan with isPlanOK in case the rules
+     * have something GuestGroups doesn't know about
+     * @return true if the plan was seated, false if it was left alone
+     */
+    private boolean seat(GuestGroups groups, int[] tableOf) {
+        PlanTrail trail = new PlanTrail(plan);
+        for (int group = 0; group < groups.count; group++) {
+            if (tableOf[group] >= 0) {
+                for (String guest : groups.membersOf[group]) {
+                    trail.place(tableOf[group], guest);
+                }
+            }
+        }
+        boolean full = true;
+        for (int t = 0; t < groups.numTables; t++) {
+            full &= plan.getNumberOfGuestsAtTable(t) == groups.seatsPerTable;
+        }
+        if (full && rules.isPlanOK(plan)) {
+            return true;
+        }
+        trail.rollbackTo(0);
+        return false;
+    }
+
+    /**
+     * A search for a way to split one component into clusters, by giving each group (in the given order) a cluster number
+     */
+    private static final class ClusterSearch {
+
+        private final GuestGroups groups;
+        private final int[] order;
+        private final int[] positionOf; //group -> where it is in order, for looking up its enemies' clusters
+        private final CancellationToken token;
+        private int[] clusterOf; //position -> cluster
+        private int[] clusterSize;
+        private long nodes;
+
+        private ClusterSearch(GuestGroups groups, int[] order, CancellationToken token) {
+            this.groups = groups;
+            this.order = order;
+            this.token = token;
+            this.positionOf = new int[groups.count];
+            Arrays.fill(positionOf, -1);
+            for (int i = 0; i < order.length; i++) {
+                positionOf[order[i]] = i;
+            }
+        }
+
+        /**
+         * Method to put each group in the first cluster it fits in without an enemy
+         * @return the cluster for each position
+         */
+        private int[] firstFit() {
+            clusterOf = new int[order.length];
+            clusterSize = new int[order.length];
+            Arrays.fill(clusterOf, -1);
+            for (int i = 0; i < order.length; i++) {
+                int c = 0;
+                while (!fits(i, c)) {
+                    c++;
+                }
+                clusterOf[i] = c;
+                clusterSize[c] += groups.sizeOf[order[i]];
+            }
+            return clusterOf.clone();
+        }
+
+        /**
+         * Method to count the clusters used
+         */
+        private int count(int[] clusters) {
+            int most = -1;
+            for (int c : clusters) {
+                most = Math.max(most, c);
+            }
+            return most + 1;
+        }
+
+        /**
+         * Method to search for a way to use at most k clusters
+         * @return the cluster for each position, or null if none was found within NODE_LIMIT places
+         */
+        private int[] find(int k) {
+            clusterOf = new int[order.length];
+            clusterSize = new int[k];
+            Arrays.fill(clusterOf, -1);
+            nodes = 0;
+            return search(0, k, 0) ? clusterOf.clone() : null;
+        }
+
+        private boolean search(int position, int k, int used) {
+            if (position == order.length) {
+                return true;
+            }
+            if (++nodes > NODE_LIMIT || (nodes % STOP_CHECK == 0 && token.isCancelled())) {
+                return false;
+            }
+            int size = groups.sizeOf[order[position]];
+            for (int c = 0; c < Math.min(k, used + 1); c++) { //only the first empty cluster
+                if (fits(position, c)) {
+                    clusterOf[position] = c;
+                    clusterSize[c] += size;
+                    if (search(position + 1, k, Math.max(used, c + 1))) {
+                        return true;
+                    }
+                    clusterSize[c] -= size;
+                    clusterOf[position] = -1;
+                    if (nodes > NODE_LIMIT) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Method to check if the group at a position can go in a cluster: it has room, and none of their enemies
+         */
+        private boolean fits(int position, int cluster) {
+            if (clusterSize[cluster] + groups.sizeOf[order[position]] > groups.seatsPerTable) {
+                return false;
+            }
+            for (int enemy : groups.enemiesOf[order[position]]) {
+                int at = positionOf[enemy];
+                if (at >= 0 && clusterOf[at] == cluster) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A check, done before any searching, of the must-be-apart rules as a graph.
+ * Each must-be-together group is one node (a guest with no friend rules is a group of their own), and two groups are
+ * joined if anyone in one is an enemy of anyone in the other. Groups which are all joined to eachother (a clique)
+ * have to go on different tables, so a clique with more groups than there are tables left means some of those groups
+ * can't be seated at all. If leaving the smallest of them out leaves fewer guests than free seats, there is no solution,
+ * and the clique is kept so it can be reported.
+ *
+ * The clique is found greedily, starting from the groups with the most enemies, so a big clique can be missed, but anything
+ * it does find is a real proof. The DSATUR colouring gives an upper bound to go with it: if DSATUR manages with no more
+ * colours than there are tables, the apart rules on their own can be kept (the group sizes might still not fit).
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class EnemyGraphCheck {
+
+    private static final int MAX_STARTS = 64; //how many groups the greedy clique search starts from
+
+    private final List<Set<String>> groups; //node -> guests in the group, none of whom are at a full table
+    private final int[][] adjacent; //node -> nodes it has enemies in
+    private final int tables; //tables with a free seat
+    private List<Set<String>> clique;
+    private boolean mightFit;
+    private int colours = -1; //worked out by DSATUR the first time it is asked for
+
+    /**
+     * Constructor which runs the check for a set of guests who are about to be seated.
+     * @param guests the guests to be seated (any of them may already be in the plan)
+     * @param plan the plan they are to be seated in
+     * @param rules the rules they have to follow
+     * @param capacity the capacity check for the same guests, which says which groups can never be seated
+     * Runtime --> O(G + E + S*E') where G is the number of guests, E the number of apart rules between them, S the number
+     * of starts of the clique search and E' the number of rules between the groups it looks at
+     */
+    public EnemyGraphCheck(String[] guests, IPlan plan, IRules rules, CapacityCheck capacity){
+        int seatsPerTable = plan.getSeatsPerTable();
+        int freeTables = 0;
+        int freeSeats = 0;
+        for (int t = 0; t < plan.getNumberOfTables(); t++){
+            int free = seatsPerTable - plan.getNumberOfGuestsAtTable(t);
+            freeSeats += free;
+            if (free > 0) freeTables++;
+        }
+        this.tables = freeTables;
+        this.groups = new ArrayList<>();
+
+        Map<String, Integer> nodeOf = new HashMap<>(); //guest -> node
+        List<Boolean> pinned = new ArrayList<>(); //node -> true if some of the group is already seated, so it can't be left out
+        int seatableGuests = 0;
+        for (String guest : new LinkedHashSet<>(Arrays.asList(guests))){
+            if (nodeOf.containsKey(guest) || !capacity.isSeatable(guest)){
+                continue;
+            }
+            Set<String> group = new HashSet<>();
+            int waiting = 0;
+            boolean seated = false;
+            boolean atFullTable = false;
+            for (String member : rules.getGroupMembers(guest)){
+                int table = plan.getTableOf(member);
+                if (table < 0){
+                    waiting++;
+                }
+                else {
+                    seated = true;
+                    atFullTable |= plan.getNumberOfGuestsAtTable(table) == seatsPerTable;
+                }
+                group.add(member);
+            }
+            if (atFullTable){
+                continue; //they don't need a table any more
+            }
+            seatableGuests += waiting;
+            for (String member : group){
+                nodeOf.put(member, groups.size());
+            }
+            groups.add(group);
+            pinned.add(seated);
+        }
+
+        this.adjacent = new int[groups.size()][];
+        for (int node = 0; node < groups.size(); node++){
+            Set<Integer> joined = new HashSet<>();
+            for (String member : groups.get(node)){
+                for (String enemy : rules.getEnemies(member)){
+                    Integer other = nodeOf.get(enemy);
+                    if (other != null && other != node){
+                        joined.add(other);
+                    }
+                }
+            }
+            adjacent[node] = joined.stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+
+        this.clique = List.of();
+        this.mightFit = true;
+        int[] found = greedyClique();
+        if (found.length > tables && !canLeaveOut(found, pinned, seatableGuests - freeSeats)){
+            mightFit = false;
+            List<Set<String>> proof = new ArrayList<>();
+            for (int node : found){
+                proof.add(Collections.unmodifiableSet(groups.get(node)));
+            }
+            clique = Collections.unmodifiableList(proof);
+        }
+    }
+
+    /**
+     * Method to return the result of the check
+     * @return false if the apart rules definitely can't be kept, true if they might be
+     */
+    public boolean mightFit(){
+        return mightFit;
+    }
+
+    /**
+     * Method to return the clique which proved there was no solution
+     * @return the groups in the clique, where someone in each group is an enemy of someone in every other group,
+     * or an empty list if the check didn't find a problem
+     */
+    public List<Set<String>> getClique(){
+        return clique;
+    }
+
+    /**
+     * Method to work out an upper bound on how many tables the apart rules need, by colouring the groups with DSATUR:
+     * the group with the most differently-coloured enemies (ties going to the most enemies) is coloured next, with the
+     * lowest colour none of its enemies have.
+     * @return the number of colours DSATUR used, which is at least as many as the tables the apart rules need
+     * Runtime --> O((N + E) log E) where N is the number of groups and E the number of rules between them, the first time
+     */
+    public int getColoursNeeded(){
+        if (colours < 0){
+            colours = dsatur();
+        }
+        return colours;
+    }
+
+    /**
+     * Method to find a large clique greedily. From each of the groups with the most enemies, the clique is grown by
+     * adding whichever of the groups joined to everything so far has the most enemies, until there are none left.
+     * @return the nodes of the biggest clique found
+     */
+    private int[] greedyClique(){
+        int n = adjacent.length;
+        Integer[] byDegree = new Integer[n];
+        for (int node = 0; node < n; node++){
+            byDegree[node] = node;
+        }
+        Arrays.sort(byDegree, (a, b) -> Integer.compare(adjacent[b].length, adjacent[a].length));
+
+        int[] best = new int[0];
+        int[] mark = new int[n]; //mark[node] == stamp means node is joined to the group just added
+        int stamp = 0;
+        for (int s = 0; s < Math.min(n, MAX_STARTS); s++){
+            int start = byDegree[s];
+            if (adjacent[start].length + 1 <= best.length){
+                break; //sorted by degree, so no later start can beat it either
+            }
+            int[] clique = new int[adjacent[start].length + 1];
+            int size = 0;
+            clique[size++] = start;
+            int[] candidates = adjacent[start].clone();
+            int count = candidates.length;
+
+            while (count > 0){
+                int next = candidates[0];
+                for (int c = 1; c < count; c++){
+                    if (adjacent[candidates[c]].length > adjacent[next].length){
+                        next = candidates[c];
+                    }
+                }
+                clique[size++] = next;
+                stamp++;
+                for (int other : adjacent[next]){
+                    mark[other] = stamp;
+                }
+                int kept = 0;
+                for (int c = 0; c < count; c++){
+                    if (mark[candidates[c]] == stamp){
+                        candidates[kept++] = candidates[c];
+                    }
+                }
+                count = kept;
+            }
+            if (size > best.length){
+                best = Arrays.copyOf(clique, size);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Method to check if enough of a clique's groups can be left out for the rest to go on different tables,
+     * while still leaving enough guests to fill every free seat.
+     * @param clique the nodes of the clique
+     * @param pinned which nodes already have someone seated
+     * @param spareGuests how many more guests there are than free seats
+     * @return true if the smallest groups can be left out without running short of guests
+     */
+    private boolean canLeaveOut(int[] clique, List<Boolean> pinned, int spareGuests){
+        int[] sizes = new int[clique.length];
+        int removable = 0;
+        for (int node : clique){
+            if (!pinned.get(node)){
+                sizes[removable++] = groups.get(node).size();
+            }
+        }
+        int mustLeaveOut = clique.length - tables;
+        if (removable < mustLeaveOut){
+            return false;
+        }
+        Arrays.sort(sizes, 0, removable);
+        long leftOut = 0;
+        for (int i = 0; i < mustLeaveOut; i++){
+            leftOut += sizes[i];
+        }
+        return leftOut <= spareGuests;
+    }
+
+    /**
+     * Method to colour the groups with DSATUR, using a priority queue where each group is pushed again every time
+     * its saturation goes up, and the out-of-date entries are skipped when they come off the queue.
+     * @return the number of colours used
+     */
+    private int dsatur(){
+        int n = adjacent.length;
+        int[] colour = new int[n];
+        Arrays.fill(colour, -1);
+        BitSet[] neighbourColours = new BitSet[n];
+        int[] saturation = new int[n];
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1])
+                : Integer.compare(adjacent[b[0]].length, adjacent[a[0]].length)); //entries are {node, saturation}
+        for (int node = 0; node < n; node++){
+            neighbourColours[node] = new BitSet();
+            queue.add(new int[]{node, 0});
+        }
+
+        int used = 0;
+        while (!queue.isEmpty()){
+            int[] entry = queue.poll();
+            int node = entry[0];
+            if (colour[node] >= 0 || entry[1] != saturation[node]){
+                continue;
+            }
+            colour[node] = neighbourColours[node].nextClearBit(0);
+            used = Math.max(used, colour[node] + 1);
+            for (int other : adjacent[node]){
+                if (colour[other] < 0 && !neighbourColours[other].get(colour[node])){
+                    neighbourColours[other].set(colour[node]);
+                    saturation[other]++;
+                    queue.add(new int[]{other, saturation[other]});
+                }
+            }
+        }
+        return used;
+    }
+}
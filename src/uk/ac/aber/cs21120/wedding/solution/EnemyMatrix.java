@@ -0,0 +1,132 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.util.Arrays;
+
+/**
+ * A packed bit matrix of which guests are enemies, indexed by the guest IDs given out by a GuestRegistry.
+ * Row i has bit j set if guests i and j must be apart (and so row j has bit i set too).
+ * Because a table can also be held as a bitset of IDs (see BitsetPlan), checking a guest against a whole
+ * table is just an AND of their row with the table, 64 guests at a time.
+ *
+ * Rows only grow as far as the highest enemy they hold, so guests with few rules cost very little.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class EnemyMatrix {
+
+    private static final long[] NO_ENEMIES = new long[0];
+
+    private long[][] rows;
+    private int enemyPairs;
+
+    /**
+     * Constructor to create an empty matrix, where no-one is anyone's enemy.
+     */
+    public EnemyMatrix(){
+        this.rows = new long[16][];
+        Arrays.fill(this.rows, NO_ENEMIES);
+        this.enemyPairs = 0;
+    }
+
+    /**
+     * Method to make two guests enemies of eachother.
+     * @param a a guest's ID
+     * @param b another guest's ID
+     * Runtime --> O(1) (amortised, rows sometimes have to grow)
+     */
+    public void addEnemies(int a, int b){
+        if (!areEnemies(a, b)){
+            setBit(a, b);
+            setBit(b, a);
+            enemyPairs++;
+        }
+    }
+
+    /**
+     * Method to check if two guests are enemies.
+     * @param a a guest's ID
+     * @param b another guest's ID
+     * @return true if they must be apart, false if not (or if either ID is -1, meaning the guest has no rules)
+     * Runtime --> O(1)
+     */
+    public boolean areEnemies(int a, int b){
+        if (a < 0 || b < 0 || a >= rows.length){
+            return false;
+        }
+        long[] row = rows[a];
+        int word = b >>> 6;
+        return word < row.length && (row[word] & (1L << b)) != 0;
+    }
+
+    /**
+     * Method to check if a guest has any enemies among a set of guests held as a bitset.
+     * This is the word-parallel check: each long in the guest's row is ANDed with the same long of the set,
+     * which the JIT is free to unroll and vectorise.
+     * @param id the guest's ID
+     * @param guests a bitset of guest IDs
+     * @return true if at least one of the guests is an enemy
+     * Runtime --> O(W) where W is the number of words in the shorter of the two bitsets
+     */
+    public boolean hasEnemyIn(int id, long[] guests){
+        if (id < 0 || id >= rows.length){
+            return false;
+        }
+        long[] row = rows[id];
+        int words = Math.min(row.length, guests.length);
+        long found = 0;
+        for (int w = 0; w < words; w++){
+            found |= row[w] & guests[w]; //no early exit, so the loop stays branch-free
+        }
+        return found != 0;
+    }
+
+    /**
+     * Method to count how many enemies a guest has
+     * @param id the guest's ID
+     * @return the number of guests who must be apart from them
+     * Runtime --> O(W) where W is the number of words in the guest's row
+     */
+    public int degreeOf(int id){
+        if (id < 0 || id >= rows.length){
+            return 0;
+        }
+        int degree = 0;
+        for (long word : rows[id]){
+            degree += Long.bitCount(word);
+        }
+        return degree;
+    }
+
+    /**
+     * Method to return a guest's row of the matrix, for classes in this package that want to walk it themselves.
+     * This is the matrix's own array, so it MUST NOT be modified. It may be shorter than other bitsets, in which case
+     * the missing words are all zero.
+     * @param id the guest's ID
+     * @return the bitset of the guest's enemies
+     */
+    long[] rowOf(int id){
+        return id < 0 || id >= rows.length ? NO_ENEMIES : rows[id];
+    }
+
+    /**
+     * Method to check if there are any enemies at all
+     * @return true if no must-be-apart rules have been added
+     */
+    public boolean isEmpty(){
+        return enemyPairs == 0;
+    }
+
+    private void setBit(int row, int column){
+        if (row >= rows.length){
+            int oldLength = rows.length;
+            rows = Arrays.copyOf(rows, Math.max(row + 1, oldLength * 2));
+            Arrays.fill(rows, oldLength, rows.length, NO_ENEMIES);
+        }
+        int word = column >>> 6;
+        if (word >= rows[row].length){
+            rows[row] = Arrays.copyOf(rows[row], Math.max(word + 1, rows[row].length * 2));
+        }
+        rows[row][word] |= 1L << column;
+    }
+}
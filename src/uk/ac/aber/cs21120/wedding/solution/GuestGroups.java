@@ -0,0 +1,191 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The guests of a problem split up into their must-be-together groups, for the searches which give a whole group a
+ * place at once (see OptimisingSolver and PlanEnumerator). The groups are numbered from 0: first the ones which can be
+ * put anywhere, biggest first and then the ones with the most preferences riding on them, then the ones which can't
+ * be moved, because someone in them is already seated or because they can never be seated (see CapacityCheck).
+ *
+ * A group's place is a table number, or the bench (numTables) if it isn't seated.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+final class GuestGroups {
+
+    final int numTables;
+    final int seatsPerTable;
+    final int bench;
+    final int count; //how many groups there are
+    final int movable; //how many groups can be given any place, these are groups 0 to movable - 1
+    final String[][] membersOf; //group -> the guests in it who aren't already seated
+    final int[] sizeOf; //group -> how many guests are in it, seated or not
+    final int[] fixedPlaceOf; //group -> the place a group which can't be moved has, or -1 if it can be moved
+    final int[][] enemiesOf; //group -> the groups its members have enemies in
+    final int[] inside; //group -> what its members sitting together adds to the score
+    final int[][] neighboursOf; //group -> the groups its members have soft rules with
+    final int[][] weightsOf; //group -> the total weight of those rules, for each of neighboursOf
+    private final boolean seatedGroupsWhole; //false if a seated guest's group is split between tables, or has someone missing
+
+    /**
+     * Constructor which splits up the guests on the list and the guests already in the plan.
+     * @param guests the guests to be seated (any of them may already be in the plan)
+     * @param plan the plan they are to be seated in
+     * @param rules the rules they have to follow
+     * @param capacity the capacity check already done for them, which says who can never be seated
+     * Runtime --> O(G + R) plus the sort, where G is the number of guests and R the number of rules they are in
+     */
+    GuestGroups(String[] guests, IPlan plan, IRules rules, CapacityCheck capacity) {
+        this.numTables = plan.getNumberOfTables();
+        this.seatsPerTable = plan.getSeatsPerTable();
+        this.bench = numTables;
+        Set<String> alreadySeated = new LinkedHashSet<>();
+        for (int t = 0; t < numTables; t++) {
+            alreadySeated.addAll(plan.getGuestsAtTable(t));
+        }
+        Map<String, Integer> groupNumbers = new HashMap<>(); //representative -> group
+        Map<String, Integer> groupOfGuest = new HashMap<>();
+        List<List<String>> groups = new ArrayList<>();
+        List<String> everyone = new ArrayList<>(alreadySeated);
+        everyone.addAll(new LinkedHashSet<>(Arrays.asList(guests)));
+        for (String guest : everyone) {
+            if (!groupOfGuest.containsKey(guest)) {
+                int group = groupNumbers.computeIfAbsent(rules.getGroupOf(guest), representative -> {
+                    groups.add(new ArrayList<>());
+                    return groups.size() - 1;
+                });
+                groupOfGuest.put(guest, group);
+                groups.get(group).add(guest);
+            }
+        }
+
+        int n = groups.size();
+        int[] foundAt = new int[n];
+        boolean[] canMove = new boolean[n];
+        long[] weightOf = new long[n];
+        int moving = 0;
+        boolean whole = true;
+        for (int g = 0; g < n; g++) {
+            String first = groups.get(g).get(0); //the seated guests came first, so this is one of them if anyone is
+            foundAt[g] = plan.getTableOf(first);
+            canMove[g] = capacity.isSeatable(first) && foundAt[g] < 0;
+            if (foundAt[g] >= 0 && groups.get(g).size() != rules.getGroupSize(first)) {
+                whole = false;
+            }
+            for (String guest : groups.get(g)) {
+                int table = plan.getTableOf(guest);
+                if (table >= 0 && table != foundAt[g]) {
+                    whole = false;
+                }
+                for (int weight : rules.getPreferences(guest).values()) {
+                    weightOf[g] += Math.abs(weight);
+                }
+            }
+            if (canMove[g]) {
+                moving++;
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int g = 0; g < n; g++) {
+            order[g] = g;
+        }
+        Arrays.sort(order, (a, b) -> canMove[a] != canMove[b] ? (canMove[a] ? -1 : 1)
+                : groups.get(a).size() != groups.get(b).size() ? groups.get(b).size() - groups.get(a).size()
+                : Long.compare(weightOf[b], weightOf[a]));
+        int[] numberOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            numberOf[order[i]] = i;
+        }
+
+        this.seatedGroupsWhole = whole;
+        this.count = n;
+        this.movable = moving;
+        this.membersOf = new String[n][];
+        this.sizeOf = new int[n];
+        this.fixedPlaceOf = new int[n];
+        this.enemiesOf = new int[n][];
+        this.inside = new int[n];
+        this.neighboursOf = new int[n][];
+        this.weightsOf = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int g = order[i];
+            List<String> unseated = new ArrayList<>();
+            Map<Integer, Integer> weights = new HashMap<>();
+            Set<Integer> enemyGroups = new LinkedHashSet<>();
+            for (String guest : groups.get(g)) {
+                if (!alreadySeated.contains(guest)) {
+                    unseated.add(guest);
+                }
+                for (Map.Entry<String, Integer> preference : rules.getPreferences(guest).entrySet()) {
+                    Integer other = groupOfGuest.get(preference.getKey());
+                    if (other != null) {
+                        weights.merge(numberOf[other], preference.getValue(), Integer::sum);
+                    }
+                }
+                for (String enemy : rules.getEnemies(guest)) {
+                    Integer other = groupOfGuest.get(enemy);
+                    if (other != null) {
+                        enemyGroups.add(numberOf[other]);
+                    }
+                }
+            }
+            membersOf[i] = unseated.toArray(new String[0]);
+            sizeOf[i] = groups.get(g).size();
+            fixedPlaceOf[i] = canMove[g] ? -1 : foundAt[g] < 0 ? bench : foundAt[g];
+            enemiesOf[i] = enemyGroups.stream().mapToInt(Integer::intValue).toArray();
+            Integer itself = weights.remove(i);
+            inside[i] = itself == null ? 0 : itself / 2; //every pair inside the group was counted from both sides
+            neighboursOf[i] = new int[weights.size()];
+            weightsOf[i] = new int[weights.size()];
+            int k = 0;
+            for (Map.Entry<Integer, Integer> weight : weights.entrySet()) {
+                neighboursOf[i][k] = weight.getKey();
+                weightsOf[i][k++] = weight.getValue();
+            }
+        }
+    }
+
+    /**
+     * Method to check that the groups which can't be moved fit at the tables they are at, without any enemies there,
+     * and that nobody already seated has a groupmate at another table or missing from the guest list
+     * @return false if they don't, in which case there is no solution
+     */
+    boolean fixedGroupsFit() {
+        if (!seatedGroupsWhole) {
+            return false;
+        }
+        int[] tableSize = new int[numTables];
+        int[] placeOf = new int[count];
+        Arrays.fill(placeOf, -1);
+        for (int group = movable; group < count; group++) {
+            placeOf[group] = fixedPlaceOf[group];
+        }
+        for (int group = movable; group < count; group++) {
+            int place = placeOf[group];
+            if (place == bench) {
+                continue;
+            }
+            tableSize[place] += sizeOf[group];
+            if (tableSize[place] > seatsPerTable) {
+                return false;
+            }
+            for (int enemy : enemiesOf[group]) {
+                if (placeOf[enemy] == place) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
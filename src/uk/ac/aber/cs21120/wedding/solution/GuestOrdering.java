@@ -0,0 +1,148 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Strategies for the order in which the Solver considers guests (the variable ordering of the search).
+ * The Solver seats guests in this order, so the guests placed first are the ones the strategy puts first.
+ * Apart from INPUT_ORDER, every strategy keeps the members of a must-be-together group next to eachother,
+ * at the position of the group's highest-priority member, so a group tends to be seated in one go.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public enum GuestOrdering {
+
+    /**
+     * The guests in the order they were given to the Solver.
+     */
+    INPUT_ORDER,
+
+    /**
+     * The guests with the fewest tables they could legally join in the starting plan go first, with ties
+     * going to whoever has the most rules (enemies plus the size of their group).
+     */
+    MOST_CONSTRAINED,
+
+    /**
+     * The guests with the most enemies go first.
+     */
+    ENEMY_DEGREE,
+
+    /**
+     * The guests in the largest must-be-together groups go first, with ties going to whoever has the most enemies.
+     */
+    LARGEST_GROUP;
+
+    /**
+     * Method to put a list of guests into this strategy's order.
+     * @param guests the guests to order, which is not modified
+     * @param plan the plan the guests are about to be seated in (some may already be seated)
+     * @param rules the rules the guests have to follow
+     * @return a new array holding the same guests in this strategy's order
+     * Runtime --> O(G log G + R) where G is the number of guests and R is the number of rules involving them
+     */
+    public String[] order(String[] guests, IPlan plan, IRules rules){
+        if (this == INPUT_ORDER){
+            return guests.clone();
+        }
+
+        int n = guests.length;
+        long[] priority = new long[n]; //higher goes first
+        Map<String, Integer> groupIds = new HashMap<>(); //group representative -> number of the group, in the order the groups first appear
+        int[] group = new int[n];
+        int freeTables = countFreeTables(plan);
+
+        for (int i = 0; i < n; i++){
+            Set<String> enemies = rules.getEnemies(guests[i]);
+            int groupSize = rules.getGroupSize(guests[i]);
+            group[i] = groupIds.computeIfAbsent(rules.getGroupOf(guests[i]), g -> groupIds.size());
+
+            switch (this){
+                case MOST_CONSTRAINED:
+                    priority[i] = ((long) -legalTables(guests[i], enemies, freeTables, plan, rules) << 32) + enemies.size() + groupSize;
+                    break;
+                case ENEMY_DEGREE:
+                    priority[i] = enemies.size();
+                    break;
+                case LARGEST_GROUP:
+                    priority[i] = ((long) groupSize << 32) + enemies.size();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        long[] groupPriority = new long[groupIds.size()];
+        Arrays.fill(groupPriority, Long.MIN_VALUE);
+        for (int i = 0; i < n; i++){
+            groupPriority[group[i]] = Math.max(groupPriority[group[i]], priority[i]);
+        }
+
+        Integer[] positions = new Integer[n];
+        for (int i = 0; i < n; i++){
+            positions[i] = i;
+        }
+        Arrays.sort(positions, (a, b) -> { //Arrays.sort on objects is stable, so ties keep the input order
+            int byGroup = Long.compare(groupPriority[group[b]], groupPriority[group[a]]);
+            if (byGroup != 0) return byGroup;
+            int sameGroup = Integer.compare(group[a], group[b]);
+            if (sameGroup != 0) return sameGroup;
+            return Long.compare(priority[b], priority[a]);
+        });
+
+        String[] ordered = new String[n];
+        for (int i = 0; i < n; i++){
+            ordered[i] = guests[positions[i]];
+        }
+        return ordered;
+    }
+
+    /**
+     * Method to count the tables which still have a free seat
+     */
+    private static int countFreeTables(IPlan plan){
+        int free = 0;
+        for (int t = 0; t < plan.getNumberOfTables(); t++){
+            if (plan.getNumberOfGuestsAtTable(t) < plan.getSeatsPerTable()){
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Method to count how many tables a guest could legally join in the plan as it is.
+     * If someone from their group is already seated, that is the only table they can go to,
+     * otherwise it is every table with a free seat apart from the ones their enemies are at.
+     */
+    private static int legalTables(String guest, Set<String> enemies, int freeTables, IPlan plan, IRules rules){
+        if (plan.isGuestPlaced(guest)){
+            return 0;
+        }
+        for (String member : rules.getGroupMembers(guest)){
+            if (plan.isGuestPlaced(member)){
+                return 1;
+            }
+        }
+        if (enemies.isEmpty()){
+            return freeTables;
+        }
+        boolean[] blocked = new boolean[plan.getNumberOfTables()];
+        int legal = freeTables;
+        for (String enemy : enemies){
+            int table = plan.getTableOf(enemy);
+            if (table >= 0 && !blocked[table] && plan.getNumberOfGuestsAtTable(table) < plan.getSeatsPerTable()){
+                blocked[table] = true;
+                legal--;
+            }
+        }
+        return legal;
+    }
+}
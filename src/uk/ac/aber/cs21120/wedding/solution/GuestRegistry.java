@@ -0,0 +1,75 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class used to give every guest name a dense integer ID (0, 1, 2...) in the order they are first seen.
+ * Once a name has been interned it keeps the same ID for the lifetime of the registry, so the IDs can be used
+ * to index plain arrays and bitsets instead of hashing the name string every time.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class GuestRegistry {
+
+    private final Map<String, Integer> ids; //name -> id, this is the only place a name gets hashed
+    private final List<String> names; //id -> name, so the IDs can be turned back into guests
+
+    /**
+     * Constructor to create an empty registry.
+     */
+    public GuestRegistry(){
+        this.ids = new HashMap<>();
+        this.names = new ArrayList<>();
+    }
+
+    /**
+     * Method to get the ID of a guest, giving them the next free ID if they haven't been seen before.
+     * @param guest the name of the guest
+     * @return the ID of the guest
+     * Runtime --> O(1)
+     */
+    public int intern(String guest){
+        Integer id = ids.get(guest);
+        if (id == null){
+            id = names.size();
+            ids.put(guest, id);
+            names.add(guest);
+        }
+        return id;
+    }
+
+    /**
+     * Method to get the ID of a guest without registering them.
+     * @param guest the name of the guest
+     * @return the ID of the guest, or -1 if they have never been interned
+     * Runtime --> O(1)
+     */
+    public int idOf(String guest){
+        Integer id = ids.get(guest);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Method to turn an ID back into the guest's name
+     * @param id the ID of the guest
+     * @return the name of the guest
+     * @throws IndexOutOfBoundsException if no guest has been given that ID
+     * Runtime --> O(1)
+     */
+    public String nameOf(int id) throws IndexOutOfBoundsException{
+        return names.get(id);
+    }
+
+    /**
+     * Method to return how many guests have been interned, which is also one more than the highest ID given out
+     * @return the number of guests in the registry
+     * Runtime --> O(1)
+     */
+    public int size(){
+        return names.size();
+    }
+}
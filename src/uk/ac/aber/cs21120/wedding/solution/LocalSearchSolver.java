@@ -0,0 +1,653 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * A solver for weddings which are too big for the backtracking Solver, which uses local search instead of trying every plan.
+ * Every free seat is filled straight away (whole groups first, then whoever is left), so the plan starts out full but
+ * probably breaking some rules, then guests are swapped between tables, or with guests who haven't got a seat,
+ * until no rules are broken.
+ *
+ * The score of a plan is how many rules it breaks: pairs of enemies at the same table, plus pairs of groupmates who
+ * aren't in the same place. How many enemies and groupmates every guest has at every table is kept up to date as guests
+ * move, so how much a swap would change the score is worked out in O(1).
+ * Each step picks a random guest who is breaking a rule (the min-conflicts heuristic), finds the table it would be best
+ * to move them to, and swaps them with the guest there it is best to swap them with:
+ *  - a guest who has just been moved off a table can't be moved back onto it for a few steps (the tabu tenure),
+ *    unless that would give the best score so far, so the search doesn't keep undoing its own moves
+ *  - a swap which makes the score worse is only made with a probability of e^(-change/temperature) (simulated annealing).
+ *    The temperature cools after every step, and is turned back up if the best score hasn't got any better for a while.
+ *
+ * Local search is incomplete: it can find a solution but it can never prove there isn't one, so it gives up after
+ * a maximum number of steps. It only says a plan is UNSATISFIABLE when the checks done before searching prove it.
+ * The plan is only changed once a solution has been found, and only if isPlanOK agrees with it.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class LocalSearchSolver extends AbstractSolver {
+
+    private static final long RANDOM_SEED = 20240301L; //fixed, so that the same problem is always solved the same way
+    private static final int REHEAT_AFTER = 10_000; //steps without a better best score before the temperature is turned back up
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private int tabuTenure;
+    private double startTemperature;
+    private double coolingRate;
+    private long maxSteps;
+    private long seed;
+    private long steps;
+    private List<Set<String>> unsatisfiableClique;
+
+    //the state of the search, by guest ID (the guests already in the plan first, then the rest of the guest list)
+    private String[] names; //ID -> guest
+    private boolean[] fixed; //ID -> true if the guest can't be moved (already seated, or never seatable)
+    private int[][] enemiesOf; //ID -> IDs of their enemies
+    private int[][] groupmatesOf; //ID -> IDs of the rest of their group
+    private int[] groupOf; //ID -> a number for their group
+    private EnemyMatrix enemyMatrix;
+    private int places; //the tables, then the bench: a place for the guests who haven't got a seat
+    private int bench;
+    private int[][] members; //place -> IDs of the guests there, in the first sizes[place] slots
+    private int[] sizes; //place -> how many guests are there
+    private int[] movableIn; //place -> how many of the guests there can be moved
+    private int[] placeOf; //ID -> where they are
+    private int[] slotOf; //ID -> where they are in members[placeOf]
+    private int[] enemyCount; //ID * places + place -> how many of their enemies are there
+    private int[] friendCount; //ID * places + place -> how many of their groupmates are there
+    private long[] tabuUntil; //ID * places + place -> the step they can be moved back there after
+    private int[] conflicted; //IDs of the movable guests who are breaking a rule
+    private int[] conflictedIndex; //ID -> where they are in conflicted, or -1
+    private int conflictedSize;
+    private int score;
+
+    /**
+     * Constructor for the local search solver.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan object to add the guests to
+     * @param rules  holds the rules object to check against the plan
+     */
+    public LocalSearchSolver(String[] guests, IPlan plan, IRules rules) {
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.tabuTenure = 10;
+        this.startTemperature = 0.5;
+        this.coolingRate = 0.999;
+        this.maxSteps = 1_000_000;
+        this.seed = RANDOM_SEED;
+        this.unsatisfiableClique = List.of();
+    }
+
+    /**
+     * Method to set how many steps a guest can't be moved back onto a table they have just been moved off
+     * @param tabuTenure the number of steps, or 0 to let guests move straight back. It is 10 by default.
+     * @throws IllegalArgumentException if tabuTenure is negative
+     */
+    public void setTabuTenure(int tabuTenure) throws IllegalArgumentException {
+        if (tabuTenure < 0) {
+            throw new IllegalArgumentException("The tabu tenure can't be negative.");
+        }
+        this.tabuTenure = tabuTenure;
+    }
+
+    /**
+     * Method to set how likely the search is to make a swap which breaks more rules than it fixes.
+     * Such a swap is made with a probability of e^(-change/temperature), and after each step the temperature is
+     * multiplied by the cooling rate, so the search wanders a lot at first then settles down.
+     * @param startTemperature the temperature to start at (and go back up to), or 0 to never make a swap worse. It is 0.5 by default.
+     * @param coolingRate what to multiply the temperature by each step, more than 0 and at most 1. It is 0.999 by default.
+     * @throws IllegalArgumentException if the temperature is negative or the cooling rate is out of range
+     */
+    public void setAnnealing(double startTemperature, double coolingRate) throws IllegalArgumentException {
+        if (!(startTemperature >= 0)) {
+            throw new IllegalArgumentException("The temperature can't be negative.");
+        }
+        if (!(coolingRate > 0 && coolingRate <= 1)) {
+            throw new IllegalArgumentException("The cooling rate has to be more than 0 and at most 1.");
+        }
+        this.startTemperature = startTemperature;
+        this.coolingRate = coolingRate;
+    }
+
+    /**
+     * Method to set how many steps the search can take before it gives up
+     * @param maxSteps the number of steps. It is a million by default.
+     * @throws IllegalArgumentException if maxSteps is negative
+     */
+    public void setMaxSteps(long maxSteps) throws IllegalArgumentException {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("The number of steps can't be negative.");
+        }
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Method to set the seed of the random choices the search makes, so a different seed gives a different search
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Method to return how many steps the last call to solve() took
+     * @return the number of swaps it tried
+     */
+    public long getStepsTaken() {
+        return steps;
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, see Solver.getUnsatisfiableClique()
+     * @return the groups of guests who all have to be apart, or an empty list
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Method for solving the problem with local search.
+     * The same checks as the Solver are done first, then every free seat is filled and guests are swapped until no
+     * rules are broken. The token is checked before every step.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if the checks proved there isn't one,
+     * GAVE_UP if the steps ran out, or TIMED_OUT or CANCELLED if the search was stopped first
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) {
+        steps = 0;
+        unsatisfiableClique = List.of();
+        CapacityCheck capacity = new CapacityCheck(guests, plan, rules);
+        if (!capacity.mightFit()) {
+            return SolveResult.UNSATISFIABLE;
+        }
+        EnemyGraphCheck enemyGraph = new EnemyGraphCheck(guests, plan, rules, capacity);
+        if (!enemyGraph.mightFit()) {
+            unsatisfiableClique = enemyGraph.getClique();
+            return SolveResult.UNSATISFIABLE;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        try {
+            if (!setUp(capacity, random)) { //the guests who can't be moved already break a rule
+                return SolveResult.UNSATISFIABLE;
+            }
+            return search(token, random);
+        }
+        finally {
+            members = null; //the search state can be big, so it isn't kept between calls
+            enemyCount = null;
+            friendCount = null;
+            tabuUntil = null;
+        }
+    }
+
+    /**
+     * Method to give every guest an ID, look up their enemies and groupmates, and seat them for the first time
+     * @return false if the guests who can't be moved already break a rule between them, true if not
+     */
+    private boolean setUp(CapacityCheck capacity, SplittableRandom random) {
+        int numTables = plan.getNumberOfTables();
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> everyone = new ArrayList<>();
+        for (int t = 0; t < numTables; t++) {
+            for (String guest : plan.getGuestsAtTable(t)) {
+                ids.put(guest, everyone.size());
+                everyone.add(guest);
+            }
+        }
+        int seated = everyone.size();
+        for (String guest : new LinkedHashSet<>(Arrays.asList(guests))) {
+            if (!ids.containsKey(guest)) {
+                ids.put(guest, everyone.size());
+                everyone.add(guest);
+            }
+        }
+        int n = everyone.size();
+        names = everyone.toArray(new String[0]);
+        places = numTables + 1;
+        bench = numTables;
+
+        fixed = new boolean[n];
+        enemiesOf = new int[n][];
+        groupmatesOf = new int[n][];
+        groupOf = new int[n];
+        enemyMatrix = new EnemyMatrix();
+        Map<String, Integer> groupNumbers = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            fixed[i] = i < seated || !capacity.isSeatable(names[i]);
+            groupOf[i] = groupNumbers.computeIfAbsent(rules.getGroupOf(names[i]), group -> groupNumbers.size());
+            enemiesOf[i] = idsOf(rules.getEnemies(names[i]), ids, -1);
+            for (int enemy : enemiesOf[i]) {
+                enemyMatrix.addEnemies(i, enemy);
+            }
+            Set<String> group = rules.getGroupMembers(names[i]);
+            groupmatesOf[i] = idsOf(group, ids, i);
+            if (groupmatesOf[i].length != group.size() - 1 && i < seated) { //seated, but with a groupmate who can never join them
+                return false;
+            }
+        }
+
+        members = new int[places][];
+        sizes = new int[places];
+        movableIn = new int[places];
+        for (int t = 0; t < numTables; t++) {
+            members[t] = new int[plan.getSeatsPerTable()];
+        }
+        members[bench] = new int[n];
+        placeOf = new int[n];
+        slotOf = new int[n];
+        Arrays.fill(placeOf, -1);
+        enemyCount = new int[n * places];
+        friendCount = new int[n * places];
+        for (int i = 0; i < n; i++) {
+            if (i < seated) {
+                put(i, plan.getTableOf(names[i]));
+            }
+            else if (fixed[i]) {
+                put(i, bench);
+            }
+        }
+        seatGroups(random);
+
+        tabuUntil = new long[n * places];
+        conflicted = new int[n];
+        conflictedIndex = new int[n];
+        Arrays.fill(conflictedIndex, -1);
+        conflictedSize = 0;
+        int brokenByFixed = 0;
+        score = 0;
+        for (int i = 0; i < n; i++) {
+            score += conflictsOf(i);
+            if (fixed[i]) {
+                brokenByFixed += conflictsOf(i, true);
+            }
+            refresh(i);
+        }
+        score /= 2; //every broken rule was counted once for each of the two guests in it
+        return brokenByFixed == 0;
+    }
+
+    /**
+     * Method to turn a set of guests into the IDs of the ones who have one, leaving out a guest
+     */
+    private static int[] idsOf(Set<String> guests, Map<String, Integer> ids, int leaveOut) {
+        int[] result = new int[guests.size()];
+        int size = 0;
+        for (String guest : guests) {
+            Integer id = ids.get(guest);
+            if (id != null && id != leaveOut) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Method to fill every free seat for the first time. The groups are taken in a random order and each one goes to
+     * the table their seated groupmates are at, or else the first table with room for all of them and none of their
+     * enemies, or else the first table with room. Whoever is left over fills the seats left, in a random order.
+     */
+    private void seatGroups(SplittableRandom random) {
+        int n = names.length;
+        int seats = plan.getSeatsPerTable();
+        List<List<Integer>> groups = new ArrayList<>();
+        Map<Integer, List<Integer>> byGroup = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (!fixed[i]) {
+                byGroup.computeIfAbsent(groupOf[i], group -> {
+                    List<Integer> list = new ArrayList<>();
+                    groups.add(list);
+                    return list;
+                }).add(i);
+            }
+        }
+        shuffle(groups, random);
+
+        List<Integer> leftOver = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            int table = -1;
+            for (int mate : groupmatesOf[group.get(0)]) {
+                if (fixed[mate] && placeOf[mate] != bench) {
+                    table = placeOf[mate];
+                }
+            }
+            if (table < 0) {
+                int anyRoom = -1;
+                for (int t = 0; t < bench && table < 0; t++) {
+                    if (sizes[t] + group.size() <= seats) {
+                        if (anyRoom < 0) anyRoom = t;
+                        boolean peaceful = true;
+                        for (int guest : group) {
+                            peaceful &= enemyCount[guest * places + t] == 0;
+                        }
+                        if (peaceful) table = t;
+                    }
+                }
+                if (table < 0) table = anyRoom;
+            }
+            if (table >= 0 && sizes[table] + group.size() <= seats) {
+                for (int guest : group) {
+                    put(guest, table);
+                }
+            }
+            else {
+                leftOver.addAll(group);
+            }
+        }
+
+        shuffle(leftOver, random);
+        int next = 0;
+        for (int t = 0; t < bench; t++) {
+            while (sizes[t] < seats && next < leftOver.size()) {
+                put(leftOver.get(next++), t);
+            }
+        }
+        while (next < leftOver.size()) {
+            put(leftOver.get(next++), bench);
+        }
+    }
+
+    private static <T> void shuffle(List<T> list, SplittableRandom random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            T swapped = list.get(i);
+            list.set(i, list.get(j));
+            list.set(j, swapped);
+        }
+    }
+
+    /**
+     * Method to put a guest somewhere for the first time, telling their enemies and groupmates
+     */
+    private void put(int guest, int place) {
+        placeOf[guest] = place;
+        slotOf[guest] = sizes[place];
+        members[place][sizes[place]++] = guest;
+        if (!fixed[guest]) {
+            movableIn[place]++;
+        }
+        for (int enemy : enemiesOf[guest]) {
+            enemyCount[enemy * places + place]++;
+        }
+        for (int mate : groupmatesOf[guest]) {
+            friendCount[mate * places + place]++;
+        }
+    }
+
+    /**
+     * Method to run the search until no rules are broken, the steps run out or the token is cancelled
+     */
+    private SolveResult search(CancellationToken token, SplittableRandom random) {
+        double temperature = startTemperature;
+        int best = score;
+        long improvedAt = 0;
+        while (true) {
+            if (score == 0) {
+                if (writePlan()) {
+                    return SolveResult.SOLVED;
+                }
+                kick(random); //the rules object has rules that can't be counted, so move on and keep looking
+            }
+            if (steps >= maxSteps) {
+                return SolveResult.GAVE_UP;
+            }
+            if (token.isCancelled()) {
+                return stoppedResult(token);
+            }
+            steps++;
+            step(random, temperature, best);
+
+            if (score < best) {
+                best = score;
+                improvedAt = steps;
+            }
+            else if (steps - improvedAt > REHEAT_AFTER) {
+                temperature = startTemperature;
+                improvedAt = steps;
+            }
+            temperature *= coolingRate;
+        }
+    }
+
+    /**
+     * Method to take one step of the search: a guest who is breaking a rule is picked at random, the place it would be
+     * best to move them to is found, then the guest there who it would be best to swap them with.
+     * Ties are broken at random, and tabu moves are only allowed if they would beat the best score so far.
+     */
+    private void step(SplittableRandom random, double temperature, int best) {
+        if (conflictedSize == 0) { //only after a kick() that couldn't find anyone to swap
+            return;
+        }
+        int guest = conflicted[random.nextInt(conflictedSize)];
+        int from = placeOf[guest];
+
+        int to = -1;
+        int moveChange = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int place = 0; place < places; place++) {
+            if (place == from || movableIn[place] == 0) {
+                continue;
+            }
+            int change = moveChange(guest, from, place);
+            if (isTabu(guest, place) && score + change >= best) {
+                continue;
+            }
+            if (change < moveChange) {
+                to = place;
+                moveChange = change;
+                ties = 1;
+            }
+            else if (change == moveChange && random.nextInt(++ties) == 0) {
+                to = place;
+            }
+        }
+        if (to < 0) {
+            return;
+        }
+
+        int partner = -1;
+        int swapChange = Integer.MAX_VALUE;
+        ties = 0;
+        for (int slot = 0; slot < sizes[to]; slot++) {
+            int other = members[to][slot];
+            if (fixed[other]) {
+                continue;
+            }
+            int change = moveChange + moveChange(other, to, from) + pairChange(guest, other, from, to);
+            if (isTabu(other, from) && score + change >= best) {
+                continue;
+            }
+            if (change < swapChange) {
+                partner = other;
+                swapChange = change;
+                ties = 1;
+            }
+            else if (change == swapChange && random.nextInt(++ties) == 0) {
+                partner = other;
+            }
+        }
+        if (partner < 0) {
+            return;
+        }
+        if (swapChange > 0 && random.nextDouble() >= Math.exp(-swapChange / temperature)) {
+            return;
+        }
+        swap(guest, partner, swapChange);
+        tabuUntil[guest * places + from] = steps + tabuTenure;
+        tabuUntil[partner * places + to] = steps + tabuTenure;
+    }
+
+    /**
+     * Method to swap two random movable guests in different places, to get the search away from a plan isPlanOK didn't like
+     */
+    private void kick(SplittableRandom random) {
+        int n = names.length;
+        for (int tries = 0; tries < 100; tries++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (!fixed[a] && !fixed[b] && placeOf[a] != placeOf[b]) {
+                swap(a, b, moveChange(a, placeOf[a], placeOf[b]) + moveChange(b, placeOf[b], placeOf[a])
+                        + pairChange(a, b, placeOf[a], placeOf[b]));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Method to work out how the score would change if a guest moved, counting everyone else as staying where they are
+     * Runtime --> O(1)
+     */
+    private int moveChange(int guest, int from, int to) {
+        return enemiesAt(guest, to) - enemiesAt(guest, from)
+                + friendCount[guest * places + from] - friendCount[guest * places + to];
+    }
+
+    /**
+     * Method to correct the sum of two guests' moveChanges when they swap places with eachother, since each of them
+     * counted the other as staying where they were
+     * Runtime --> O(1)
+     */
+    private int pairChange(int a, int b, int placeOfA, int placeOfB) {
+        int change = 0;
+        if (enemyMatrix.areEnemies(a, b)) {
+            if (placeOfA != bench) change--;
+            if (placeOfB != bench) change--;
+        }
+        if (groupOf[a] == groupOf[b]) {
+            change += 2;
+        }
+        return change;
+    }
+
+    private int enemiesAt(int guest, int place) {
+        return place == bench ? 0 : enemyCount[guest * places + place]; //it doesn't matter who is on the bench with who
+    }
+
+    private boolean isTabu(int guest, int place) {
+        return tabuUntil[guest * places + place] > steps;
+    }
+
+    /**
+     * Method to swap two guests, updating the counts of everyone they are enemies or groupmates with
+     * Runtime --> O(E + M) where E and M are how many enemies and groupmates the two guests have
+     */
+    private void swap(int a, int b, int change) {
+        int placeOfA = placeOf[a];
+        int placeOfB = placeOf[b];
+        members[placeOfA][slotOf[a]] = b;
+        members[placeOfB][slotOf[b]] = a;
+        int slot = slotOf[a];
+        slotOf[a] = slotOf[b];
+        slotOf[b] = slot;
+        placeOf[a] = placeOfB;
+        placeOf[b] = placeOfA;
+        score += change;
+
+        moveCounts(a, placeOfA, placeOfB);
+        moveCounts(b, placeOfB, placeOfA);
+        refresh(a);
+        refresh(b);
+    }
+
+    private void moveCounts(int guest, int from, int to) {
+        for (int enemy : enemiesOf[guest]) {
+            enemyCount[enemy * places + from]--;
+            enemyCount[enemy * places + to]++;
+            refresh(enemy);
+        }
+        for (int mate : groupmatesOf[guest]) {
+            friendCount[mate * places + from]--;
+            friendCount[mate * places + to]++;
+            refresh(mate);
+        }
+    }
+
+    /**
+     * Method to return how many rules a guest is breaking where they are
+     */
+    private int conflictsOf(int guest) {
+        return conflictsOf(guest, false);
+    }
+
+    /**
+     * Method to return how many rules a guest is breaking where they are, optionally only counting the ones with
+     * other guests who can't be moved either
+     */
+    private int conflictsOf(int guest, boolean fixedOnly) {
+        int place = placeOf[guest];
+        if (!fixedOnly) {
+            return enemiesAt(guest, place) + groupmatesOf[guest].length - friendCount[guest * places + place];
+        }
+        int conflicts = 0;
+        for (int enemy : enemiesOf[guest]) {
+            if (fixed[enemy] && place != bench && placeOf[enemy] == place) conflicts++;
+        }
+        for (int mate : groupmatesOf[guest]) {
+            if (fixed[mate] && placeOf[mate] != place) conflicts++;
+        }
+        return conflicts;
+    }
+
+    /**
+     * Method to add a movable guest to the guests breaking a rule, or take them off it, after their counts have changed
+     * Runtime --> O(1)
+     */
+    private void refresh(int guest) {
+        if (fixed[guest]) {
+            return;
+        }
+        boolean breaking = conflictsOf(guest) > 0;
+        int index = conflictedIndex[guest];
+        if (breaking && index < 0) {
+            conflictedIndex[guest] = conflictedSize;
+            conflicted[conflictedSize++] = guest;
+        }
+        else if (!breaking && index >= 0) {
+            int last = conflicted[--conflictedSize];
+            conflicted[index] = last;
+            conflictedIndex[last] = index;
+            conflictedIndex[guest] = -1;
+        }
+    }
+
+    /**
+     * Method to seat the movable guests in the plan, keeping them there only if isPlanOK agrees
+     * @return true if the plan is solved
+     */
+    private boolean writePlan() {
+        for (int t = 0; t < bench; t++) {
+            for (int guest : members[t]) {
+                if (!fixed[guest]) {
+                    plan.addGuestToTable(t, names[guest]);
+                }
+            }
+        }
+        if (rules.isPlanOK(plan)) {
+            return true;
+        }
+        for (int t = 0; t < bench; t++) {
+            for (int guest : members[t]) {
+                if (!fixed[guest]) {
+                    plan.removeGuestFromTable(names[guest]);
+                }
+            }
+        }
+        return false;
+    }
+}
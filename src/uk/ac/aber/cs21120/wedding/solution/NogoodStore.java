@@ -0,0 +1,139 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nogoods learned by a Solver: sets of placements (a guest at a table) which have been proved to never be part
+ * of a solution, so the search can give up on any branch which makes all of them again.
+ *
+ * There is only room for a fixed number of nogoods. When it is full, the oldest one which hasn't been used since
+ * it was last looked at is thrown out to make room (the clock, or second-chance, way of choosing what to evict),
+ * so nogoods which keep cutting off branches stay and ones which never come up again are replaced.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+class NogoodStore {
+
+    private final int capacity;
+    private final long numTables;
+    private final int[][] positions; //slot -> the guests' positions in the order, or null if the slot is empty
+    private final int[][] tables; //slot -> the tables they were at
+    private final boolean[] used; //slot -> true if it has been added or has cut off a branch since the clock hand last passed it
+    private final Map<Long, List<Integer>> slotsWith; //placement -> the slots of the nogoods it is part of
+    private int size;
+    private int hand;
+
+    /**
+     * Constructor for an empty store
+     * @param capacity how many nogoods it can hold
+     * @param numTables how many tables the plan has
+     */
+    NogoodStore(int capacity, int numTables) {
+        this.capacity = capacity;
+        this.numTables = numTables;
+        this.positions = new int[capacity][];
+        this.tables = new int[capacity][];
+        this.used = new boolean[capacity];
+        this.slotsWith = new HashMap<>();
+        this.size = 0;
+        this.hand = 0;
+    }
+
+    /**
+     * Method to return how many nogoods are in the store
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Method to add a nogood, throwing out an old one if the store is full. A nogood that is already in the store isn't added again.
+     * @param positions the positions in the order of the guests in the nogood
+     * @param tables the tables they are at, in the same order
+     */
+    void add(int[] positions, int[] tables) {
+        List<Integer> existing = slotsWith.get(key(positions[0], tables[0]));
+        if (existing != null) {
+            for (int slot : existing) {
+                if (sameAs(slot, positions, tables)) {
+                    return;
+                }
+            }
+        }
+
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        }
+        else {
+            while (used[hand]) { //give every recently used nogood a second chance
+                used[hand] = false;
+                hand = (hand + 1) % capacity;
+            }
+            slot = hand;
+            hand = (hand + 1) % capacity;
+            evict(slot);
+        }
+        this.positions[slot] = positions;
+        this.tables[slot] = tables;
+        this.used[slot] = true;
+        for (int k = 0; k < positions.length; k++) {
+            slotsWith.computeIfAbsent(key(positions[k], tables[k]), placement -> new ArrayList<>(2)).add(slot);
+        }
+    }
+
+    /**
+     * Method to find a nogood which has just been made by seating a guest
+     * @param position the position in the order of the guest who was just seated
+     * @param table the table they were seated at
+     * @param tableOf the table every guest is at, by position in the order, or -1 for a guest who isn't seated
+     * @return the positions of the guests in a nogood whose placements are all in the plan now (one of them being
+     * the one just made), or null if there isn't one
+     * Runtime --> O(N*L) where N is the number of nogoods with that placement in and L is how long they are
+     */
+    int[] findBroken(int position, int table, int[] tableOf) {
+        if (size == 0) {
+            return null;
+        }
+        List<Integer> candidates = slotsWith.get(key(position, table));
+        if (candidates == null) {
+            return null;
+        }
+        for (int slot : candidates) {
+            int[] members = positions[slot];
+            boolean all = true;
+            for (int k = 0; k < members.length && all; k++) {
+                all = tableOf[members[k]] == tables[slot][k];
+            }
+            if (all) {
+                used[slot] = true;
+                return members;
+            }
+        }
+        return null;
+    }
+
+    private void evict(int slot) {
+        for (int k = 0; k < positions[slot].length; k++) {
+            Long placement = key(positions[slot][k], tables[slot][k]);
+            List<Integer> slots = slotsWith.get(placement);
+            slots.remove(Integer.valueOf(slot));
+            if (slots.isEmpty()) {
+                slotsWith.remove(placement);
+            }
+        }
+    }
+
+    private boolean sameAs(int slot, int[] positions, int[] tables) {
+        return Arrays.equals(this.positions[slot], positions) && Arrays.equals(this.tables[slot], tables);
+    }
+
+    private long key(int position, int table) {
+        return position * numTables + table;
+    }
+}
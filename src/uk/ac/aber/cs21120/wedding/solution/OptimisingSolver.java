@@ -0,0 +1,376 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A solver which doesn't stop at the first plan that keeps the rules, but finds the one with the best score from the
+ * soft rules (see IRules.preferTogether, preferApart and getScore).
+ *
+ * The backtracking Solver is run first, so that there is a plan to beat straight away (and so that a problem with no
+ * solution at all is proved to have none as quickly as possible). Then a branch-and-bound search seats each group in
+ * turn, biggest first, at every table it could go to, best table first, or leaves it unseated. Before going deeper it
+ * works out an upper bound on the score any plan below can get, and if that is no better than the best plan so far,
+ * the branch is cut off. The bound is the score so far, plus, for every group still to be seated:
+ *  - the most it could gain from the groups already seated, at the best table it still fits at (or nothing, unseated)
+ *  - what its own members' preferences are worth, if that's more than nothing
+ *  - and every positive weight between it and the groups to be seated after it
+ * which no plan below can beat, so cutting a branch off never loses the best plan.
+ * Like the Solver, empty tables are all the same, so a group is only ever tried at the first one.
+ *
+ * The search is anytime: if it is stopped, the best plan found so far is put in the plan and SOLVED is given back,
+ * and isOptimal() says it might not be the best there is. The plan is only ever changed to a plan isPlanOK agrees with.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class OptimisingSolver extends AbstractSolver {
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private List<Set<String>> unsatisfiableClique;
+    private long bestScore;
+    private boolean optimal;
+    private long nodes;
+
+    //the state of the search, by group number (see GuestGroups)
+    private int numTables;
+    private int bench; //where a group goes if it isn't seated
+    private int searched; //how many groups the search chooses a place for
+    private String[][] membersOf; //group -> the guests in it who aren't already seated
+    private int[] sizeOf; //group -> how many guests are in it
+    private int[] inside; //group -> what its members sitting together is worth
+    private int[][] neighboursOf; //group -> the groups its members have soft rules with
+    private int[][] weightsOf; //group -> the total weight of those rules, for each of neighboursOf
+    private int[][] enemiesOf; //group -> the groups its members have enemies in
+    private int[] placeOf; //group -> the table it is at, the bench, or -1 if it hasn't been given a place yet
+    private int[] tableSize; //table -> how many guests are at it
+    private long[] gain; //group * numTables + table -> how much the groups given a place there so far add for it
+    private int[] enemiesAt; //group * numTables + table -> how many of its enemies' groups are there
+    private long[] restBound; //depth -> the positive weights between the groups from depth on, and inside them
+    private int[] guestsFrom; //depth -> how many guests are in the groups from depth on
+    private int[][] options; //depth -> the places to try, in order
+    private int freeSeats;
+    private long score;
+    private int[] bestPlace;
+    private CancellationToken stop;
+
+    /**
+     * Constructor for the optimising solver.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan object to add the guests to
+     * @param rules  holds the rules object to check against the plan and to score it with
+     */
+    public OptimisingSolver(String[] guests, IPlan plan, IRules rules) {
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.unsatisfiableClique = List.of();
+        this.bestScore = Long.MIN_VALUE;
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, see Solver.getUnsatisfiableClique()
+     * @return the groups of guests who all have to be apart, or an empty list
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Method to return the score of the plan the last call to solve() found, see IRules.getScore()
+     * @return the score, or Long.MIN_VALUE if no plan was found
+     */
+    public long getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Method to check if the plan the last call to solve() found is known to have the best score there is
+     * @return true if the search finished, false if it was stopped first (or no plan was found)
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * Method to return how many places the last call to solve() tried a group at
+     * @return the number of nodes in the branch-and-bound search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Method for finding the plan with the best score.
+     * The token is checked at every node of the search. If it stops the search after a plan has been found,
+     * the best plan so far is kept.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if a plan was found (the best one, if isOptimal()), UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before any plan was found
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) {
+        unsatisfiableClique = List.of();
+        bestScore = Long.MIN_VALUE;
+        optimal = false;
+        nodes = 0;
+        CapacityCheck capacity = new CapacityCheck(guests, plan, rules);
+        if (!capacity.mightFit()) {
+            return SolveResult.UNSATISFIABLE;
+        }
+        EnemyGraphCheck enemyGraph = new EnemyGraphCheck(guests, plan, rules, capacity);
+        if (!enemyGraph.mightFit()) {
+            unsatisfiableClique = enemyGraph.getClique();
+            return SolveResult.UNSATISFIABLE;
+        }
+
+        GuestGroups groups = new GuestGroups(guests, plan, rules, capacity);
+        Solver first = new Solver(guests, plan, rules);
+        SolveResult result = first.solve(token);
+        if (result != SolveResult.SOLVED) {
+            unsatisfiableClique = first.getUnsatisfiableClique();
+            return result;
+        }
+
+        stop = token;
+        try {
+            setUp(groups);
+            optimal = search(0);
+            for (int group = 0; group < searched; group++) {
+                seatGroup(group, bestPlace[group]);
+            }
+            return SolveResult.SOLVED;
+        }
+        finally {
+            gain = null; //the search state can be big, so it isn't kept between calls
+            enemiesAt = null;
+            stop = null;
+        }
+    }
+
+    /**
+     * Method to split the guests into groups (see GuestGroups) and set up the search.
+     * The plan the Solver found is read in as the best so far, then taken back out of the plan.
+     */
+    private void setUp(GuestGroups groups) {
+        int n = groups.count;
+        numTables = groups.numTables;
+        bench = groups.bench;
+        searched = groups.movable;
+        membersOf = groups.membersOf;
+        sizeOf = groups.sizeOf;
+        inside = groups.inside;
+        neighboursOf = groups.neighboursOf;
+        weightsOf = groups.weightsOf;
+        enemiesOf = groups.enemiesOf;
+        bestPlace = new int[n];
+        for (int i = 0; i < n; i++) {
+            bestPlace[i] = i < searched ? plan.getTableOf(membersOf[i][0]) : groups.fixedPlaceOf[i];
+            if (bestPlace[i] < 0) {
+                bestPlace[i] = bench;
+            }
+        }
+
+        placeOf = new int[n];
+        Arrays.fill(placeOf, -1);
+        tableSize = new int[numTables];
+        gain = new long[n * numTables];
+        enemiesAt = new int[n * numTables];
+        freeSeats = numTables * plan.getSeatsPerTable();
+        score = 0;
+        for (int i = searched; i < n; i++) { //the groups which can't be moved are where the Solver left them
+            place(i, bestPlace[i]);
+        }
+        for (int i = searched - 1; i >= 0; i--) {
+            place(i, bestPlace[i]);
+        }
+        bestScore = score;
+        for (int i = 0; i < searched; i++) {
+            unplace(i);
+            for (String guest : membersOf[i]) {
+                plan.removeGuestFromTable(guest);
+            }
+        }
+
+        restBound = new long[searched + 1];
+        guestsFrom = new int[searched + 1];
+        for (int i = searched - 1; i >= 0; i--) {
+            long positive = Math.max(0, inside[i]);
+            for (int k = 0; k < neighboursOf[i].length; k++) {
+                if (neighboursOf[i][k] > i && neighboursOf[i][k] < searched) {
+                    positive += Math.max(0, weightsOf[i][k]);
+                }
+            }
+            restBound[i] = restBound[i + 1] + positive;
+            guestsFrom[i] = guestsFrom[i + 1] + sizeOf[i];
+        }
+        options = new int[searched][numTables + 1];
+    }
+
+    /**
+     * Method to give every group from depth on a place, keeping the best plan found as it goes
+     * @param depth the group to find a place for
+     * @return true if the whole search below was done, false if it was stopped
+     */
+    private boolean search(int depth) {
+        nodes++;
+        if (stop.isCancelled()) {
+            return false;
+        }
+        if (depth == searched) {
+            if (freeSeats == 0 && score > bestScore) {
+                keepIfAllowed();
+            }
+            return true;
+        }
+        if (guestsFrom[depth] < freeSeats || upperBound(depth) <= bestScore) {
+            return true;
+        }
+
+        int[] places = options[depth];
+        int count = 0;
+        boolean triedEmpty = false;
+        for (int t = 0; t < numTables; t++) {
+            if (tableSize[t] + sizeOf[depth] > plan.getSeatsPerTable() || enemiesAt[depth * numTables + t] > 0) {
+                continue;
+            }
+            if (tableSize[t] == 0) {
+                if (triedEmpty) {
+                    continue; //just like the last empty table
+                }
+                triedEmpty = true;
+            }
+            places[count++] = t;
+        }
+        if (guestsFrom[depth + 1] >= freeSeats) {
+            places[count++] = bench;
+        }
+        for (int i = 1; i < count; i++) { //the best places first, so good plans are found early
+            int p = places[i];
+            long value = valueAt(depth, p);
+            int j = i - 1;
+            while (j >= 0 && valueAt(depth, places[j]) < value) {
+                places[j + 1] = places[j];
+                j--;
+            }
+            places[j + 1] = p;
+        }
+
+        for (int i = 0; i < count; i++) {
+            place(depth, places[i]);
+            boolean finished = search(depth + 1);
+            unplace(depth);
+            if (!finished) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to work out how much putting a group somewhere would add to the score straight away
+     */
+    private long valueAt(int group, int place) {
+        return place == bench ? 0 : inside[group] + gain[group * numTables + place];
+    }
+
+    /**
+     * Method to work out the most that any plan below this point in the search could score
+     * @param depth the first group without a place
+     * @return a score no plan below can beat
+     */
+    private long upperBound(int depth) {
+        long bound = score + restBound[depth];
+        int seats = plan.getSeatsPerTable();
+        for (int group = depth; group < searched; group++) {
+            long best = 0;
+            for (int t = 0; t < numTables; t++) {
+                long value = gain[group * numTables + t];
+                if (value > best && tableSize[t] + sizeOf[group] <= seats && enemiesAt[group * numTables + t] == 0) {
+                    best = value;
+                }
+            }
+            bound += best;
+        }
+        return bound;
+    }
+
+    /**
+     * Method to keep the plan the search has reached as the best so far, if isPlanOK agrees with it.
+     * The rules checked by the search are the ones IRules lists, so this is only there in case there are others.
+     */
+    private void keepIfAllowed() {
+        PlanTrail trail = new PlanTrail(plan);
+        for (int group = 0; group < searched; group++) {
+            if (placeOf[group] != bench) {
+                for (String guest : membersOf[group]) {
+                    trail.place(placeOf[group], guest);
+                }
+            }
+        }
+        boolean allowed = rules.isPlanOK(plan);
+        trail.rollbackTo(0);
+        if (allowed) {
+            bestScore = score;
+            System.arraycopy(placeOf, 0, bestPlace, 0, searched);
+        }
+    }
+
+    /**
+     * Method to add the members of a group who aren't already seated to the plan
+     */
+    private void seatGroup(int group, int place) {
+        if (place != bench) {
+            for (String guest : membersOf[group]) {
+                plan.addGuestToTable(place, guest);
+            }
+        }
+    }
+
+    /**
+     * Method to give a group a place in the search, updating what every other group would gain or clash with there
+     */
+    private void place(int group, int place) {
+        placeOf[group] = place;
+        if (place == bench) {
+            return;
+        }
+        tableSize[place] += sizeOf[group];
+        freeSeats -= sizeOf[group];
+        score += valueAt(group, place);
+        for (int k = 0; k < neighboursOf[group].length; k++) {
+            gain[neighboursOf[group][k] * numTables + place] += weightsOf[group][k];
+        }
+        for (int enemy : enemiesOf[group]) {
+            enemiesAt[enemy * numTables + place]++;
+        }
+    }
+
+    /**
+     * Method to take a group's place away again, undoing place()
+     */
+    private void unplace(int group) {
+        int place = placeOf[group];
+        placeOf[group] = -1;
+        if (place == bench) {
+            return;
+        }
+        for (int enemy : enemiesOf[group]) {
+            enemiesAt[enemy * numTables + place]--;
+        }
+        for (int k = 0; k < neighboursOf[group].length; k++) {
+            gain[neighboursOf[group][k] * numTables + place] -= weightsOf[group][k];
+        }
+        score -= valueAt(group, place);
+        freeSeats += sizeOf[group];
+        tableSize[place] -= sizeOf[group];
+    }
+}
@@ -0,0 +1,265 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A solver which splits the search of the normal Solver across several threads.
+ * The first few levels of the search tree are split into fork/join tasks (one for each guest that could be seated next),
+ * and the tasks at the bottom of that run the rest of the search one branch each. The tasks are run on a ForkJoinPool,
+ * so a thread which runs out of its own work steals tasks from the others.
+ *
+ * Each task searches on its own copy of the plan, so the only thing the threads share is the rules, which they only read.
+ * As soon as one of them fills the plan, every other task is stopped and the solution is copied into the caller's plan.
+ * The tasks are also stopped if the token given to solve() is cancelled or runs out of time.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class ParallelSolver extends AbstractSolver {
+
+    private static final int TASKS_PER_THREAD = 16; //how many more tasks than threads to aim for, so there is work to steal
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private final int parallelism;
+    private List<Set<String>> unsatisfiableClique;
+
+    /**
+     * Constructor for the parallel solver, using one thread for each processor.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan object to add the guests to
+     * @param rules  holds the rules object to check against the plan, which has to be safe to read from several threads
+     */
+    public ParallelSolver(String[] guests, IPlan plan, IRules rules) {
+        this(guests, plan, rules, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for the parallel solver with a chosen number of threads.
+     *
+     * @param guests      holds the array of guests
+     * @param plan        holds the plan object to add the guests to
+     * @param rules       holds the rules object to check against the plan, which has to be safe to read from several threads
+     * @param parallelism how many threads to search with
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public ParallelSolver(String[] guests, IPlan plan, IRules rules, int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("There has to be at least one thread to solve the plan with.");
+        }
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.parallelism = parallelism;
+        this.unsatisfiableClique = List.of();
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, see Solver.getUnsatisfiableClique()
+     * @return the groups of guests who all have to be apart, or an empty list
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Method for solving the problem across several threads.
+     * The checks and the setup of the search are done once, then the search is split up and run on a ForkJoinPool.
+     * The caller's plan is only changed if a solution is found, when the guests from the solution are added to it.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before it found out
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) {
+        internGuests(guests, plan);
+        Solver prepared = new Solver(guests, copyOf(plan), rules);
+        boolean searchNeeded = prepared.prepare();
+        unsatisfiableClique = prepared.getUnsatisfiableClique();
+        if (!searchNeeded) {
+            return SolveResult.UNSATISFIABLE;
+        }
+
+        Search search = new Search(prepared, token.child());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            IPlan solution = pool.invoke(new BranchTask(search, new int[0], splitDepth()));
+            if (solution != null) {
+                copyInto(solution, plan);
+                return SolveResult.SOLVED;
+            }
+            return search.cutShort.get() ? stoppedResult(token) : SolveResult.UNSATISFIABLE;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to work out how many levels of the search to split into tasks, which is enough for there to be about
+     * TASKS_PER_THREAD tasks for each thread if every level has as many branches as there are guests.
+     */
+    private int splitDepth() {
+        int levels = 0;
+        long tasks = 1;
+        while (tasks < (long) parallelism * TASKS_PER_THREAD && levels < guests.length) {
+            tasks *= Math.max(2, guests.length / 2);
+            levels++;
+        }
+        return parallelism == 1 ? 0 : levels;
+    }
+
+    /**
+     * Method to give every guest an ID in a BitsetPlan's registry before any threads start, so that copies of the plan
+     * sharing the registry only ever read from it.
+     * @param guests the guests who are going to be seated
+     * @param plan the plan they are going to be seated in, which is left alone if it isn't a BitsetPlan
+     */
+    static void internGuests(String[] guests, IPlan plan) {
+        if (plan instanceof BitsetPlan) {
+            for (String guest : guests) {
+                if (guest != null && !guest.isBlank()) {
+                    ((BitsetPlan) plan).getRegistry().intern(guest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to copy a plan, so that a thread can search on its own. A BitsetPlan is copied as a BitsetPlan
+     * sharing the same registry (so the rules can still use the fast checks on it), anything else as a Plan.
+     * @param original the plan to copy
+     * @return a new plan with the same guests at the same tables
+     */
+    static IPlan copyOf(IPlan original) {
+        IPlan copy = original instanceof BitsetPlan
+                ? new BitsetPlan(original.getNumberOfTables(), original.getSeatsPerTable(), ((BitsetPlan) original).getRegistry())
+                : new Plan(original.getNumberOfTables(), original.getSeatsPerTable());
+        for (int t = 0; t < original.getNumberOfTables(); t++) {
+            for (String guest : original.getGuestsAtTable(t)) {
+                copy.addGuestToTable(t, guest);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Method to copy a solution found on a copy of a plan back into the original, adding every guest who isn't seated there yet
+     * @param solution the filled-in copy
+     * @param original the plan to fill in
+     */
+    static void copyInto(IPlan solution, IPlan original) {
+        for (int t = 0; t < solution.getNumberOfTables(); t++) {
+            for (String guest : solution.getGuestsAtTable(t)) {
+                if (!original.isGuestPlaced(guest)) {
+                    original.addGuestToTable(t, guest);
+                }
+            }
+        }
+    }
+
+    /**
+     * What the tasks of one call to solve() share: the prepared Solver they copy, the token which stops them all,
+     * and flags for whether one of them has won and whether any of them were stopped before they finished.
+     */
+    private static class Search {
+
+        private final Solver prepared;
+        private final CancellationToken stop;
+        private final AtomicBoolean solved;
+        private final AtomicBoolean cutShort;
+
+        Search(Solver prepared, CancellationToken stop) {
+            this.prepared = prepared;
+            this.stop = stop;
+            this.solved = new AtomicBoolean(false);
+            this.cutShort = new AtomicBoolean(false);
+        }
+
+        /**
+         * Method for a task to claim the win, which stops every other task
+         * @return true if no other task had already won
+         */
+        boolean claim() {
+            if (solved.compareAndSet(false, true)) {
+                stop.cancel();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A task which searches one branch of the search tree: the guests in the branch are seated on a fresh copy of the
+     * plan, then either the branches under it are forked as tasks of their own, or the rest of the search is run.
+     */
+    private class BranchTask extends RecursiveTask<IPlan> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int[] branch;
+        private final int levelsLeft; //how many more levels to split before searching
+
+        BranchTask(Search search, int[] branch, int levelsLeft) {
+            this.search = search;
+            this.branch = branch;
+            this.levelsLeft = levelsLeft;
+        }
+
+        /**
+         * @return the filled-in plan if this branch had a solution (and got to it first), or null if not
+         */
+        @Override
+        protected IPlan compute() {
+            if (search.stop.isCancelled()) {
+                search.cutShort.set(true);
+                return null;
+            }
+            Solver worker = new Solver(search.prepared, copyOf(search.prepared.getPlan()));
+            worker.setStop(search.stop);
+            if (!worker.replay(branch)) {
+                return null;
+            }
+
+            boolean filled;
+            List<int[]> children = new ArrayList<>();
+            if (levelsLeft == 0) {
+                filled = worker.searchFromHere();
+            }
+            else {
+                filled = worker.expand(children);
+            }
+            if (worker.wasStopped()) {
+                search.cutShort.set(true);
+            }
+            if (filled) {
+                return search.claim() ? worker.getPlan() : null;
+            }
+
+            List<BranchTask> tasks = new ArrayList<>(children.size());
+            for (int[] child : children) {
+                tasks.add(new BranchTask(search, child, levelsLeft - 1));
+            }
+            IPlan solution = null;
+            for (BranchTask task : invokeAll(tasks)) {
+                IPlan found = task.join();
+                if (found != null) {
+                    solution = found;
+                }
+            }
+            return solution;
+        }
+    }
+}
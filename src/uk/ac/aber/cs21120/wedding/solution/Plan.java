@@ -2,9 +2,15 @@ package uk.ac.aber.cs21120.wedding.solution;
 
 import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -20,7 +26,10 @@ public class Plan implements IPlan {
     private final int numberOfTables; //these are final bc the num tables/seats shouldn't be changeable once declared
     private final int seatsPerTable;
 
-    private List<Set<String>> tables; //this will hold all the tables, with all the guests
+    private String[][] tables; //this will hold all the tables, the guests at table t are tables[t][0] up to tables[t][tableSizes[t] - 1]
+    private int[] tableSizes; //how many guests are at each table
+    private List<Set<String>> tableViews; //read-only sets of each table for getGuestsAtTable, made once so reading a table doesn't allocate
+    private Map<String, int[]> guestSeats; //index of guest -> {table number, place in that table's array}, so nobody has to search the tables for a guest
 
     /**
      * Constructor to create the implementation of the seating plan.
@@ -32,9 +41,12 @@ public class Plan implements IPlan {
         this.numberOfTables = numberOfTables;
         this.seatsPerTable = seatsPerTable;
 
-        this.tables = new ArrayList<>(numberOfTables);
+        this.tables = new String[numberOfTables][Math.max(0, Math.min(seatsPerTable, 16))]; //grown when needed, so a huge table doesn't cost anything until it fills up
+        this.tableSizes = new int[numberOfTables];
+        this.tableViews = new ArrayList<>(numberOfTables);
+        this.guestSeats = new HashMap<>();
         for (int i = 0; i < numberOfTables; i++){
-            this.tables.add(new HashSet<>(seatsPerTable)); //programming to implementation
+            this.tableViews.add(Collections.unmodifiableSet(new TableView(i)));
         }
     }
 
@@ -62,35 +74,47 @@ public class Plan implements IPlan {
      * Method to add a guest to a table.
      * It first checks if the table number inputted corresponds to an actual table before doing anything.
      * Also only performs function if the guest is not null or a blank string
-     * If the guest isn't already seated and the table isn't full, it adds them to the table.
+     * If the guest isn't already seated and the table isn't full, it adds them to the end of the table
+     * and records where they went in the index.
      * @param table the table number
      * @param guest the name of the guest
      * @throws IndexOutOfBoundsException if the table number given does not match a table
+     * Runtime --> O(1) (amortised, a table's array occasionally has to grow)
      */
     @Override
     public void addGuestToTable(int table, String guest) throws IndexOutOfBoundsException{
         validateTable(table);
 
-        if (validateGuestExistence(guest) && !isGuestPlaced(guest) && (tables.get(table).size() < seatsPerTable)){
-            tables.get(table).add(guest);
+        if (validateGuestExistence(guest) && !isGuestPlaced(guest) && (tableSizes[table] < seatsPerTable)){
+            int place = tableSizes[table]++;
+            if (place == tables[table].length){
+                tables[table] = Arrays.copyOf(tables[table], (int) Math.min(seatsPerTable, place * 2L));
+            }
+            tables[table][place] = guest;
+            guestSeats.put(guest, new int[]{table, place});
         }
     }
 
     /**
      * Method to remove a guest from any table in the plan.
      * Only performs function if the guest is not null or a blank string
-     * The tables are iterated through, and once the guest is removed from the current table,
-     * the program doesn't need to search through the rest and stops early if possible.
+     * The index tells us exactly where the guest is sat, so the last guest at that table is moved into their place
+     * and nothing else has to be touched.
      * @param guest the name of the guest
+     * Runtime --> O(1)
      */
     @Override
     public void removeGuestFromTable(String guest) {
         if (validateGuestExistence(guest)) {
-            for (Set<String> table : tables) {
-                if (table.remove(guest)) { //this returns a boolean based on if the guest was found and removed
-                    // (because I'm a good student who reads the documentation like that)
-                    break;
+            int[] seat = guestSeats.remove(guest); //this returns null if the guest wasn't in the index
+            if (seat != null) {
+                String[] table = tables[seat[0]];
+                int last = --tableSizes[seat[0]];
+                if (seat[1] != last) {
+                    table[seat[1]] = table[last];
+                    guestSeats.get(table[last])[1] = seat[1];
                 }
+                table[last] = null;
             }
         }
     }
@@ -99,31 +123,69 @@ public class Plan implements IPlan {
      * Method to check if a guest is placed in the seating plan
      * @param guest the name of the guest
      * @return returns true if the guest has been found in the plan, or false if they haven't been found (if they are null or blank, they also won't be in the plan)
+     * Runtime --> O(1)
      */
     @Override
     public boolean isGuestPlaced(String guest) {
+        return validateGuestExistence(guest) && guestSeats.containsKey(guest);
+    }
+
+    /**
+     * Method to find which table a guest is sat at, using the index rather than searching the tables
+     * @param guest the name of the guest
+     * @return the table number, or -1 if the guest isn't in the plan
+     * Runtime --> O(1)
+     */
+    @Override
+    public int getTableOf(String guest) {
         if (validateGuestExistence(guest)) {
-            for (Set<String> table : tables) {
-                if (table.contains(guest)) {
-                    return true;
-                }
+            int[] seat = guestSeats.get(guest);
+            if (seat != null) {
+                return seat[0];
             }
         }
-        return false;
+        return -1;
     }
 
     /**
      * Method to return the table corresponding to the given table number,
      * after checking that the given number is not invalid
+     * The set can't be changed, so guests can only be added and removed through the plan, but it is a view of the
+     * table rather than a copy, so it keeps up with the plan.
      * @param t the table number
-     * @return the table as a Set
+     * @return the table as an unmodifiable Set
      * @throws IndexOutOfBoundsException if the number given does not match any table in the plan
      * Runtime --> O(1)
      */
     @Override
     public Set<String> getGuestsAtTable(int t) throws IndexOutOfBoundsException{
         validateTable(t);
-        return tables.get(t);
+        return tableViews.get(t);
+    }
+
+    /**
+     * Method to return how many guests are sat at a table, after checking that the given number is not invalid
+     * @param t the table number
+     * @return the number of guests at the table
+     * @throws IndexOutOfBoundsException if the number given does not match any table in the plan
+     * Runtime --> O(1)
+     */
+    @Override
+    public int getNumberOfGuestsAtTable(int t) throws IndexOutOfBoundsException{
+        validateTable(t);
+        return tableSizes[t];
+    }
+
+    /**
+     * Method to return one of the guests at a table by their place in the table's array, so classes in this package
+     * can walk through a table without making an iterator. The order changes as guests are removed.
+     * @param t the table number, which has to be valid
+     * @param place a number from 0 up to one less than getNumberOfGuestsAtTable(t)
+     * @return the guest
+     * Runtime --> O(1)
+     */
+    String getGuestAt(int t, int place){
+        return tables[t][place];
     }
 
     /**
@@ -144,4 +206,56 @@ public class Plan implements IPlan {
     private boolean validateGuestExistence(String guest){
         return guest != null && !guest.isBlank();
     }
+
+    /**
+     * A set of the guests at one table, read straight from the table's array every time it is used.
+     * contains() uses the index rather than searching the table.
+     */
+    private class TableView extends AbstractSet<String> {
+
+        private final int table;
+
+        private TableView(int table){
+            this.table = table;
+        }
+
+        /**
+         * Runtime --> O(1)
+         */
+        @Override
+        public int size(){
+            return tableSizes[table];
+        }
+
+        /**
+         * Runtime --> O(1)
+         */
+        @Override
+        public boolean contains(Object o){
+            return o instanceof String && getTableOf((String) o) == table;
+        }
+
+        /**
+         * Runtime --> O(S) for the whole walk, where S is the number of guests at the table
+         */
+        @Override
+        public Iterator<String> iterator(){
+            return new Iterator<String>() {
+                private int place = 0;
+
+                @Override
+                public boolean hasNext(){
+                    return place < tableSizes[table];
+                }
+
+                @Override
+                public String next(){
+                    if (!hasNext()){
+                        throw new NoSuchElementException();
+                    }
+                    return tables[table][place++];
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,653 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A class for looking at every solution of a problem, rather than just the first one like the solvers.
+ *
+ * Two solutions which only differ by swapping round the guests at tables which started out empty are really the same
+ * plan, so only one of them is given: like the Solver, a group is only ever put at the first empty table. Every other
+ * difference counts - who is at a table with someone already seated, and who is left without a seat.
+ *
+ * stream() gives the solutions one at a time, each as a new Plan, working out the next one only when it is asked for,
+ * so it only ever holds one search path in memory however many solutions there are. The given plan is never changed.
+ * The stream can be run in parallel: its spliterator splits off half of the places it still has to try for the
+ * shallowest group it can, and gives them to a new spliterator with its own copy of the search path.
+ *
+ * countSolutions() counts the solutions without making them. Guests whose groups have enemies are seated one
+ * connected group of enemies at a time, and the counts are memoised by how much room each table has left and which of
+ * the guests still to be seated can't go there. Once a connected group of enemies is all seated, nobody still to be
+ * seated cares who they are, so the states of the search reached by seating them in different ways are all the same
+ * state, and are only counted once. The guests with no rules at all are left until last and counted with a formula.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class PlanEnumerator {
+
+    private static final int STOP_CHECK = 1024; //how many states the count goes through between checking the token
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+
+    /**
+     * Constructor for the enumerator.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan the solutions start from, which is never changed
+     * @param rules  holds the rules object to check the solutions against
+     */
+    public PlanEnumerator(String[] guests, IPlan plan, IRules rules) {
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+    }
+
+    /**
+     * Method to return a stream of every solution, each of them a new Plan. The solutions are found as the stream
+     * is read, so it can be stopped early (e.g. with limit()) without finding the rest. Every one is checked with isPlanOK.
+     * @return a stream of the solutions
+     */
+    public Stream<IPlan> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Method to return a spliterator over every solution, see stream()
+     * @return a spliterator of the solutions, which can be split for a parallel stream
+     */
+    public Spliterator<IPlan> spliterator() {
+        GuestGroups groups = groupsIfTheyMightFit();
+        Search search = new Search(groups);
+        if (groups != null && groups.fixedGroupsFit()) {
+            search.start();
+        }
+        return search;
+    }
+
+    /**
+     * Method to count the solutions with no time limit, see countSolutions(CancellationToken)
+     * @return how many solutions there are
+     */
+    public BigInteger countSolutions() {
+        return countSolutions(new CancellationToken());
+    }
+
+    /**
+     * Method to count the solutions without making each of them. The count is of the plans which keep the rules
+     * IRules lists (the enemies and the groups), which is what stream().count() would give for Rules.
+     * @param token the token to check while counting
+     * @return how many solutions there are, or null if the token stopped the count first
+     */
+    public BigInteger countSolutions(CancellationToken token) {
+        GuestGroups groups = groupsIfTheyMightFit();
+        if (groups == null || !groups.fixedGroupsFit()) {
+            return BigInteger.ZERO;
+        }
+        BigInteger labelled = new Counter(groups, token).count(0);
+        if (labelled == null || groups.seatsPerTable == 0) {
+            return labelled;
+        }
+        int emptyTables = 0;
+        for (int t = 0; t < groups.numTables; t++) {
+            if (plan.getNumberOfGuestsAtTable(t) == 0) {
+                emptyTables++;
+            }
+        }
+        return labelled.divide(factorial(emptyTables)); //every solution was counted once for each order of the empty tables
+    }
+
+    /**
+     * Method to split the guests into groups, if the capacity check doesn't rule out any solutions first
+     * @return the groups, or null if there are no solutions
+     */
+    private GuestGroups groupsIfTheyMightFit() {
+        CapacityCheck capacity = new CapacityCheck(guests, plan, rules);
+        return capacity.mightFit() ? new GuestGroups(guests, plan, rules, capacity) : null;
+    }
+
+    /**
+     * Method to work out n!
+     */
+    private static BigInteger factorial(int n) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    /**
+     * A search through the solutions, one group at a time in the order GuestGroups gives, which stops at each solution.
+     * It keeps the places it has left to try for each group on the search path, so it can carry on from where it stopped,
+     * and so that they can be split with another Search.
+     */
+    private final class Search implements Spliterator<IPlan> {
+
+        private final GuestGroups groups;
+        private int root; //the first group this search chooses a place for, the ones before it were given a place when it was split off
+        private int depth; //the group whose places are being tried
+        private int[] placeOf; //group -> the table it is at, the bench, or -1 if it hasn't been given a place yet
+        private int[] tableSize; //table -> how many guests are at it
+        private int[] enemiesAt; //group * numTables + table -> how many of its enemies' groups are there
+        private int[] guestsFrom; //group -> how many guests are in the groups from there on, that could still be seated
+        private int freeSeats;
+        private int[][] options; //group -> the places to try for it
+        private int[] optionCount; //group -> how many of options it has
+        private int[] tried; //group -> how many of options have been tried (the last one is where it is now)
+        private long estimate; //how many solutions are guessed to be left, which is halved when the search is split
+        private boolean finished;
+
+        /**
+         * Constructor for a search which hasn't started, and has nothing to search if groups is null
+         */
+        private Search(GuestGroups groups) {
+            this.groups = groups;
+            this.estimate = Long.MAX_VALUE;
+            this.finished = true;
+        }
+
+        /**
+         * Method to give the groups which can't be moved their places, and get ready to try places for the first group
+         */
+        private void start() {
+            int n = groups.count;
+            int movable = groups.movable;
+            placeOf = new int[n];
+            Arrays.fill(placeOf, -1);
+            tableSize = new int[groups.numTables];
+            enemiesAt = new int[n * groups.numTables];
+            freeSeats = groups.numTables * groups.seatsPerTable;
+            for (int group = movable; group < n; group++) {
+                place(group, groups.fixedPlaceOf[group]);
+            }
+            guestsFrom = new int[movable + 1];
+            for (int group = movable - 1; group >= 0; group--) {
+                guestsFrom[group] = guestsFrom[group + 1] + groups.sizeOf[group];
+            }
+            options = new int[movable][groups.numTables + 1];
+            optionCount = new int[movable];
+            tried = new int[movable];
+            root = 0;
+            depth = 0;
+            finished = false;
+            if (movable > 0) {
+                open(0);
+            }
+        }
+
+        /**
+         * Method to make a copy of this search which is given some of the places for one group to try, with the same
+         * places as this one for every group before it
+         */
+        private Search split(int group, int[] places) {
+            Search other = new Search(groups);
+            other.guestsFrom = guestsFrom;
+            other.placeOf = new int[groups.count];
+            Arrays.fill(other.placeOf, -1);
+            other.tableSize = new int[groups.numTables];
+            other.enemiesAt = new int[enemiesAt.length];
+            other.freeSeats = groups.numTables * groups.seatsPerTable;
+            for (int g = groups.movable; g < groups.count; g++) {
+                other.place(g, placeOf[g]);
+            }
+            for (int g = 0; g < group; g++) {
+                other.place(g, placeOf[g]);
+            }
+            other.options = new int[groups.movable][groups.numTables + 1];
+            other.optionCount = new int[groups.movable];
+            other.tried = new int[groups.movable];
+            System.arraycopy(places, 0, other.options[group], 0, places.length);
+            other.optionCount[group] = places.length;
+            other.root = group;
+            other.depth = group;
+            other.finished = false;
+            return other;
+        }
+
+        /**
+         * Method to find the next solution and give it to the action
+         * @param action what to do with the solution
+         * @return false if there are no solutions left
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super IPlan> action) {
+            while (advance()) {
+                IPlan solution = toPlan();
+                if (rules.isPlanOK(solution)) {
+                    action.accept(solution);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Method to move the search on to the next way of giving every group a place which fills every seat
+         * @return false if there aren't any left
+         */
+        private boolean advance() {
+            if (finished) {
+                return false;
+            }
+            if (groups.movable == 0) { //there is only one way to seat everyone, if there is one at all
+                finished = true;
+                return freeSeats == 0;
+            }
+            while (depth >= root) {
+                if (tried[depth] > 0) {
+                    unplace(depth);
+                }
+                if (tried[depth] == optionCount[depth]) {
+                    depth--;
+                    continue;
+                }
+                place(depth, options[depth][tried[depth]++]);
+                if (depth + 1 == groups.movable) {
+                    if (freeSeats == 0) {
+                        return true;
+                    }
+                    continue;
+                }
+                depth++;
+                open(depth);
+            }
+            finished = true;
+            return false;
+        }
+
+        /**
+         * Method to work out the places a group can go, given where the groups before it are: every table with room and
+         * none of their enemies (but only the first empty one), and the bench, if there would still be enough guests left
+         * to fill the seats
+         */
+        private void open(int group) {
+            tried[group] = 0;
+            optionCount[group] = 0;
+            if (guestsFrom[group] < freeSeats) {
+                return;
+            }
+            int[] places = options[group];
+            int count = 0;
+            boolean triedEmpty = false;
+            for (int t = 0; t < groups.numTables; t++) {
+                if (tableSize[t] + groups.sizeOf[group] > groups.seatsPerTable || enemiesAt[group * groups.numTables + t] > 0) {
+                    continue;
+                }
+                if (tableSize[t] == 0) {
+                    if (triedEmpty) {
+                        continue; //just like the last empty table
+                    }
+                    triedEmpty = true;
+                }
+                places[count++] = t;
+            }
+            if (guestsFrom[group + 1] >= freeSeats) {
+                places[count++] = groups.bench;
+            }
+            optionCount[group] = count;
+        }
+
+        /**
+         * Method to make a new plan with the guests where the search has put them
+         */
+        private IPlan toPlan() {
+            IPlan solution = new Plan(groups.numTables, groups.seatsPerTable);
+            for (int t = 0; t < groups.numTables; t++) {
+                for (String guest : plan.getGuestsAtTable(t)) {
+                    solution.addGuestToTable(t, guest);
+                }
+            }
+            for (int group = 0; group < groups.count; group++) {
+                if (placeOf[group] != groups.bench) {
+                    for (String guest : groups.membersOf[group]) {
+                        solution.addGuestToTable(placeOf[group], guest);
+                    }
+                }
+            }
+            return solution;
+        }
+
+        /**
+         * Method to give a group a place in the search
+         */
+        private void place(int group, int place) {
+            placeOf[group] = place;
+            if (place != groups.bench) {
+                tableSize[place] += groups.sizeOf[group];
+                freeSeats -= groups.sizeOf[group];
+                for (int enemy : groups.enemiesOf[group]) {
+                    enemiesAt[enemy * groups.numTables + place]++;
+                }
+            }
+        }
+
+        /**
+         * Method to take a group's place away again, undoing place()
+         */
+        private void unplace(int group) {
+            int place = placeOf[group];
+            placeOf[group] = -1;
+            if (place != groups.bench) {
+                for (int enemy : groups.enemiesOf[group]) {
+                    enemiesAt[enemy * groups.numTables + place]--;
+                }
+                freeSeats += groups.sizeOf[group];
+                tableSize[place] -= groups.sizeOf[group];
+            }
+        }
+
+        /**
+         * Method to split off half of the places still to be tried for the shallowest group on the search path which has
+         * at least two left. If no group has, and the search hasn't got past the first places for the groups on its path,
+         * it first goes deeper, giving the groups with only one place to go their place.
+         * @return a search over the places split off, or null if there is nothing to split
+         */
+        @Override
+        public Spliterator<IPlan> trySplit() {
+            if (finished || groups.movable == 0) {
+                return null;
+            }
+            for (int group = root; group <= depth; group++) {
+                int left = optionCount[group] - tried[group];
+                if (left >= 2) {
+                    int keep = tried[group] + left / 2;
+                    int[] given = Arrays.copyOfRange(options[group], keep, optionCount[group]);
+                    optionCount[group] = keep;
+                    estimate /= 2;
+                    Search other = split(group, given);
+                    other.estimate = estimate;
+                    return other;
+                }
+            }
+            while (tried[depth] == 0 && optionCount[depth] == 1 && depth + 1 < groups.movable) {
+                place(depth, options[depth][tried[depth]++]); //the only place it can go, so it can be given it now
+                depth++;
+                open(depth);
+                if (optionCount[depth] >= 2) {
+                    return trySplit();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Method to estimate how many solutions are left. It isn't known, so it starts out as Long.MAX_VALUE and is halved
+         * whenever the search is split, so that a parallel stream only splits it a few times.
+         */
+        @Override
+        public long estimateSize() {
+            return finished ? 0 : estimate;
+        }
+
+        /**
+         * Method to describe the spliterator: every plan it gives is a different, new plan
+         */
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+    }
+
+    /**
+     * A count of the solutions, which treats every table as different (so the count has to be divided by the number
+     * of orders of the empty tables afterwards). See the description of countSolutions above.
+     */
+    private static final class Counter {
+
+        private final GuestGroups groups;
+        private final CancellationToken token;
+        private final int[] order; //position -> group, the groups in each connected group of enemies next to eachother
+        private final int[] componentEnd; //position -> the position after the last one in its connected group of enemies
+        private final int[] fixedEnemies; //the positions of the groups with enemies who can't be moved
+        private final int withRules; //the positions from here on are for guests with no rules, who are left for the formula
+        private final int[] guestsFrom; //position -> how many guests are in the groups from there on
+        private final int[] tableSize;
+        private final int[] enemiesAt; //group * numTables + table -> how many of its enemies' groups are there
+        private final Map<Key, BigInteger> memo;
+        private final BigInteger[] factorials;
+        private int freeSeats;
+        private long states;
+
+        private Counter(GuestGroups groups, CancellationToken token) {
+            this.groups = groups;
+            this.token = token;
+            int movable = groups.movable;
+            int numTables = groups.numTables;
+            this.tableSize = new int[numTables];
+            this.enemiesAt = new int[groups.count * numTables];
+            this.freeSeats = numTables * groups.seatsPerTable;
+            boolean[] fixedEnemy = new boolean[groups.count];
+            for (int group = movable; group < groups.count; group++) {
+                int place = groups.fixedPlaceOf[group];
+                if (place != groups.bench) {
+                    tableSize[place] += groups.sizeOf[group];
+                    freeSeats -= groups.sizeOf[group];
+                    for (int enemy : groups.enemiesOf[group]) {
+                        enemiesAt[enemy * numTables + place]++;
+                        fixedEnemy[enemy] = true;
+                    }
+                }
+            }
+
+            //each connected group of enemies in turn, found with a breadth first search from its biggest group
+            order = new int[movable];
+            componentEnd = new int[movable];
+            boolean[] visited = new boolean[movable];
+            int size = 0;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int start = 0; start < movable; start++) {
+                if (visited[start] || (groups.sizeOf[start] == 1 && groups.enemiesOf[start].length == 0)) {
+                    continue;
+                }
+                int first = size;
+                visited[start] = true;
+                queue.add(start);
+                while (!queue.isEmpty()) {
+                    int group = queue.poll();
+                    order[size++] = group;
+                    for (int enemy : groups.enemiesOf[group]) {
+                        if (enemy < movable && !visited[enemy]) {
+                            visited[enemy] = true;
+                            queue.add(enemy);
+                        }
+                    }
+                }
+                Arrays.fill(componentEnd, first, size, size);
+            }
+            withRules = size;
+            for (int group = 0; group < movable; group++) {
+                if (!visited[group]) {
+                    order[size] = group;
+                    componentEnd[size] = movable;
+                    size++;
+                }
+            }
+            fixedEnemies = IntStream.range(0, withRules).filter(i -> fixedEnemy[order[i]]).toArray();
+            guestsFrom = new int[movable + 1];
+            for (int i = movable - 1; i >= 0; i--) {
+                guestsFrom[i] = guestsFrom[i + 1] + groups.sizeOf[order[i]];
+            }
+            memo = new HashMap<>();
+            factorials = new BigInteger[guestsFrom[0] + groups.seatsPerTable + 1];
+            factorials[0] = BigInteger.ONE;
+            for (int i = 1; i < factorials.length; i++) {
+                factorials[i] = factorials[i - 1].multiply(BigInteger.valueOf(i));
+            }
+        }
+
+        /**
+         * Method to count the ways of giving the groups from a position on a place, filling every seat
+         * @param position the position of the first group without a place
+         * @return the number of ways, or null if the token stopped the count
+         */
+        private BigInteger count(int position) {
+            if (++states % STOP_CHECK == 0 && token.isCancelled()) {
+                return null;
+            }
+            if (guestsFrom[position] < freeSeats) {
+                return BigInteger.ZERO;
+            }
+            if (position == withRules) {
+                return waysToSeatTheRest(position);
+            }
+
+            int numTables = groups.numTables;
+            int[][] tables = signatures(position);
+            Key key = new Key(position, tables);
+            BigInteger known = memo.get(key);
+            if (known != null) {
+                return known;
+            }
+            int group = order[position];
+            int size = groups.sizeOf[group];
+            BigInteger total = BigInteger.ZERO;
+            for (int i = 0; i < tables.length; ) {
+                int same = 1; //tables with the same signature give the same number of ways, so only one of them is tried
+                while (i + same < tables.length && Key.compareSignatures(tables[i], tables[i + same]) == 0) {
+                    same++;
+                }
+                int t = tables[i][0];
+                if (tableSize[t] + size <= groups.seatsPerTable && enemiesAt[group * numTables + t] == 0) {
+                    place(group, t, 1);
+                    BigInteger ways = count(position + 1);
+                    place(group, t, -1);
+                    if (ways == null) {
+                        return null;
+                    }
+                    total = total.add(ways.multiply(BigInteger.valueOf(same)));
+                }
+                i += same;
+            }
+            if (guestsFrom[position + 1] >= freeSeats) {
+                BigInteger ways = count(position + 1);
+                if (ways == null) {
+                    return null;
+                }
+                total = total.add(ways);
+            }
+            memo.put(key, total);
+            return total;
+        }
+
+        /**
+         * Method to count the ways of seating guests with no rules in the seats left: choosing which of them sit down,
+         * then sharing them out between the tables, m! / ((m - F)! * r1! * r2! * ...) for m guests, F free seats and
+         * r1, r2... free seats at each table
+         */
+        private BigInteger waysToSeatTheRest(int position) {
+            int guestsLeft = guestsFrom[position];
+            BigInteger ways = factorials[guestsLeft];
+            BigInteger divisor = factorials[guestsLeft - freeSeats];
+            for (int t = 0; t < groups.numTables; t++) {
+                divisor = divisor.multiply(factorials[groups.seatsPerTable - tableSize[t]]);
+            }
+            return ways.divide(divisor);
+        }
+
+        /**
+         * Method to describe every table which isn't full by what matters to the groups from a position on: how much
+         * room it has, and which of those groups can't go there because of an enemy. Only the groups in the same
+         * connected group of enemies, and the ones with enemies who can't be moved, can have an enemy at a table.
+         * @return for each table, its number followed by its room and the positions of the groups which can't go there,
+         * sorted so that tables which look the same are next to eachother
+         */
+        private int[][] signatures(int position) {
+            int numTables = groups.numTables;
+            int end = componentEnd[position];
+            int[] buffer = new int[2 + (end - position) + fixedEnemies.length];
+            int[][] tables = new int[numTables][];
+            int count = 0;
+            for (int t = 0; t < numTables; t++) {
+                int room = groups.seatsPerTable - tableSize[t];
+                if (room == 0) {
+                    continue;
+                }
+                int size = 0;
+                buffer[size++] = t;
+                buffer[size++] = room;
+                for (int i = position; i < end; i++) {
+                    if (enemiesAt[order[i] * numTables + t] > 0) {
+                        buffer[size++] = i;
+                    }
+                }
+                for (int i : fixedEnemies) {
+                    if (i >= end && enemiesAt[order[i] * numTables + t] > 0) {
+                        buffer[size++] = i;
+                    }
+                }
+                tables[count++] = Arrays.copyOf(buffer, size);
+            }
+            tables = Arrays.copyOf(tables, count);
+            Arrays.sort(tables, Key::compareSignatures);
+            return tables;
+        }
+
+        /**
+         * Method to seat (change 1) or unseat (change -1) a group at a table
+         */
+        private void place(int group, int table, int change) {
+            tableSize[table] += change * groups.sizeOf[group];
+            freeSeats -= change * groups.sizeOf[group];
+            for (int enemy : groups.enemiesOf[group]) {
+                enemiesAt[enemy * groups.numTables + table] += change;
+            }
+        }
+    }
+
+    /**
+     * The key a count is memoised under: the position, and the signatures of the tables without their numbers
+     */
+    private static final class Key {
+
+        private final int[] values;
+        private final int hash;
+
+        private Key(int position, int[][] tables) {
+            int size = 1;
+            for (int[] table : tables) {
+                size += table.length;
+            }
+            values = new int[size];
+            values[0] = position;
+            int i = 1;
+            for (int[] table : tables) {
+                values[i++] = table.length - 2; //how many positions follow, so that two keys can't be mixed up
+                values[i++] = table[1];
+                System.arraycopy(table, 2, values, i, table.length - 2);
+                i += table.length - 2;
+            }
+            hash = Arrays.hashCode(values);
+        }
+
+        /**
+         * Method to compare two table signatures, leaving out the table numbers
+         */
+        private static int compareSignatures(int[] a, int[] b) {
+            return Arrays.compare(a, 1, a.length, b, 1, b.length);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(values, ((Key) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+
+import java.util.Arrays;
+
+/**
+ * An undo log for the guests seated in a plan, for searches which try out placements and take them back again.
+ * Every guest seated through the trail is recorded in the order they were seated, so a search can take a checkpoint,
+ * seat as many guests as it likes, and then roll back to the checkpoint, which takes the guests back out newest first.
+ * Rolling back only touches the guests being taken out and never allocates anything. With a BitsetPlan the guests are
+ * recorded by ID, so they are taken back out in O(1) each without even hashing their names.
+ *
+ * Only the guests seated through the trail are recorded, so guests should not be added to or removed from the plan
+ * in any other way between a checkpoint and rolling back to it. The rules don't need rolling back as well, since
+ * everything Rules keeps is about the guests rather than the plan, and it reads the plan fresh for every check.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class PlanTrail {
+
+    private final IPlan plan;
+    private final BitsetPlan bitsetPlan; //the plan if it is a BitsetPlan, so guests can be recorded by ID, or null
+    private String[] guests; //the guests seated through the trail, oldest first (only used if plan isn't a BitsetPlan)
+    private int[] ids; //their IDs (only used if plan is a BitsetPlan)
+    private int size;
+
+    /**
+     * Constructor for a trail which starts out empty, whatever is already in the plan.
+     *
+     * @param plan the plan to seat the guests in
+     */
+    public PlanTrail(IPlan plan) {
+        this.plan = plan;
+        this.bitsetPlan = plan instanceof BitsetPlan ? (BitsetPlan) plan : null;
+        this.guests = bitsetPlan == null ? new String[16] : null;
+        this.ids = bitsetPlan == null ? null : new int[16];
+        this.size = 0;
+    }
+
+    /**
+     * Method to seat a guest and record it. Like IPlan.addGuestToTable(), a guest who is already seated or a table
+     * which is full leaves the plan alone, and then nothing is recorded.
+     * @param table the table number
+     * @param guest the name of the guest
+     * @return true if the guest was seated, false if the plan was left alone
+     * @throws IndexOutOfBoundsException if the table number given does not match a table
+     * Runtime --> O(1) amortised, the log doubles in size when it runs out of room
+     */
+    public boolean place(int table, String guest) throws IndexOutOfBoundsException {
+        if (bitsetPlan != null) {
+            int id = bitsetPlan.seatGuest(table, guest);
+            if (id < 0) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return true;
+        }
+        if (plan.isGuestPlaced(guest)) {
+            return false;
+        }
+        plan.addGuestToTable(table, guest);
+        if (!plan.isGuestPlaced(guest)) { //the table was full, or the name was blank
+            return false;
+        }
+        if (size == guests.length) {
+            guests = Arrays.copyOf(guests, size * 2);
+        }
+        guests[size++] = guest;
+        return true;
+    }
+
+    /**
+     * Method to mark the point the plan can be rolled back to
+     * @return the checkpoint, which is how many guests have been seated through the trail and not rolled back
+     * Runtime --> O(1)
+     */
+    public int checkpoint() {
+        return size;
+    }
+
+    /**
+     * Method to take every guest seated through the trail since a checkpoint back out of the plan, newest first
+     * @param checkpoint a checkpoint from checkpoint(), which hasn't already been rolled back past
+     * @throws IllegalArgumentException if the checkpoint is negative or later than where the trail is now
+     * Runtime --> O(M) where M is the number of guests taken back out
+     */
+    public void rollbackTo(int checkpoint) throws IllegalArgumentException {
+        if (checkpoint < 0 || checkpoint > size) {
+            throw new IllegalArgumentException("The trail can't be rolled back to " + checkpoint + ", it only has " + size + " guests in it.");
+        }
+        if (bitsetPlan != null) {
+            while (size > checkpoint) {
+                bitsetPlan.unseatId(ids[--size]);
+            }
+            return;
+        }
+        while (size > checkpoint) {
+            plan.removeGuestFromTable(guests[--size]);
+            guests[size] = null; //so the trail doesn't keep hold of names the plan has let go of
+        }
+    }
+
+    /**
+     * Method to return the plan the guests are seated in
+     * @return the plan
+     */
+    public IPlan getPlan() {
+        return plan;
+    }
+}
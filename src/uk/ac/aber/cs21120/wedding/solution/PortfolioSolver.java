@@ -0,0 +1,184 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A solver which races several differently set up Solvers against eachother, each on its own thread.
+ * No one search order is best for every wedding - apart rules are best dealt with by seating the guests with the most
+ * enemies first, big groups by seating them first - so rather than guessing, every strategy is started at once and the
+ * first one to finish wins. Every Solver in the portfolio finds a solution if there is one, so the first answer is
+ * always the right one, whether it is a solution or a proof that there isn't one, and the others are stopped.
+ * They are all stopped as well if the token given to solve() is cancelled or runs out of time.
+ *
+ * The portfolio is the default Solver, three other guest and candidate orderings, plain backtracking without forward
+ * checking, and some random shufflings of the guest list.
+ * Each Solver works on its own copy of the plan, and the winner's guests are copied back into the caller's plan.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class PortfolioSolver extends AbstractSolver {
+
+    private static final long RANDOM_SEED = 20240229L; //fixed, so that the same problem always gets the same portfolio
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private final int randomOrders;
+    private String winner;
+    private List<Set<String>> unsatisfiableClique;
+
+    /**
+     * Constructor for the portfolio solver, with two random shufflings of the guests in the portfolio.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan object to add the guests to
+     * @param rules  holds the rules object to check against the plan, which has to be safe to read from several threads
+     */
+    public PortfolioSolver(String[] guests, IPlan plan, IRules rules) {
+        this(guests, plan, rules, 2);
+    }
+
+    /**
+     * Constructor for the portfolio solver with a chosen number of random shufflings of the guests.
+     *
+     * @param guests       holds the array of guests
+     * @param plan         holds the plan object to add the guests to
+     * @param rules        holds the rules object to check against the plan, which has to be safe to read from several threads
+     * @param randomOrders how many Solvers to add that try the guests in a random order
+     * @throws IllegalArgumentException if randomOrders is negative
+     */
+    public PortfolioSolver(String[] guests, IPlan plan, IRules rules, int randomOrders) throws IllegalArgumentException {
+        if (randomOrders < 0) {
+            throw new IllegalArgumentException("The number of random orders can't be negative.");
+        }
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.randomOrders = randomOrders;
+        this.winner = null;
+        this.unsatisfiableClique = List.of();
+    }
+
+    /**
+     * Method to return which strategy gave the answer to the last call to solve()
+     * @return a description of the winning Solver, or null if solve() hasn't been called
+     */
+    public String getWinner() {
+        return winner;
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, see Solver.getUnsatisfiableClique()
+     * @return the groups of guests who all have to be apart, or an empty list
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Method for solving the problem by racing every Solver in the portfolio.
+     * The caller's plan is only changed if a solution is found, when the winner's guests are added to it.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before it found out
+     * @throws IllegalStateException if every Solver in the portfolio failed with an exception
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) throws IllegalStateException {
+        ParallelSolver.internGuests(guests, plan);
+        CancellationToken stop = token.child();
+        List<String> names = new ArrayList<>();
+        List<Solver> solvers = new ArrayList<>();
+        buildPortfolio(names, solvers);
+
+        ExecutorService pool = Executors.newFixedThreadPool(solvers.size(), task -> {
+            Thread thread = new Thread(task, "portfolio-solver");
+            thread.setDaemon(true); //a Solver that is slow to notice it has been stopped mustn't keep the program running
+            return thread;
+        });
+        try {
+            CompletionService<SolveResult> finished = new ExecutorCompletionService<>(pool);
+            List<Future<SolveResult>> futures = new ArrayList<>();
+            for (Solver solver : solvers) {
+                futures.add(finished.submit(() -> solver.solve(stop)));
+            }
+
+            ExecutionException failure = null;
+            for (int i = 0; i < solvers.size(); i++) {
+                Future<SolveResult> first = finished.take();
+                try {
+                    SolveResult result = first.get();
+                    stop.cancel();
+                    if (result != SolveResult.SOLVED && result != SolveResult.UNSATISFIABLE) { //only the caller's token can have stopped it
+                        return stoppedResult(token);
+                    }
+                    Solver won = solvers.get(futures.indexOf(first));
+                    winner = names.get(futures.indexOf(first));
+                    unsatisfiableClique = won.getUnsatisfiableClique();
+                    if (result == SolveResult.SOLVED) {
+                        ParallelSolver.copyInto(won.getPlan(), plan);
+                    }
+                    return result;
+                }
+                catch (ExecutionException e) { //that Solver broke, so wait for the next one
+                    if (failure == null) failure = e;
+                }
+            }
+            throw new IllegalStateException("Every solver in the portfolio failed.", failure.getCause());
+        }
+        catch (InterruptedException e) {
+            stop.cancel();
+            Thread.currentThread().interrupt();
+            return SolveResult.CANCELLED;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to set up every Solver in the portfolio, each with its own copy of the plan
+     */
+    private void buildPortfolio(List<String> names, List<Solver> solvers) {
+        add(names, solvers, "largest groups first, least constraining candidates first",
+                new Solver(guests, ParallelSolver.copyOf(plan), rules, GuestOrdering.LARGEST_GROUP, CandidateOrdering.LEAST_CONSTRAINING));
+        add(names, solvers, "most constrained guests first, least constraining candidates first",
+                new Solver(guests, ParallelSolver.copyOf(plan), rules, GuestOrdering.MOST_CONSTRAINED, CandidateOrdering.LEAST_CONSTRAINING));
+        add(names, solvers, "most enemies first, candidates in order",
+                new Solver(guests, ParallelSolver.copyOf(plan), rules, GuestOrdering.ENEMY_DEGREE, CandidateOrdering.IN_ORDER));
+
+        Solver plain = new Solver(guests, ParallelSolver.copyOf(plan), rules, GuestOrdering.INPUT_ORDER, CandidateOrdering.IN_ORDER);
+        plain.setForwardChecking(false);
+        add(names, solvers, "guests in order, without forward checking", plain);
+
+        Random random = new Random(RANDOM_SEED);
+        for (int i = 0; i < randomOrders; i++) {
+            List<String> shuffled = new ArrayList<>(Arrays.asList(guests));
+            Collections.shuffle(shuffled, random);
+            add(names, solvers, "guests in random order " + (i + 1),
+                    new Solver(shuffled.toArray(new String[0]), ParallelSolver.copyOf(plan), rules,
+                            GuestOrdering.INPUT_ORDER, CandidateOrdering.LEAST_CONSTRAINING));
+        }
+    }
+
+    private static void add(List<String> names, List<Solver> solvers, String name, Solver solver) {
+        names.add(name);
+        solvers.add(solver);
+    }
+}
@@ -0,0 +1,218 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A solver for when the rules have changed after a plan was made. Rather than seating everyone again from nothing,
+ * it starts from the plan as it is, finds the guests who are now breaking a rule, and only moves them, leaving
+ * everyone else where they are.
+ *
+ * The search is done in rounds, each unseating more of the plan than the last and handing what is left to the Solver,
+ * with everyone still seated staying put (the Solver never moves a guest who is already seated):
+ *  - first only the guests breaking a rule are unseated: one guest out of every pair of enemies at the same table,
+ *    and every seated guest whose group isn't all at the same table
+ *  - then every guest at the tables they were at, and at any tables with a free seat
+ *  - then twice as many tables again each round, picking the tables with the most guests without any rules next,
+ *    since they are the easiest to swap round, until the whole plan is unseated.
+ * The first round which can be solved gives the answer, and since the last round is the whole plan, a problem is only
+ * UNSATISFIABLE if there is no solution at all. Most changes only need the first or second round, which only has a
+ * table or two to search however big the wedding is.
+ *
+ * A rule being taken away can never make a plan break the rules, so if the plan already keeps the rules and is full,
+ * nothing is moved. Any guests without a seat, whether they were on the guest list or have been unseated, are
+ * seated if there is room. If no solution is found, the plan is put back the way it was.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class RepairSolver extends AbstractSolver {
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private Set<String> released;
+    private int rounds;
+
+    /**
+     * Constructor for the repair solver.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan to repair, which may already have any number of guests in it
+     * @param rules  holds the rules object to check against the plan
+     */
+    public RepairSolver(String[] guests, IPlan plan, IRules rules) {
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.released = Set.of();
+    }
+
+    /**
+     * Method to return the guests the last call to solve() unseated to find a solution
+     * @return the guests, which is empty if the plan didn't need repairing
+     */
+    public Set<String> getReleasedGuests() {
+        return released;
+    }
+
+    /**
+     * Method to return how many rounds of unseating the last call to solve() needed
+     * @return the number of rounds, 0 if the plan didn't need repairing
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Method for repairing the plan.
+     * The token is checked by the Solver in every round.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if the plan was repaired, UNSATISFIABLE if there is no solution at all,
+     * or TIMED_OUT or CANCELLED if the search was stopped first
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) {
+        released = Set.of();
+        rounds = 0;
+        int numTables = plan.getNumberOfTables();
+        if (rules.isPlanOK(plan) && isFull()) {
+            return SolveResult.SOLVED;
+        }
+
+        Set<String> everyone = new LinkedHashSet<>(Arrays.asList(guests)); //so that a seated guest who isn't on the list gets their seat back
+        for (int t = 0; t < numTables; t++) {
+            everyone.addAll(plan.getGuestsAtTable(t));
+        }
+        String[] toSeat = everyone.toArray(new String[0]);
+        Map<String, Integer> unseated = new LinkedHashMap<>(); //guest -> the table they were at
+
+        Set<String> breaking = guestsBreakingRules();
+        Set<Integer> tables = new LinkedHashSet<>(); //the tables with someone breaking a rule, or a free seat
+        for (String guest : breaking) {
+            tables.add(plan.getTableOf(guest));
+        }
+        for (int t = 0; t < numTables; t++) {
+            if (plan.getNumberOfGuestsAtTable(t) != plan.getSeatsPerTable()) {
+                tables.add(t);
+            }
+        }
+        List<Integer> others = tablesEasiestFirst(tables);
+        try {
+            int round = 0;
+            while (true) {
+                Set<String> toUnseat = new LinkedHashSet<>();
+                if (round == 0) {
+                    toUnseat.addAll(breaking);
+                }
+                else {
+                    int more = round == 1 ? 0 : Math.min(others.size(), Math.max(1, tables.size()));
+                    tables.addAll(others.subList(0, more));
+                    others = others.subList(more, others.size());
+                    for (int table : tables) {
+                        toUnseat.addAll(plan.getGuestsAtTable(table));
+                    }
+                }
+                for (String guest : toUnseat) {
+                    unseated.put(guest, plan.getTableOf(guest));
+                    plan.removeGuestFromTable(guest);
+                }
+                rounds = round + 1;
+
+                Solver solver = new Solver(toSeat, plan, rules);
+                SolveResult result = solver.solve(token);
+                boolean everything = others.isEmpty() && round >= 1;
+                if (result == SolveResult.SOLVED) {
+                    released = Collections.unmodifiableSet(new HashSet<>(unseated.keySet()));
+                    unseated.clear();
+                    return result;
+                }
+                if (result != SolveResult.UNSATISFIABLE || everything) {
+                    return result;
+                }
+                round++;
+            }
+        }
+        finally {
+            for (Map.Entry<String, Integer> guest : unseated.entrySet()) { //no solution, so put everyone back
+                plan.addGuestToTable(guest.getValue(), guest.getKey());
+            }
+        }
+    }
+
+    /**
+     * Method to check if every seat in the plan has someone in it
+     */
+    private boolean isFull() {
+        for (int t = 0; t < plan.getNumberOfTables(); t++) {
+            if (plan.getNumberOfGuestsAtTable(t) != plan.getSeatsPerTable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to find the guests who are breaking a rule. At each table, a guest with an enemy at the table is picked
+     * out and the rest of the table checked again, so only one out of each pair of enemies is picked. Every seated guest
+     * whose group isn't all at their table is picked, as the group can't stay split up once every table is full.
+     * @return the guests breaking a rule
+     * Runtime --> O(G * (E + M)) where G is the number of seated guests, E their number of enemies and M the size of their group
+     */
+    private Set<String> guestsBreakingRules() {
+        Set<String> breaking = new LinkedHashSet<>();
+        for (int t = 0; t < plan.getNumberOfTables(); t++) {
+            Set<String> table = new HashSet<>(plan.getGuestsAtTable(t));
+            for (String guest : plan.getGuestsAtTable(t)) {
+                for (String enemy : rules.getEnemies(guest)) {
+                    if (table.contains(enemy)) {
+                        breaking.add(guest);
+                        table.remove(guest); //their enemies here don't have to move now
+                        break;
+                    }
+                }
+                for (String member : rules.getGroupMembers(guest)) {
+                    if (plan.getTableOf(member) != t) {
+                        breaking.add(guest);
+                        break;
+                    }
+                }
+            }
+        }
+        return breaking;
+    }
+
+    /**
+     * Method to put the tables which aren't in a set in order of how many guests without any rules they have, most first
+     * @param taken the tables to leave out
+     * @return the other tables
+     */
+    private List<Integer> tablesEasiestFirst(Set<Integer> taken) {
+        List<Integer> tables = new ArrayList<>();
+        int[] easy = new int[plan.getNumberOfTables()];
+        for (int t = 0; t < plan.getNumberOfTables(); t++) {
+            if (taken.contains(t)) {
+                continue;
+            }
+            tables.add(t);
+            for (String guest : plan.getGuestsAtTable(t)) {
+                if (rules.getEnemies(guest).isEmpty() && rules.getGroupSize(guest) == 1) {
+                    easy[t]++;
+                }
+            }
+        }
+        tables.sort((a, b) -> easy[b] - easy[a]);
+        return tables;
+    }
+}
@@ -15,63 +15,54 @@ import java.util.*;
  */
 public class Rules implements IRules {
 
-    private List<Set<String>> friendGroups;
-    private Map<String, Set<String>> guestEnemies;
+    private final GuestRegistry registry; //gives every guest mentioned in a rule an ID for the groups to use
+    private final TogetherGroups friendGroups;
+    private final EnemyMatrix enemies;
+    private final Map<Integer, Map<Integer, Integer>> preferences; //ID -> the IDs they have soft rules with -> the weight
+    private final ThreadLocal<int[]> idBuffers; //each thread's buffer for the IDs of the guests at a table, see idBuffer()
 
     /**
      * Constructor for creating the Rules implementation.
-     * It uses an arrayList for the friend groups and a Hashmap for the enemy lists
+     * It uses a union-find structure for the friend groups and a bit matrix for the enemy lists
      */
     public Rules(){
-        this.friendGroups = new ArrayList<>();
-        this.guestEnemies = new HashMap<>();
+        this(new GuestRegistry());
+    }
+
+    /**
+     * Constructor for creating the Rules implementation with a registry of guests shared with something else
+     * (e.g. a BitsetPlan), so that both agree on which ID belongs to which guest.
+     * @param registry the registry used to turn guest names into IDs
+     */
+    public Rules(GuestRegistry registry){
+        this.registry = registry;
+        this.friendGroups = new TogetherGroups();
+        this.enemies = new EnemyMatrix();
+        this.preferences = new HashMap<>();
+        this.idBuffers = ThreadLocal.withInitial(() -> new int[16]);
     }
 
     /**
      * Method for adding a "friend" rule, where two guests HAVE to be sat at the same table
      * It also makes sure that the guests aren't enemies first, before adding the rule.
+     * The groups of both guests are merged into one, so groups that share a guest always end up together,
+     * unless that would put someone in the same group as one of their enemies.
      * @param a a guest
      * @param b another guest
+     * Runtime --> O(α(n)) amortised (plus moving the smaller group over, see TogetherGroups.union)
      */
     @Override
     public void addMustBeTogether(String a, String b) {
-        boolean friendFound = false;
-        boolean invalidCombination = false;
-        if (guestEnemies.containsKey(a) && guestEnemies.get(a).contains(b)){
+        if (enemies.areEnemies(registry.idOf(a), registry.idOf(b))){
             System.out.println("These guests cannot be together, as they have already been declared enemies.");
         }
         else if (a.equals(b)){
             System.out.println("This rule requires that the guests are different people, otherwise it would be strange"); //checks that the user isn't trying to make a guest friends with itself
         }
-        else{
-            for (Set<String> friendGroup : friendGroups){
-                if (friendGroup.contains(a) || friendGroup.contains(b)){
-                    if (hasEnemy(friendGroup, a) || hasEnemy(friendGroup, b)) {
-                        invalidCombination = true;
-                    }
-                    else{
-                        if (friendGroup.contains(a)){
-                            friendGroup.add(b);
-                        }
-                        else{
-                            friendGroup.add(a);
-                        }
-                        friendFound = true;
-                    }
-                    break;
-                }
-            }
-            if (invalidCombination){ //this will check to make sure that guests aren't enemies with other guests in
-                                        //in that friend group, meaning that the "MUST-HAVE" group doesn't have any contradictions in it
-                System.out.println("These people cannot be sat together " +
-                        "as they will be sitting with enemies at the same table.");
-            }
-            else if (!friendFound){ //if these aren't already in friend groups, it makes a new one
-                Set<String> newGroup = new HashSet<>(2);
-                newGroup.add(a);
-                newGroup.add(b);
-                friendGroups.add(newGroup);
-            }
+        else if (!friendGroups.union(registry.intern(a), registry.intern(b))){ //this will check to make sure that guests aren't enemies with other guests in
+                                                                                //in that friend group, meaning that the "MUST-HAVE" group doesn't have any contradictions in it
+            System.out.println("These people cannot be sat together " +
+                    "as they will be sitting with enemies at the same table.");
         }
     }
 
@@ -95,140 +86,430 @@ public class Rules implements IRules {
     }
 
     /**
-     * Method for checking if two guests are explicitly friends
+     * Method for adding a soft rule that two guests would like to sit together, which a plan scores the weight for keeping.
+     * Unlike the hard rules, it can be added for guests who are enemies, it will just never be kept.
+     * @param a a guest
+     * @param b another guest
+     * @param weight how much it matters
+     * @throws IllegalArgumentException if the weight isn't more than 0, or both guests are the same person
+     * Runtime --> O(1)
+     */
+    @Override
+    public void preferTogether(String a, String b, int weight) throws IllegalArgumentException {
+        checkWeight(weight);
+        addPreference(a, b, weight);
+    }
+
+    /**
+     * Method for adding a soft rule that two guests would rather sit apart, which a plan loses the weight for breaking.
+     * Unlike the hard rules, it can be added for guests in the same friend group, it will just always be broken.
+     * @param a a guest
+     * @param b another guest
+     * @param weight how much it matters
+     * @throws IllegalArgumentException if the weight isn't more than 0, or both guests are the same person
+     * Runtime --> O(1)
+     */
+    @Override
+    public void preferApart(String a, String b, int weight) throws IllegalArgumentException {
+        checkWeight(weight);
+        addPreference(a, b, -weight);
+    }
+
+    /**
+     * Method to make sure the weight given for a soft rule is more than 0
+     * @param weight the weight
+     * @throws IllegalArgumentException if it isn't
+     */
+    private static void checkWeight(int weight) throws IllegalArgumentException {
+        if (weight <= 0){
+            throw new IllegalArgumentException("The weight of a preference has to be more than 0.");
+        }
+    }
+
+    /**
+     * Method for adding to how much two guests sitting together is worth, in both of their maps.
+     * If the weights for the pair cancel out, the pair is taken out of the maps.
      * @param guestA a guest
      * @param guestB another guest
-     * @return true if they are, false if they are not
-     * //Runtime = O(F) + O(1) + O(1) = O(F+2) --> O(F) where F is the number of FriendGroup rules
+     * @param weight the weight to add, positive to keep them together and negative to keep them apart
+     * @throws IllegalArgumentException if both guests are the same person
      */
-    private boolean checkFriends(String guestA, String guestB){
-        for (Set<String> friendGroup: friendGroups){
-            if (friendGroup.contains(guestA) && friendGroup.contains(guestB)){
-                return true;
+    private void addPreference(String guestA, String guestB, int weight) throws IllegalArgumentException {
+        if (guestA.equals(guestB)){
+            throw new IllegalArgumentException("A guest will always be sat with themselves, so this preference doesn't mean anything.");
+        }
+        int a = registry.intern(guestA);
+        int b = registry.intern(guestB);
+        int total = Math.addExact(preferences.getOrDefault(a, Map.of()).getOrDefault(b, 0), weight);
+        for (int[] pair : new int[][]{{a, b}, {b, a}}){
+            Map<Integer, Integer> row = preferences.computeIfAbsent(pair[0], id -> new HashMap<>());
+            if (total == 0){
+                row.remove(pair[1]);
+            }
+            else {
+                row.put(pair[1], total);
             }
         }
-        return false;
+    }
+
+    /**
+     * Method for checking if two guests are explicitly friends (in the same friend group)
+     * @param guestA a guest
+     * @param guestB another guest
+     * @return true if they are, false if they are not
+     * Runtime --> O(α(n)), as good as O(1)
+     */
+    private boolean checkFriends(String guestA, String guestB){
+        int a = registry.idOf(guestA);
+        int b = registry.idOf(guestB);
+        return a >= 0 && b >= 0 && friendGroups.sameGroup(a, b);
     }
 
     /**
      * Method for making two guests enemies.
-     * It means updating both of their enemy sets with eachother's name, or creating a new set if they didn't have one already
+     * It means setting eachother's bit in both of their rows of the enemy matrix,
+     * and telling both guests' friend groups, so the group-level enemy sets stay up to date.
      * @param guestA a guest
      * @param guestB another guest
-     * Runtime O(1) + O(1) + O(1) + O(1) + O(1) + O(1) + O(1) + O(1) = O(8) --> O(1)
+     * Runtime --> O(1) (amortised)
      */
     private void makeEnemies(String guestA, String guestB){
-        Set<String> currentEnemies = guestEnemies.containsKey(guestA)? guestEnemies.get(guestA): new HashSet<>();
-        currentEnemies.add(guestB);
-        guestEnemies.put(guestA, currentEnemies);
-
-        currentEnemies = guestEnemies.containsKey(guestB)? guestEnemies.get(guestB): new HashSet<>();
-        currentEnemies.add(guestA);
-        guestEnemies.put(guestB, currentEnemies);
+        int a = registry.intern(guestA);
+        int b = registry.intern(guestB);
+        enemies.addEnemies(a, b);
+        friendGroups.addEnemies(a, b);
     }
 
     /**
      * Method for checking if the current plan obeys the rules of the Rules implementation.
      * It also contains a bit of code that skips the checking process if there are no explicit enemies
      * or friends beforehand, as this would mean that the seating of the guests didn't matter. (Reduces runtime if there are no rules)
+     * The guests at each table are read into this thread's buffer of IDs (see idBuffer()), and every check after that
+     * works on the buffer. With a Plan or a BitsetPlan sharing our registry nothing is allocated at all (see guestIdsAt);
+     * any other plan costs an iterator over each table.
      * @param p holds the plan to check
      * @return true if the plan holds up with the rules, false if it doesn't
      */
     @Override
     public boolean isPlanOK(IPlan p) {
         int numTables = p.getNumberOfTables();
-        Set<String> guests;
-        if (guestEnemies.size() == 0 && friendGroups.size() == 0){
+        if (enemies.isEmpty() && !friendGroups.hasGroups()){
             return true;
         }
 
         for (int i = 0; i<numTables; i++){
-            guests = p.getGuestsAtTable(i);
-            for (String guest: guests){
-                if (hasEnemy(guests, guest)){
-                    return false;
-                }
-                if ((guests.size() == p.getSeatsPerTable()) && !allFriendsPresent(guests)){
-                    return false;
-                }
+            int[] guests = idBuffer(p.getNumberOfGuestsAtTable(i));
+            int count = guestIdsAt(p, i, guests);
+            if (hasEnemy(p, i, guests, count)){
+                return false;
+            }
+            if ((count == p.getSeatsPerTable()) && !allFriendsPresent(guests, count)){
+                return false;
             }
         }
         return true;
     }
 
+    /**
+     * Method for checking if a single new placement obeys the rules, without looking at the rest of the plan.
+     * Since every other table was already fine, only the table the guest was added to can have changed:
+     * the new guest can't have any enemies there, and if the table has just been filled, the friend groups
+     * of everyone at it have to be complete. Like isPlanOK, nothing is allocated with a Plan or a BitsetPlan sharing our registry.
+     * @param p holds the plan, which the guest has already been added to
+     * @param table the table the guest was added to
+     * @param guest the guest who was added
+     * @return true if the plan still holds up with the rules, false if the new guest breaks them
+     * Runtime --> O(S^2) where S is the number of seats per table (O(S + W) for the enemies if p is a BitsetPlan sharing our registry)
+     */
+    @Override
+    public boolean isPlacementOK(IPlan p, int table, String guest) {
+        if (enemies.isEmpty() && !friendGroups.hasGroups()){
+            return true;
+        }
+
+        int id = registry.idOf(guest);
+        if (sharesRegistry(p)){
+            if (enemies.hasEnemyIn(id, ((BitsetPlan) p).getTableBits(table))){
+                return false;
+            }
+            if (p.getNumberOfGuestsAtTable(table) != p.getSeatsPerTable()){
+                return true;
+            }
+            int[] guests = idBuffer(p.getSeatsPerTable());
+            return allFriendsPresent(guests, guestIdsAt(p, table, guests));
+        }
+
+        int[] guests = idBuffer(p.getNumberOfGuestsAtTable(table));
+        int count = guestIdsAt(p, table, guests);
+        for (int k = 0; k < count; k++){
+            if (enemies.areEnemies(id, guests[k])){
+                return false;
+            }
+        }
+        return count != p.getSeatsPerTable() || allFriendsPresent(guests, count);
+    }
+
     /**
      * Method to check if all the friends are present on the table.
      * If there are no explicit friends together on the table, meaning that the current guests aren't enemies
      * but are still fine with eachother, then the table is also accepted.
-     * @param table holds the table to check
+     * Every guest's group is found once (written over their ID, as the IDs aren't needed after this),
+     * then for each guest we count how many people at the table share their group, which has to be the whole group.
+     * @param table holds the IDs of the guests at the table, which are replaced by their groups
+     * @param count how many guests there are, in the first count places of table
      * @return true if all friends are present/ everyone is content with their seating, false if otherwise
-     * Runtime = O(G) * (O(F) + O(1) + O(1)) = O(G) * O(F+2) = O(GF + 2G) = O(G*F)  where F is the number of friendGroups rules, G is the number of guests
+     * Runtime = O(G) + O(G^2) --> O(G^2) where G is the number of guests at the table
      */
-    private boolean allFriendsPresent(Set<String> table){
-        for (String guest: table){
-            for(Set<String> friendGroup : friendGroups) {
-                if (friendGroup.contains(guest) && !table.containsAll(friendGroup)) {
-                    return false;
+    private boolean allFriendsPresent(int[] table, int count){
+        if (!friendGroups.hasGroups()){
+            return true;
+        }
+        for (int i = 0; i < count; i++){
+            table[i] = friendGroups.find(table[i]); //guests with no rules get -1, which is never anybody's group
+        }
+        for (int g = 0; g < count; g++){
+            if (table[g] < 0){
+                continue;
+            }
+            int present = 0;
+            for (int other = 0; other < count; other++){
+                if (table[other] == table[g]){
+                    present++;
                 }
             }
+            if (present != friendGroups.sizeOf(table[g])){
+                return false;
+            }
         }
         return true;
     }
 
     /**
-     * Method to check if the guest in question has any enemies among the group that in question
-     * @param group holds the group of guests
-     * @param guestToCheck holds the guest to check if they are someone's enemy
-     * @return returns true if they are an enemy of someone, false if not
-     * Runtime = O(G) * (O(1) + O(1)) = O(2G) --> O(G) where G is the number of guests
+     * Method to check if any two guests at a table are enemies.
+     * If the plan is a BitsetPlan sharing our registry, each guest's row of the enemy matrix is ANDed with the table's bitset,
+     * otherwise each pair of guests is looked up in the matrix, which is still just a bit test per pair.
+     * @param p holds the plan
+     * @param table the table number
+     * @param guests holds the IDs of the guests at the table
+     * @param count how many guests there are, in the first count places of guests
+     * @return returns true if someone at the table is an enemy of someone else there, false if not
+     * Runtime --> O(G*W) for a BitsetPlan, O(G^2) otherwise, where G is the number of guests at the table and W the words per bitset
      */
-    private boolean hasEnemy(Set<String> group, String guestToCheck){
-        for (String guest: group){
-            if (guestEnemies.containsKey(guest) && guestEnemies.get(guest).contains(guestToCheck)){
-                return true;
+    private boolean hasEnemy(IPlan p, int table, int[] guests, int count){
+        if (enemies.isEmpty()){
+            return false;
+        }
+        if (sharesRegistry(p)){
+            long[] bits = ((BitsetPlan) p).getTableBits(table);
+            for (int k = 0; k < count; k++){
+                if (enemies.hasEnemyIn(guests[k], bits)){
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int i = 0; i < count; i++){
+            for (int j = i + 1; j < count; j++){
+                if (enemies.areEnemies(guests[i], guests[j])){
+                    return true;
+                }
             }
         }
         return false;
     }
 
-    //ALTERNATE SOLUTION - TRIED TO MERGE MUST-HAVE COMBINATIONS TOGETHER BASED ON COMMON GUESTS, TO FORM ONE BIG MUST-HAVE GROUP
-    //OUTCOME -- SUCCESSFULLY MERGED GROUPS AND RULES TESTS PASSED.
-    /*
-    The reason why this wasn't implemented:
-    This function would've been most efficient if only called once all the rules were created. For this, I would've had to call it in the
-    solver class, when the solve() function was called, as it means that all the rules are added and the guests are ready to be seated.
-    Since the solver class stores the Rules class as an interface rather than the implementation, I could only call the methods that were defined in that interface,
-    so an implementation-specific method wouldn't have been available to call, and we're not allowed to add to the interface methods, ARE we? because that would be oh so bad, wouldn't it? (really jim?) :)
+    /**
+     * Method to get the IDs of the guests at a table.
+     * A BitsetPlan sharing our registry already holds the IDs, so they are read straight out of its bitset without
+     * allocating anything. A Plan's guests are read by their place at the table, which doesn't allocate either, and any
+     * other plan's guests are read from the set it gives back (which costs an iterator). Either way each name is
+     * looked up once (guests without any rules get -1).
+     * @param p holds the plan
+     * @param table the table number
+     * @param ids where to put the IDs, which has to have room for everyone at the table
+     * @return how many guests there are
+     */
+    private int guestIdsAt(IPlan p, int table, int[] ids){
+        int i = 0;
+        if (sharesRegistry(p)){
+            long[] bits = ((BitsetPlan) p).getTableBits(table);
+            for (int w = 0; w < bits.length; w++){
+                long word = bits[w];
+                while (word != 0){
+                    ids[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return i;
+        }
+        if (p instanceof Plan){
+            for (int count = p.getNumberOfGuestsAtTable(table); i < count; i++){
+                ids[i] = registry.idOf(((Plan) p).getGuestAt(table, i));
+            }
+            return i;
+        }
+        for (String guest : p.getGuestsAtTable(table)){
+            ids[i++] = registry.idOf(guest);
+        }
+        return i;
+    }
 
-    Without changing the interfaces:
-    I COULD have called this method from inside the class, but since there is no way of checking when a rule is the final rule to be inputted, I would have to call this method every
-    time a rule was added, drastically increasing the runtime. So it wouldn't have been worth it.
+    /**
+     * Method to return this thread's buffer for the IDs of the guests at a table, growing it if it is too small.
+     * Each thread has its own, as a Rules can be checked against several plans at once (see ParallelSolver),
+     * and after the first few calls it is always big enough, so checking a plan doesn't allocate anything.
+     * @param size how many IDs it has to hold
+     * @return the buffer
+     */
+    private int[] idBuffer(int size){
+        int[] buffer = idBuffers.get();
+        if (buffer.length < size){
+            buffer = new int[Math.max(size, buffer.length * 2)];
+            idBuffers.set(buffer);
+        }
+        return buffer;
+    }
 
+    /**
+     * Method to check if a plan gives out guest IDs from the same registry as these rules, so its bitsets can be used directly
+     * @param p holds the plan
+     * @return true if p is a BitsetPlan using our registry
      */
+    private boolean sharesRegistry(IPlan p){
+        return p instanceof BitsetPlan && ((BitsetPlan) p).getRegistry() == registry;
+    }
 
-    /*public List<Set<String>> organiseGroups(){ //this would've been the method that would've been called in the solver class
-        return mergeGroups(new ArrayList<>(), friendGroups); //kicks off the recursive algorithm with an empty rules list and the list of friend rules in their raw, uncombined state
+    /**
+     * Method to find the representative of a guest's friend group, i.e. the guest at the root of the group.
+     * Two guests must sit together exactly when they have the same representative.
+     * @param guest a guest
+     * @return the guest representing their group (the guest themselves if they have no friend rules)
+     * Runtime --> O(α(n))
+     */
+    @Override
+    public String getGroupOf(String guest) {
+        int id = registry.idOf(guest);
+        return id < 0 ? guest : registry.nameOf(friendGroups.find(id));
     }
 
-    private List<Set<String>> mergeGroups (List<Set<String>> finalList, List<Set<String>> leftoverList){
-        if (leftoverList.isEmpty()) return finalList; //base case - if there are no more uncombined, raw friend groups to look at, return the final updated list with the lovely, satisfying combined connections
+    /**
+     * Method to find how many guests are in a guest's friend group (including them)
+     * @param guest a guest
+     * @return the size of the group, 1 if the guest has no friend rules
+     * Runtime --> O(α(n))
+     */
+    @Override
+    public int getGroupSize(String guest) {
+        return friendGroups.sizeOf(registry.idOf(guest));
+    }
 
-        else{
-            Iterator<Set<String>> iterator = leftoverList.iterator();
-            Set<String> currentSet = iterator.next(); //the first set in the raw, uncombined list is set to the primary set to compare to the others in the list
-
-            while(iterator.hasNext()){ //looks at each following set in the list
-                Set<String> comparedSet = iterator.next();
-                if (!Collections.disjoint(currentSet, comparedSet)){ //if they share any common guests, then by logic, they must ALL sit together
-                    currentSet.addAll(comparedSet); //add the set to the primary set
-                    iterator.remove(); //get rid of the old set from the leftover list, as it's been combined with the primary set and is now redundant
+    /**
+     * Method to return all the guests in a guest's friend group (including them)
+     * @param guest a guest
+     * @return a set of the guests who must sit with them
+     * Runtime --> O(M) where M is the size of the group
+     */
+    @Override
+    public Set<String> getGroupMembers(String guest) {
+        int id = registry.idOf(guest);
+        if (id < 0){
+            return Set.of(guest);
+        }
+        Set<String> group = new HashSet<>();
+        for (int member : friendGroups.membersOf(id)){
+            group.add(registry.nameOf(member));
+        }
+        return group;
+    }
+
+    /**
+     * Method to return all the enemies of a guest, read out of their row of the enemy matrix
+     * @param guest a guest
+     * @return a set of the guests who must be apart from them
+     * Runtime --> O(W + E) where W is the number of words in the guest's row and E is the number of enemies
+     */
+    @Override
+    public Set<String> getEnemies(String guest) {
+        long[] row = enemies.rowOf(registry.idOf(guest));
+        Set<String> guestEnemies = new HashSet<>();
+        for (int w = 0; w < row.length; w++){
+            long word = row[w];
+            while (word != 0){
+                guestEnemies.add(registry.nameOf((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return guestEnemies;
+    }
+
+    /**
+     * Method to return how much a guest sitting with each of the guests they have soft rules with adds to a plan's score
+     * @param guest a guest
+     * @return a map from the other guests to the weights, positive if they prefer to be together and negative if apart
+     * Runtime --> O(P) where P is the number of guests they have soft rules with
+     */
+    @Override
+    public Map<String, Integer> getPreferences(String guest) {
+        Map<Integer, Integer> row = preferences.get(registry.idOf(guest));
+        if (row == null){
+            return Map.of();
+        }
+        Map<String, Integer> guestPreferences = new HashMap<>();
+        for (Map.Entry<Integer, Integer> preference : row.entrySet()){
+            guestPreferences.put(registry.nameOf(preference.getKey()), preference.getValue());
+        }
+        return guestPreferences;
+    }
+
+    /**
+     * Method to work out the score of a plan from the soft rules, by looking up every pair of guests at each table
+     * @param p holds the plan
+     * @return the total weight of the pairs sat together who prefer to be together, less that of the pairs who prefer to be apart
+     * Runtime --> O(T*S^2) where T is the number of tables and S the seats per table
+     */
+    @Override
+    public long getScore(IPlan p) {
+        if (preferences.isEmpty()){
+            return 0;
+        }
+        long score = 0;
+        for (int t = 0; t < p.getNumberOfTables(); t++){
+            int[] guests = idBuffer(p.getNumberOfGuestsAtTable(t));
+            int count = guestIdsAt(p, t, guests);
+            for (int i = 0; i < count; i++){
+                Map<Integer, Integer> row = preferences.get(guests[i]);
+                if (row == null){
+                    continue;
+                }
+                for (int j = i + 1; j < count; j++){
+                    score += row.getOrDefault(guests[j], 0);
                 }
             }
-            finalList.add(currentSet); //once all following lists have been compared and added, the primary set now has all the people that must sit together, so it is added to the final list
-            leftoverList.remove(currentSet); //the primary set is removed from the leftover list, as we don't need to look at it anymore
         }
-        return mergeGroups(finalList, leftoverList); //we call the function again, with the sets that didn't have anything in common with the primary set,
-                                                        so we can see if they have anything common amongst themselves and possibly compare them
-    } */
+        return score;
+    }
+
+    /**
+     * Method to return the registry giving the guests in these rules their IDs
+     * @return the registry
+     */
+    public GuestRegistry getRegistry(){
+        return registry;
+    }
+
+    /**
+     * Method to return the enemy matrix of the guests, by ID, for solvers in this package that work on IDs
+     * @return the matrix of must-be-apart rules
+     */
+    EnemyMatrix getEnemyMatrix(){
+        return enemies;
+    }
 
+    /**
+     * Method to return the together-groups of the guests, by ID, for solvers in this package that work on IDs
+     * @return the union-find structure of the friend groups
+     */
+    TogetherGroups getTogetherGroups(){
+        return friendGroups;
+    }
 }
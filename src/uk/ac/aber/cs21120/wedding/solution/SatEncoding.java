@@ -0,0 +1,427 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The seating problem written as a SAT instance in conjunctive normal form, which can be written out in DIMACS format
+ * for any SAT solver, or solved by CdclSolver (see SatSolver). A model of the formula is turned back into a plan by decodeInto().
+ *
+ * There is one variable for each guest who still needs a seat and each table they could sit at, which is true if they
+ * sit there. Guests who are already seated aren't variables, they just rule out or force the variables around them.
+ *  - each guest sits at one table at most (a sequential counter, or every pair for a few tables), and at one
+ *    table at least if there are only as many guests who can be seated as there are free seats
+ *  - each table ends up with exactly as many new guests as it has free seats (a sequential counter which counts
+ *    both ways, so it can rule out too many and too few)
+ *  - two enemies can't both sit at the same table
+ *  - everyone in a group sits at the same table, or none of them get a seat, since every table ends up full
+ *  - a guest whose group has someone who is neither on the list nor seated can never be seated
+ * Tables which start empty are interchangeable, so they have to be filled in order: a guest can only sit at one of them
+ * if someone earlier on the list sits at the one before. That throws out plans that are the same as another with the
+ * tables renumbered.
+ *
+ * The formula has O(G*T*S) variables and clauses, where G is the number of guests, T the tables and S the seats per table.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class SatEncoding {
+
+    private static final int PAIRWISE_LIMIT = 6; //at-most-one over this many variables or fewer is done pair by pair
+
+    private final IPlan plan;
+    private final int numTables;
+    private final String[] movable; //guests who need a seat, by index
+    private final Map<String, Integer> indexes; //guest who needs a seat -> their index
+    private final int[][] seatVariables; //guest index -> table -> the variable for them sitting there, or 0 if they can't
+    private final List<int[]> clauses;
+    private int numVariables;
+
+    /**
+     * Constructor which encodes the problem of seating a set of guests in a plan
+     * @param guests the guests to be seated (any of them may already be in the plan)
+     * @param plan the plan to seat them in
+     * @param rules the rules they have to follow
+     * Runtime --> O(G*T*S + E*T) where E is the number of enemies the guests have between them
+     */
+    public SatEncoding(String[] guests, IPlan plan, IRules rules) {
+        this.plan = plan;
+        this.numTables = plan.getNumberOfTables();
+        this.clauses = new ArrayList<>();
+        this.numVariables = 0;
+        int seatsPerTable = plan.getSeatsPerTable();
+
+        Set<String> listed = new LinkedHashSet<>(Arrays.asList(guests));
+        List<String> waiting = new ArrayList<>();
+        for (String guest : listed) {
+            if (!plan.isGuestPlaced(guest)) {
+                waiting.add(guest);
+            }
+        }
+        this.movable = waiting.toArray(new String[0]);
+        this.indexes = new HashMap<>();
+        for (int g = 0; g < movable.length; g++) {
+            indexes.put(movable[g], g);
+        }
+        this.seatVariables = new int[movable.length][numTables];
+
+        int[] freeSeats = new int[numTables];
+        int firstInterchangeable = numTables; //the empty tables at the end of the plan
+        for (int t = numTables - 1; t >= 0; t--) {
+            freeSeats[t] = seatsPerTable - plan.getNumberOfGuestsAtTable(t);
+            if (freeSeats[t] == seatsPerTable && firstInterchangeable == t + 1) {
+                firstInterchangeable = t;
+            }
+        }
+
+        for (int g = 0; g < movable.length; g++) {
+            String guest = movable[g];
+            int onlyTable = -1; //where their seated groupmates are, if anywhere
+            boolean seatable = true;
+            for (String member : rules.getGroupMembers(guest)) {
+                int table = plan.getTableOf(member);
+                if (table >= 0) {
+                    seatable &= onlyTable < 0 || onlyTable == table;
+                    onlyTable = table;
+                }
+                else {
+                    seatable &= listed.contains(member);
+                }
+            }
+            boolean[] enemyAt = new boolean[numTables];
+            for (String enemy : rules.getEnemies(guest)) {
+                int table = plan.getTableOf(enemy);
+                if (table >= 0) enemyAt[table] = true;
+            }
+            for (int t = 0; t < numTables && seatable; t++) {
+                if (freeSeats[t] == 0 || (onlyTable >= 0 && t != onlyTable) || enemyAt[t]) {
+                    continue;
+                }
+                if (t >= firstInterchangeable && t - firstInterchangeable > g) { //symmetry: it could be renumbered lower
+                    continue;
+                }
+                seatVariables[g][t] = ++numVariables;
+            }
+            atMostOne(seatVariables[g]);
+        }
+        everyoneSeated(freeSeats);
+
+        encodeSeatedGuests(rules);
+        encodeEnemies(rules);
+        encodeGroups(rules);
+        encodePrecedence(firstInterchangeable);
+        for (int t = 0; t < numTables; t++) {
+            List<Integer> atTable = new ArrayList<>();
+            for (int[] variables : seatVariables) {
+                if (variables[t] != 0) atTable.add(variables[t]);
+            }
+            exactly(atTable.stream().mapToInt(Integer::intValue).toArray(), freeSeats[t]);
+        }
+    }
+
+    /**
+     * Method to add the clauses for the guests who are already seated: any two of them breaking a rule makes the
+     * formula unsatisfiable, and their groupmates who still need a seat have to join them
+     */
+    private void encodeSeatedGuests(IRules rules) {
+        for (int t = 0; t < numTables; t++) {
+            for (String guest : plan.getGuestsAtTable(t)) {
+                for (String enemy : rules.getEnemies(guest)) {
+                    if (plan.getTableOf(enemy) == t) {
+                        clauses.add(new int[0]);
+                    }
+                }
+                for (String member : rules.getGroupMembers(guest)) {
+                    int table = plan.getTableOf(member);
+                    if (table >= 0) {
+                        if (table != t) clauses.add(new int[0]);
+                        continue;
+                    }
+                    int g = indexOf(member);
+                    int variable = g < 0 ? 0 : seatVariables[g][t];
+                    clauses.add(variable == 0 ? new int[0] : new int[]{variable});
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to add a clause for each table two enemies could both sit at
+     */
+    private void encodeEnemies(IRules rules) {
+        for (int g = 0; g < movable.length; g++) {
+            for (String enemy : rules.getEnemies(movable[g])) {
+                int other = indexOf(enemy);
+                if (other <= g) { //each pair once
+                    continue;
+                }
+                for (int t = 0; t < numTables; t++) {
+                    if (seatVariables[g][t] != 0 && seatVariables[other][t] != 0) {
+                        clauses.add(new int[]{-seatVariables[g][t], -seatVariables[other][t]});
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to add the clauses making each guest sit at the same table as the first guest of their group on the list
+     */
+    private void encodeGroups(IRules rules) {
+        for (int g = 0; g < movable.length; g++) {
+            int leader = g;
+            for (String member : rules.getGroupMembers(movable[g])) {
+                int other = indexOf(member);
+                if (other >= 0 && other < leader) leader = other;
+            }
+            if (leader == g) {
+                continue;
+            }
+            for (int t = 0; t < numTables; t++) {
+                int mine = seatVariables[g][t];
+                int theirs = seatVariables[leader][t];
+                if (mine != 0 && theirs != 0) {
+                    clauses.add(new int[]{-mine, theirs});
+                    clauses.add(new int[]{mine, -theirs});
+                }
+                else if (mine != 0) {
+                    clauses.add(new int[]{-mine});
+                }
+                else if (theirs != 0) {
+                    clauses.add(new int[]{-theirs});
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to add the clauses saying a guest can only sit at an empty table if someone earlier on the list sits at
+     * the empty table before it, so the empty tables are always filled in order of their first guest. Every plan can
+     * be renumbered to be like that, so no solutions are lost. used(r, g) is true when someone up to guest g sits at
+     * the r-th empty table, so there are O(G*T) clauses rather than one as long as the list for each guest and table.
+     */
+    private void encodePrecedence(int firstInterchangeable) {
+        int[] usedBefore = new int[movable.length]; //usedBefore[g] = used(r - 1, g - 1) for the table before, or 0 for false
+        for (int t = firstInterchangeable; t < numTables; t++) {
+            int[] used = new int[movable.length];
+            int previous = 0;
+            for (int g = 0; g < movable.length; g++) {
+                int x = seatVariables[g][t];
+                if (x != 0 && t > firstInterchangeable) {
+                    clauses.add(usedBefore[g] == 0 ? new int[]{-x} : new int[]{-x, usedBefore[g]});
+                }
+                if (x == 0) {
+                    used[g] = previous;
+                }
+                else {
+                    used[g] = ++numVariables; //used(r, g) <-> used(r, g - 1) or x
+                    clauses.add(new int[]{-x, used[g]});
+                    if (previous != 0) clauses.add(new int[]{-previous, used[g]});
+                    clauses.add(previous == 0 ? new int[]{-used[g], x} : new int[]{-used[g], previous, x});
+                }
+                previous = used[g];
+            }
+            for (int g = 0; g < movable.length; g++) {
+                usedBefore[g] = g == 0 ? 0 : used[g - 1];
+            }
+        }
+    }
+
+    private int indexOf(String guest) {
+        return indexes.getOrDefault(guest, -1);
+    }
+
+    /**
+     * Method to add clauses saying at most one of some variables is true, with Sinz's sequential counter
+     * (which needs a new variable for each one, apart from the last) or pair by pair if there are only a few
+     */
+    private void atMostOne(int[] variables) {
+        int[] used = Arrays.stream(variables).filter(v -> v != 0).toArray();
+        if (used.length <= PAIRWISE_LIMIT) {
+            for (int i = 0; i < used.length; i++) {
+                for (int j = i + 1; j < used.length; j++) {
+                    clauses.add(new int[]{-used[i], -used[j]});
+                }
+            }
+            return;
+        }
+        int previous = 0; //true if one of the variables before this one is true
+        for (int i = 0; i < used.length; i++) {
+            if (previous != 0) {
+                clauses.add(new int[]{-used[i], -previous});
+            }
+            if (i < used.length - 1) {
+                int some = ++numVariables;
+                clauses.add(new int[]{-used[i], some});
+                if (previous != 0) clauses.add(new int[]{-previous, some});
+                previous = some;
+            }
+        }
+    }
+
+    /**
+     * Method to add a clause for each guest saying they sit somewhere, if there are only as many guests who could sit
+     * anywhere as there are free seats. The table counts already say so, but this way it is found out a table sooner.
+     */
+    private void everyoneSeated(int[] freeSeats) {
+        int seatable = 0;
+        for (int[] variables : seatVariables) {
+            if (Arrays.stream(variables).anyMatch(v -> v != 0)) seatable++;
+        }
+        if (seatable != Arrays.stream(freeSeats).sum()) {
+            return;
+        }
+        for (int[] variables : seatVariables) {
+            int[] somewhere = Arrays.stream(variables).filter(v -> v != 0).toArray();
+            if (somewhere.length > 0) clauses.add(somewhere);
+        }
+    }
+
+    /**
+     * Method to add clauses saying exactly k of some variables are true, with a sequential counter whose registers
+     * r(i, j) are true exactly when at least j of the first i variables are, for j up to k + 1
+     */
+    private void exactly(int[] variables, int k) {
+        if (k > variables.length) {
+            clauses.add(new int[0]);
+            return;
+        }
+        if (k == 0) {
+            for (int variable : variables) {
+                clauses.add(new int[]{-variable});
+            }
+            return;
+        }
+        int counts = k + 1;
+        int[] previous = new int[counts + 1]; //previous[j] = r(i-1, j), 0 meaning false, with r(i-1, 0) always true
+        for (int i = 0; i < variables.length; i++) {
+            int x = variables[i];
+            int[] current = new int[counts + 1];
+            for (int j = 1; j <= Math.min(i + 1, counts); j++) {
+                int register = ++numVariables;
+                current[j] = register;
+                int stays = previous[j]; //r(i-1, j)
+                int below = previous[j - 1]; //r(i-1, j-1), which is always true for j == 1
+                //r(i, j) <-> r(i-1, j) or (r(i-1, j-1) and x)
+                if (stays != 0) clauses.add(new int[]{-stays, register});
+                clauses.add(j == 1 ? new int[]{-x, register} : new int[]{-below, -x, register});
+                clauses.add(stays == 0 ? new int[]{-register, x} : new int[]{-register, stays, x});
+                if (j > 1) clauses.add(stays == 0 ? new int[]{-register, below} : new int[]{-register, stays, below});
+            }
+            previous = current;
+        }
+        clauses.add(previous[k] == 0 ? new int[0] : new int[]{previous[k]});
+        if (previous[counts] != 0) {
+            clauses.add(new int[]{-previous[counts]});
+        }
+    }
+
+    /**
+     * Method to return how many variables the formula has
+     */
+    public int getVariableCount() {
+        return numVariables;
+    }
+
+    /**
+     * Method to return how many clauses the formula has
+     */
+    public int getClauseCount() {
+        return clauses.size();
+    }
+
+    /**
+     * Method to return the variable which is true when a guest sits at a table
+     * @param guest a guest who needs a seat
+     * @param table a table
+     * @return the variable's number, or 0 if they can't sit there (or are already seated)
+     */
+    public int variableOf(String guest, int table) {
+        int g = indexOf(guest);
+        return g < 0 || table < 0 || table >= numTables ? 0 : seatVariables[g][table];
+    }
+
+    /**
+     * Method to return the clauses of the formula, for a solver in this package to load
+     */
+    List<int[]> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Method to write the formula out in DIMACS CNF format. The comments at the top say which variable is which guest at which table.
+     * @param out where to write it
+     * @throws IOException if it can't be written
+     */
+    public void writeDimacs(Writer out) throws IOException {
+        out.write("c seating plan of " + numTables + " tables with " + plan.getSeatsPerTable() + " seats\n");
+        out.write("c seat <variable> <table> <guest>\n");
+        for (int g = 0; g < movable.length; g++) {
+            for (int t = 0; t < numTables; t++) {
+                if (seatVariables[g][t] != 0) {
+                    out.write("c seat " + seatVariables[g][t] + " " + t + " " + movable[g] + "\n");
+                }
+            }
+        }
+        out.write("p cnf " + numVariables + " " + clauses.size() + "\n");
+        StringBuilder line = new StringBuilder();
+        for (int[] clause : clauses) {
+            line.setLength(0);
+            for (int literal : clause) {
+                line.append(literal).append(' ');
+            }
+            out.write(line.append("0\n").toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Method to seat the guests in a plan the way a model of the formula says
+     * @param plan the plan to seat them in, which should be the one that was encoded (or a copy of it)
+     * @param model the value of every variable, by number (index 0 isn't used), as CdclSolver.getModel() gives them
+     */
+    public void decodeInto(IPlan plan, boolean[] model) {
+        for (int g = 0; g < movable.length; g++) {
+            for (int t = 0; t < numTables; t++) {
+                if (seatVariables[g][t] != 0 && model[seatVariables[g][t]]) {
+                    plan.addGuestToTable(t, movable[g]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to take the guests seated by decodeInto() back out of a plan
+     * @param plan the plan they were seated in
+     */
+    void removeFrom(IPlan plan) {
+        for (String guest : movable) {
+            plan.removeGuestFromTable(guest);
+        }
+    }
+
+    /**
+     * Method to return a clause which rules out the seating a model gives, so another one has to be found
+     * @param model the value of every variable, by number
+     * @return the negations of the true seat variables
+     */
+    int[] blockingClause(boolean[] model) {
+        List<Integer> seated = new ArrayList<>();
+        for (int[] variables : seatVariables) {
+            for (int variable : variables) {
+                if (variable != 0 && model[variable]) seated.add(-variable);
+            }
+        }
+        return seated.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,106 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.interfaces.IRules;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A solver which writes the problem as a SAT instance (see SatEncoding) and solves it with the built-in CDCL solver,
+ * so it learns a clause from every dead end rather than running into the same one again somewhere else in the search.
+ * Like the Solver it is complete: it finds a solution if there is one, and proves it if there isn't.
+ *
+ * The same checks as the Solver are done first. The formula only knows about the rules the IRules object lists
+ * (enemies and groups), so a model is only kept if isPlanOK agrees with it - if it doesn't, a clause ruling that
+ * seating out is added and the CDCL solver carries on from where it was, keeping everything it has learned.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class SatSolver extends AbstractSolver {
+
+    private final String[] guests;
+    private final IPlan plan;
+    private final IRules rules;
+    private List<Set<String>> unsatisfiableClique;
+    private long conflicts;
+
+    /**
+     * Constructor for the SAT solver.
+     *
+     * @param guests holds the array of guests
+     * @param plan   holds the plan object to add the guests to
+     * @param rules  holds the rules object to check against the plan
+     */
+    public SatSolver(String[] guests, IPlan plan, IRules rules) {
+        this.guests = guests;
+        this.plan = plan;
+        this.rules = rules;
+        this.unsatisfiableClique = List.of();
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, see Solver.getUnsatisfiableClique()
+     * @return the groups of guests who all have to be apart, or an empty list
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Method to return how many conflicts the CDCL solver ran into during the last call to solve()
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Method for solving the problem as a SAT instance.
+     * The token is checked every few hundred conflicts and decisions of the CDCL search.
+     *
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before it found out
+     */
+    @Override
+    public SolveResult solve(CancellationToken token) {
+        unsatisfiableClique = List.of();
+        conflicts = 0;
+        CapacityCheck capacity = new CapacityCheck(guests, plan, rules);
+        if (!capacity.mightFit()) {
+            return SolveResult.UNSATISFIABLE;
+        }
+        EnemyGraphCheck enemyGraph = new EnemyGraphCheck(guests, plan, rules, capacity);
+        if (!enemyGraph.mightFit()) {
+            unsatisfiableClique = enemyGraph.getClique();
+            return SolveResult.UNSATISFIABLE;
+        }
+
+        SatEncoding encoding = new SatEncoding(guests, plan, rules);
+        CdclSolver sat = new CdclSolver(encoding.getVariableCount());
+        for (int[] clause : encoding.getClauses()) {
+            sat.addClause(clause);
+        }
+        try {
+            while (true) {
+                Boolean satisfiable = sat.solve(token);
+                if (satisfiable == null) {
+                    return stoppedResult(token);
+                }
+                if (!satisfiable) {
+                    return SolveResult.UNSATISFIABLE;
+                }
+                encoding.decodeInto(plan, sat.getModel());
+                if (rules.isPlanOK(plan)) {
+                    return SolveResult.SOLVED;
+                }
+                encoding.removeFrom(plan); //the rules have something the formula doesn't, so look for another seating
+                sat.addClause(encoding.blockingClause(sat.getModel()));
+            }
+        }
+        finally {
+            conflicts = sat.getConflicts();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+/**
+ * The possible outcomes of trying to solve a plan with a time limit or a way to cancel it.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public enum SolveResult {
+
+    /**
+     * A solution was found and is in the plan.
+     */
+    SOLVED,
+
+    /**
+     * The whole search was done and there is no solution. The plan is left as it was.
+     */
+    UNSATISFIABLE,
+
+    /**
+     * The time limit ran out before the search finished, so it isn't known if there is a solution. The plan is left as it was.
+     */
+    TIMED_OUT,
+
+    /**
+     * The search was cancelled before it finished, so it isn't known if there is a solution. The plan is left as it was.
+     */
+    CANCELLED,
+
+    /**
+     * An incomplete solver (see LocalSearchSolver) used up all of its steps without finding a solution, so it isn't
+     * known if there is one. The plan is left as it was.
+     */
+    GAVE_UP
+}
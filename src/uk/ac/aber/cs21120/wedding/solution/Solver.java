@@ -2,77 +2,1330 @@ package uk.ac.aber.cs21120.wedding.solution;
 
 import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
 import uk.ac.aber.cs21120.wedding.interfaces.IRules;
-import uk.ac.aber.cs21120.wedding.interfaces.ISolver;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 /**
  * Class to blueprint the solver for solving the wedding planner problem
- * It contains the methods needed for solving such a problem, given by the ISolver interface.
+ * It contains the methods needed for solving such a problem, given by the ISolver interface,
+ * and can be given a time limit or cancelled through the methods of AbstractSolver.
  *
  * @author Owain Gibson
  * @version 1.0
  */
-public class Solver implements ISolver {
+public class Solver extends AbstractSolver {
+
+    private static final long ZOBRIST_SEED = 0x5EA7C0DEL; //fixed, so that a search always goes the same way
+    //how a level of the search stands, see search()
+    private static final int FRAME_READY = 0; //it has candidates left to try
+    private static final int FRAME_FAILED = 1; //it has failed, so its parent takes its own candidate back out
+    private static final int PLAN_FILLED = 2; //every seat is filled, so the search is over
+    private static final int NOGOOD_CAPACITY = 4096; //how many nogoods are kept before old ones are thrown out
+    private static final int MAX_NOGOOD_SIZE = 8; //longer nogoods almost never come up again, and looking them up costs more than they save
+    //why a table was taken out of a domain, when it wasn't a single placement (which is recorded as its depth)
+    private static final int FULL = -1; //the table filled up, so every placement at it is to blame
+    private static final int FIXED = -2; //it was never in the domain, or was taken out before the search started
+    private static final int CLEARED_BELOW = -3; //CLEARED_BELOW - k: emptied by table symmetry, every placement above depth k is to blame
 
     private String[] guests;
     private IPlan plan;
     private IRules rules;
+    private GuestOrdering guestOrdering;
+    private CandidateOrdering candidateOrdering;
+    private boolean forwardChecking;
+    private long transpositionBytes; //how much memory the transposition table can use, 0 if it is turned off
+    private boolean backjumping;
+    private List<Set<String>> unsatisfiableClique; //the enemies that proved the last solve() had no solution, if there were any
+
+    //search state, set up fresh by every call to solve(). Guests are referred to by their position in order.
+    private String[] order; //the guests in the order the guestOrdering strategy wants them tried
+    private int[][] enemiesOf; //position -> positions of that guest's enemies
+    private int[][] matesOf; //position -> positions of the rest of that guest's must-be-together group
+    private int[] groupOf; //position -> number of that guest's must-be-together group
+    private int[] groupTable; //group number -> the table its seated members are at, or -1 if none are seated
+    private int[] groupSeated; //group number -> how many of its members are seated
+    private boolean[] placed;
+    private PlanTrail planTrail; //the guests the search has seated in the plan, so a failed placement can be rolled back
+    private int[] tableSizes;
+    private int firstInterchangeableTable; //every table from here on was empty when solve() was called, so they are all the same
+    private int words; //how many longs each domain takes up
+    private long[] domains; //the tables each guest can still join, as a bitset of words longs per guest
+    private int[] trailSlots; //every change to domains, so any level of the search can put them back the way they were
+    private long[] trailValues;
+    private int trailSize;
+    private int availableGuests; //guests who aren't placed and still have a table they can join
+    private int freeSeats;
+    private int[] seatedPositions; //the guests seated by the search so far, in the order they were seated
+    private int[] seatedTables; //the tables they were seated at
+    private int depth; //how many guests the search has seated
+    private int[] excluded; //the guests ruled out of the empty tables by the levels of the search still open, oldest first
+    private int excludedSize;
+    private Frame[] frames; //depth -> the level of the search seating a guest at that depth, made the first time it is reached
+    private CancellationToken stop; //when this is cancelled the search gives up, or null if it can't be stopped
+    private boolean stopped; //true if the search gave up because of stop
+    private List<int[]> branches; //where the branches are collected by expand(), null the rest of the time
+    private int branchDepth; //how many guests are seated in the branches expand() is collecting
+
+    //transposition table state. A fingerprint is the XOR of a random key for every guest seated by the search, every
+    //guest seated by the search at the table being filled, and every guest with an empty domain.
+    private TranspositionTable deadEnds; //null if it is turned off
+    private long[] seatedKeys; //position -> key for being seated at any table
+    private long[] tableKeys; //position -> key for being seated at the table being filled
+    private long[] emptyKeys; //position -> key for having an empty domain
+    private long seatedHash;
+    private long[] tableHashes; //table -> XOR of the tableKeys of the guests seated there by the search
+    private long emptyHash;
+
+    //backjumping state, all null if it is turned off. A set of placements is a bitset over depth, bit k meaning the
+    //guest at seatedPositions[k].
+    private int[] depthOf; //position -> where in seatedPositions the search seated them, or -1
+    private int[] tableOf; //position -> the table they are at, or -1 if they aren't seated
+    private int[] wiped; //the guests whose domains have gone empty, in the order it happened
+    private int wipedSize;
+    private int fixedWiped; //how many of those were emptied before the search started
+    private int conflictWords; //how many longs each set takes up
+    private long[][] conflicts; //depth -> the placements to blame for the last failure at that depth
+    private long[][] tableDepths; //table -> the placements made at it by the search
+    private int[] reasons; //position * tables + table -> why that table was taken out of the guest's domain, see blameRemoval()
+    private NogoodStore nogoods;
 
     /**
-     * Constructor for creating the Solver implementation, it holds all the necessary variables for solving the problem
+     * Constructor for creating the Solver implementation, it holds all the necessary variables for solving the problem.
+     * It uses the default search strategies, guests in the largest groups first and least-constraining candidates first,
+     * which needs fewer placements than the input order on every one of the SolverTests problems.
+     * Forward checking is turned on, and the transposition table and backjumping are turned off.
      *
      * @param guests holds the array of guests
      * @param plan   holds the plan object to add to/remove guests from
      * @param rules  holds the rules object to check against the plan
      */
     public Solver(String[] guests, IPlan plan, IRules rules) {
+        this(guests, plan, rules, GuestOrdering.LARGEST_GROUP, CandidateOrdering.LEAST_CONSTRAINING);
+    }
+
+    /**
+     * Constructor for creating the Solver implementation with chosen search strategies.
+     * Forward checking is turned on, and the transposition table and backjumping are turned off.
+     *
+     * @param guests            holds the array of guests
+     * @param plan              holds the plan object to add to/remove guests from
+     * @param rules             holds the rules object to check against the plan
+     * @param guestOrdering     the order the guests are seated in
+     * @param candidateOrdering the order candidates for each seat are tried in
+     */
+    public Solver(String[] guests, IPlan plan, IRules rules, GuestOrdering guestOrdering, CandidateOrdering candidateOrdering) {
         this.guests = guests;
         this.plan = plan;
         this.rules = rules;
+        this.guestOrdering = guestOrdering;
+        this.candidateOrdering = candidateOrdering;
+        this.forwardChecking = true;
+        this.transpositionBytes = 0;
+        this.backjumping = false;
+        this.unsatisfiableClique = List.of();
+    }
+
+    /**
+     * Method to turn forward checking on or off.
+     * With forward checking, every guest who isn't seated keeps a domain of the tables they could still legally join.
+     * Seating a guest takes their table out of their enemies' domains, narrows their groupmates' domains down to
+     * just that table, and takes a table out of everyone's domain once it is full. A branch is abandoned as soon as
+     * that leaves too few guests with anywhere to go, rather than when the search finally runs into it.
+     * @param forwardChecking true to use forward checking
+     */
+    public void setForwardChecking(boolean forwardChecking) {
+        this.forwardChecking = forwardChecking;
+    }
+
+    /**
+     * Method to set how much memory the transposition table can use, or to turn it off. It is off by default.
+     * Seating guests in a different order often gets the search back to a state it has already been in: the same
+     * guests seated, the same ones at the table being filled, and the same ones with nowhere left to go. Which full
+     * table anyone is at doesn't matter any more, as only the table being filled and the empty ones after it are left.
+     * Every state the search finds to be a dead end has its Zobrist fingerprint kept in the table (which is updated
+     * with every guest added and removed, so it costs nothing to work out), so getting back to it is given up on in O(1).
+     * The table grows up to the given size and then forgets old dead ends to make room for new ones.
+     * It is only used with the normal Rules, since other rules might look at the full tables as well.
+     *
+     * It pays off most without forward checking, which would otherwise have cut most of those states off already by
+     * emptying domains. With forward checking on, keeping the fingerprints up to date costs about what it saves.
+     * @param bytes the memory to use, or 0 to turn it off
+     * @throws IllegalArgumentException if bytes is negative
+     */
+    public void setTranspositionTableSize(long bytes) throws IllegalArgumentException {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("The transposition table can't have a negative size.");
+        }
+        this.transpositionBytes = bytes;
+    }
+
+    /**
+     * Method to turn conflict-directed backjumping (and the nogoods it learns) on or off. It is off by default.
+     * Every time a branch fails, the search works out which of the placements above it were to blame - the enemy
+     * already at the table, the placements that emptied a guest's domain, and so on. When a guest is taken back out
+     * and they weren't one of the ones to blame, trying the other guests in that seat would fail the same way, so the
+     * search jumps straight back up to the deepest placement that was. Failures to fill an empty table are also kept
+     * as nogoods, so a later branch making the same placements again is given up on straight away.
+     *
+     * Because this search fills seats rather than placing guests, the guest in the seat above a failure is almost
+     * always to blame: at the same table they decide which guests can come after them, and at a new table they could
+     * have taken the seat that failed if they hadn't been seated. The search only jumps when they couldn't have,
+     * because something else had already taken the new table out of their domain. So on most plans working out the
+     * blame costs more than it saves, which is why it isn't on by default.
+     * @param backjumping true to use backjumping
+     */
+    public void setBackjumping(boolean backjumping) {
+        this.backjumping = backjumping;
+    }
+
+    /**
+     * Method to return how many nogoods the last search had learned when it finished
+     * @return the number of nogoods in the store, or 0 if backjumping was off
+     */
+    public int getNogoodCount() {
+        return nogoods == null ? 0 : nogoods.size();
+    }
+
+    /**
+     * Method to return the reason the last call to solve() gave up before searching, if it was because of the apart rules
+     * @return the groups of guests (a guest with no friend rules is a group of their own) where someone in every group
+     * is an enemy of someone in every other group, and there are too many of them for the tables. Empty if solve()
+     * hasn't been called, found a solution, or had to search to find out there wasn't one.
+     */
+    public List<Set<String>> getUnsatisfiableClique() {
+        return unsatisfiableClique;
+    }
+
+    /**
+     * Constructor for a copy of a Solver that has already been prepared, to search part of the same problem on its own plan.
+     * Everything that doesn't change during the search is shared with the original, so the original MUST NOT call
+     * prepare() again while the copy is in use.
+     *
+     * @param prepared a Solver which prepare() has been called on
+     * @param plan     a copy of the plan the original was prepared with, as it was before any searching
+     */
+    Solver(Solver prepared, IPlan plan) {
+        this(prepared.guests, plan, prepared.rules, prepared.guestOrdering, prepared.candidateOrdering);
+        this.forwardChecking = prepared.forwardChecking;
+        this.transpositionBytes = prepared.transpositionBytes;
+        this.order = prepared.order;
+        this.enemiesOf = prepared.enemiesOf;
+        this.matesOf = prepared.matesOf;
+        this.groupOf = prepared.groupOf;
+        this.firstInterchangeableTable = prepared.firstInterchangeableTable;
+        this.words = prepared.words;
+        this.groupTable = prepared.groupTable.clone();
+        this.groupSeated = prepared.groupSeated.clone();
+        this.placed = prepared.placed.clone();
+        this.planTrail = new PlanTrail(plan);
+        this.tableSizes = prepared.tableSizes.clone();
+        this.domains = prepared.domains.clone();
+        this.trailSlots = new int[64];
+        this.trailValues = new long[64];
+        this.trailSize = 0;
+        this.availableGuests = prepared.availableGuests;
+        this.freeSeats = prepared.freeSeats;
+        this.seatedPositions = new int[order.length];
+        this.seatedTables = new int[order.length];
+        this.excluded = new int[order.length];
+        this.excludedSize = 0;
+        this.depth = 0;
+        this.frames = new Frame[order.length + 1];
+        this.deadEnds = prepared.deadEnds; //shared, so a dead end found by one copy is skipped by all of them
+        this.seatedKeys = prepared.seatedKeys;
+        this.tableKeys = prepared.tableKeys;
+        this.emptyKeys = prepared.emptyKeys;
+        this.seatedHash = prepared.seatedHash;
+        this.tableHashes = prepared.tableHashes == null ? null : prepared.tableHashes.clone();
+        this.emptyHash = prepared.emptyHash;
+        this.backjumping = prepared.backjumping;
+        setUpBackjumping(); //everything taken out of a domain while preparing is FIXED, so the reasons start from scratch
+        if (backjumping) {
+            this.tableOf = prepared.tableOf.clone();
+            this.wiped = prepared.wiped.clone();
+            this.wipedSize = prepared.wipedSize;
+            this.fixedWiped = prepared.fixedWiped;
+        }
     }
 
     /**
      * Method for solving the problem.
-     * It uses back-tracking to recursively add/remove guests from the plan, making sure that every guest
+     * It uses back-tracking to add/remove guests from the plan, making sure that every guest
      * is seated on a table with no enemies, but also with people that they are friends with.
+     * Each move is checked on its own with isPlacementOK, and the whole plan is only checked by isPlanOK
+     * once every seat has been filled. The token is checked before every move.
      *
-     * @return true if the current implementation of the problem is solvable given the guests and rules, false if not
+     * @param token the token to check while searching
+     * @return SOLVED if a solution was found, UNSATISFIABLE if there isn't one,
+     * or TIMED_OUT or CANCELLED if the search was stopped before it found out
      */
     @Override
-    public boolean solve() {
+    public SolveResult solve(CancellationToken token) {
+        if (!prepare()) {
+            return SolveResult.UNSATISFIABLE;
+        }
+        setStop(token);
+        try {
+            if (search(-1, -1)) {
+                return SolveResult.SOLVED;
+            }
+        }
+        finally {
+            stop = null;
+        }
+        return stopped ? stoppedResult(token) : SolveResult.UNSATISFIABLE;
+    }
+
+    /**
+     * Method to get everything ready for the search: the checks that can rule the problem out before searching,
+     * the guest order, and each guest's enemies, groupmates and domain.
+     * @return false if the checks found that there is no solution, true if the search needs to be run
+     */
+    boolean prepare() {
         int numTables = plan.getNumberOfTables();
         int seatsPerTable = plan.getSeatsPerTable();
-        boolean result;
-        int unfilledSeats;
-
-        for (int tableNumber = 0; tableNumber < numTables; tableNumber++) {
-            Set<String> currentTable = plan.getGuestsAtTable(tableNumber);
-            unfilledSeats = seatsPerTable - currentTable.size();
-
-            for (int i = 0; i < unfilledSeats; i++) {
-
-                for (String guest : guests) {
-
-                    if (!plan.isGuestPlaced(guest)) {
-                        plan.addGuestToTable(tableNumber, guest);
-                        if (rules.isPlanOK(plan)) {
-                            result = solve();
-                            if (result) {
-                                return true;
-                            }
-                        }
-                        plan.removeGuestFromTable(guest);
+
+        unsatisfiableClique = List.of();
+        CapacityCheck capacity = new CapacityCheck(guests, plan, rules);
+        if (!capacity.mightFit()) { //the groups can't fit on the tables, whoever is enemies with who
+            return false;
+        }
+        EnemyGraphCheck enemyGraph = new EnemyGraphCheck(guests, plan, rules, capacity);
+        if (!enemyGraph.mightFit()) { //too many groups who all have to be apart for the tables there are
+            unsatisfiableClique = enemyGraph.getClique();
+            return false;
+        }
+
+        tableSizes = new int[numTables];
+        firstInterchangeableTable = numTables;
+        freeSeats = 0;
+        for (int tableNumber = numTables - 1; tableNumber >= 0; tableNumber--) {
+            tableSizes[tableNumber] = plan.getNumberOfGuestsAtTable(tableNumber);
+            if (tableSizes[tableNumber] == 0 && firstInterchangeableTable == tableNumber + 1) {
+                firstInterchangeableTable = tableNumber;
+            }
+            freeSeats += seatsPerTable - tableSizes[tableNumber];
+        }
+
+        order = guestOrdering.order(guests, plan, rules);
+        int n = order.length;
+        placed = new boolean[n];
+        planTrail = new PlanTrail(plan);
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (positions.putIfAbsent(order[i], i) != null) {
+                placed[i] = true; //a guest listed twice only gets seated once, so the copy is treated as already seated
+            }
+        }
+
+        groupOf = new int[n];
+        enemiesOf = new int[n][];
+        matesOf = new int[n][];
+        Map<String, Integer> groupNumbers = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            groupOf[i] = groupNumbers.computeIfAbsent(rules.getGroupOf(order[i]), g -> groupNumbers.size());
+            enemiesOf[i] = positionsOf(rules.getEnemies(order[i]), positions, i);
+            matesOf[i] = rules.getGroupSize(order[i]) > 1 ? positionsOf(rules.getGroupMembers(order[i]), positions, i) : new int[0];
+        }
+        groupTable = new int[groupNumbers.size()];
+        groupSeated = new int[groupNumbers.size()];
+        Arrays.fill(groupTable, -1);
+
+        words = (numTables + 63) >>> 6;
+        domains = new long[n * words];
+        trailSlots = new int[64];
+        trailValues = new long[64];
+        trailSize = 0;
+        seatedPositions = new int[n];
+        seatedTables = new int[n];
+        excluded = new int[n];
+        excludedSize = 0;
+        depth = 0;
+        frames = new Frame[n + 1];
+        setUpTranspositionTable();
+        setUpBackjumping();
+        for (int i = 0; i < n; i++) {
+            if (!capacity.isSeatable(order[i])) {
+                continue; //their group can never fill a table, so they start with nowhere to go
+            }
+            for (int tableNumber = 0; tableNumber < numTables; tableNumber++) {
+                if (tableSizes[tableNumber] < seatsPerTable) {
+                    domains[i * words + (tableNumber >>> 6)] |= 1L << tableNumber;
+                }
+            }
+        }
+
+        availableGuests = 0;
+        for (int i = 0; i < n; i++) {
+            int table = placed[i] ? -1 : plan.getTableOf(order[i]);
+            if (table >= 0) {
+                placed[i] = true;
+                if (groupSeated[groupOf[i]]++ == 0) {
+                    groupTable[groupOf[i]] = table;
+                }
+                if (backjumping) {
+                    tableOf[i] = table;
+                }
+            }
+            else if (!placed[i] && !isDomainEmpty(i)) {
+                availableGuests++;
+            }
+        }
+        if (forwardChecking) { //anyone already seated narrows down the domains before the search starts
+            for (int i = 0; i < n; i++) {
+                if (placed[i] && positions.get(order[i]) == i) {
+                    propagate(i, plan.getTableOf(order[i]), FIXED);
+                }
+            }
+        }
+        fixedWiped = wipedSize;
+        return true;
+    }
+
+    /**
+     * Method to give the search a token which stops it when cancelled, so that it can be stopped from another thread
+     * @param stop the token, or null for a search that can't be stopped
+     */
+    void setStop(CancellationToken stop) {
+        this.stop = stop;
+        this.stopped = false;
+    }
+
+    /**
+     * Method to check if the last search gave up because its token was cancelled, rather than because it had tried everything
+     * @return true if the search was stopped
+     */
+    boolean wasStopped() {
+        return stopped;
+    }
+
+    /**
+     * Method to seat guests the way the search would have, to get to the start of a branch, and to rule out of the
+     * empty tables the guests the search would have ruled out by then.
+     * @param branch the guests' positions in the order and their tables, one after the other, as given by expand(),
+     * where a table of -1 means the guest was ruled out rather than seated
+     * @return true if every guest in the branch was seated, false if the plan wouldn't take one of them, which
+     * leaves the branch only partly seated and not worth searching
+     */
+    boolean replay(int[] branch) {
+        for (int k = 0; k < branch.length; k += 2) {
+            if (branch[k + 1] < 0) {
+                exclude(branch[k], FIXED); //the level that ruled them out is above the branch, so it can't be jumped back to
+                continue;
+            }
+            if (!planTrail.place(branch[k + 1], order[branch[k]])) {
+                return false;
+            }
+            seat(branch[k], branch[k + 1]);
+            if (forwardChecking) {
+                propagate(branch[k], branch[k + 1], depth - 1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to find the branches one guest further down the search from where it is now.
+     * It runs the normal search but stops one seat down, so the branches are exactly the ones search() would have tried.
+     * When the seat is the first at an empty table, each guest is ruled out of the empty tables for the branches after
+     * their own, just like search() does once they have failed there. That is safe even though their branch hasn't been
+     * searched yet: if it has a solution, it will be found when their own branch is searched.
+     * @param found where to add each branch, as the positions and tables of every guest seated by the search so far,
+     * followed by every guest ruled out so far with a table of -1
+     * @return true if the plan was filled on the way (which only happens when there are no seats left to fill)
+     */
+    boolean expand(List<int[]> found) {
+        branches = found;
+        branchDepth = depth + 1;
+        try {
+            return search(lastTable(), lastIndex());
+        }
+        finally {
+            branches = null;
+        }
+    }
+
+    /**
+     * Method to carry on the search from where it is now, normally after replay()
+     * @return true if the remaining seats could be filled, false if not (or if the search was stopped)
+     */
+    boolean searchFromHere() {
+        return search(lastTable(), lastIndex());
+    }
+
+    /**
+     * Method to return the plan this Solver is filling in
+     */
+    IPlan getPlan() {
+        return plan;
+    }
+
+    private int lastTable() {
+        return depth == 0 ? -1 : seatedTables[depth - 1];
+    }
+
+    private int lastIndex() {
+        return depth == 0 ? -1 : seatedPositions[depth - 1];
+    }
+
+    /**
+     * The search behind solve(). It finds the first table with a free seat and tries every guest who isn't
+     * placed yet in that seat, going a level deeper after each guest that doesn't break the rules.
+     *
+     * Rather than recursing, each level of the search has a Frame on an explicit stack (see frameAt()), which keeps
+     * which table it is filling, which candidate it is on and what has to be undone, so the search can go as deep as
+     * there are guests without running out of thread stack. Going a level deeper opens a new frame, and a level which
+     * fails is popped off, taking its parent's candidate back out before the parent carries on with its next one.
+     * Every table before the one a level is filling is full, and seating guests never empties a table, so a new
+     * frame looks for a free seat from its parent's table onwards rather than from the first table.
+     *
+     * All tables have the same number of seats, so tables which are still empty are interchangeable - a plan that
+     * works with some guest at one empty table works just as well with that table's guests moved to another empty
+     * table. So when the first seat of an empty table is being filled (and every table after it is empty too) and
+     * a guest turns out not to work there, they can't work on any of the other empty tables either. Instead of
+     * trying them on every one of those tables again, that guest's domain is emptied for the rest of this branch.
+     * Without this, proving that a problem can't be solved repeats the same work for every ordering of the tables.
+     *
+     * The order guests sit in at a table doesn't matter either, so each table is filled as a combination rather than
+     * a permutation: the guests seated at a table by the search always have increasing positions in the guest order.
+     * A table of {A B C} is then only ever built as A, B, C and never again as B, A, C or C, A, B.
+     * The candidateOrdering strategy only changes which of those combinations are tried first.
+     *
+     * With forward checking, once every guest left has to be seated, a guest whose domain is down to just this table
+     * has to be seated here, so the search can't go past them to guests later in the order.
+     *
+     * States which have already been found to be dead ends, after getting there by a different route, are given up
+     * on straight away (see setTranspositionTableSize()).
+     *
+     * With backjumping, every failure leaves the placements to blame for it in the conflict set for its depth, and a
+     * level whose own placement isn't in its child's conflict set fails straight away (see setBackjumping()).
+     *
+     * @param lastTable the table the previous guest was seated at, or -1 if there was no previous guest
+     * @param lastIndex the position in the guest order of the previous guest
+     * @return true if the remaining seats could be filled, false if not
+     */
+    private boolean search(int lastTable, int lastIndex) {
+        int base = depth;
+        int level = base;
+        int state = openFrame(level, lastTable, lastIndex);
+        while (true) {
+            if (state == PLAN_FILLED) {
+                return true;
+            }
+            if (state == FRAME_FAILED) {
+                if (level == base) {
+                    return false;
+                }
+                level--;
+                state = candidateFailed(level);
+            }
+            else if (nextCandidate(level)) {
+                Frame parent = frames[level];
+                level++;
+                state = openFrame(level, parent.table, parent.candidate);
+            }
+            else {
+                state = FRAME_FAILED;
+            }
+        }
+    }
+
+    /**
+     * Method to start a level of the search: it finds the table to fill and which guests can be tried in its next seat.
+     * @param level the depth of the new level, which is how many guests the search has seated
+     * @param lastTable the table the previous guest was seated at, or -1 if there was no previous guest
+     * @param lastIndex the position in the guest order of the previous guest
+     * @return PLAN_FILLED if every seat is filled and the plan is OK, FRAME_READY if there are candidates to try,
+     * or FRAME_FAILED if this level has already failed
+     */
+    private int openFrame(int level, int lastTable, int lastIndex) {
+        int numTables = plan.getNumberOfTables();
+        int seatsPerTable = plan.getSeatsPerTable();
+
+        if (availableGuests < freeSeats) { //not enough guests left to fill the seats, so this branch can't work
+            if (backjumping) blameShortage(conflictAt(level));
+            return FRAME_FAILED;
+        }
+        if (stop != null && stop.isCancelled()) {
+            stopped = true;
+            if (backjumping) blameEverything(conflictAt(level));
+            return FRAME_FAILED;
+        }
+        if (branches != null && depth == branchDepth) { //expand() only wants the branches, not what's under them
+            int[] branch = new int[(depth + excludedSize) * 2];
+            for (int k = 0; k < depth; k++) {
+                branch[2 * k] = seatedPositions[k];
+                branch[2 * k + 1] = seatedTables[k];
+            }
+            for (int k = 0; k < excludedSize; k++) {
+                branch[2 * (depth + k)] = excluded[k];
+                branch[2 * (depth + k) + 1] = -1;
+            }
+            branches.add(branch);
+            if (backjumping) blameEverything(conflictAt(level));
+            return FRAME_FAILED;
+        }
+
+        int tableNumber = Math.max(lastTable, 0); //every table before the last one a guest was seated at is full
+        while (tableNumber < numTables && tableSizes[tableNumber] == seatsPerTable) {
+            tableNumber++;
+        }
+        if (tableNumber == numTables) {
+            if (rules.isPlanOK(plan)) { //final verification of the finished plan
+                return PLAN_FILLED;
+            }
+            if (backjumping) blameEverything(conflictAt(level));
+            return FRAME_FAILED;
+        }
+
+        int unfilledSeats = seatsPerTable - tableSizes[tableNumber];
+        long fingerprint = 0;
+        if (deadEnds != null) {
+            fingerprint = seatedHash ^ tableHashes[tableNumber] ^ emptyHash;
+            if (deadEnds.isDeadEnd(fingerprint)) { //already been here by another route
+                if (backjumping) blameEverything(conflictAt(level));
+                return FRAME_FAILED;
+            }
+        }
+        Frame frame = frameAt(level);
+        frame.table = tableNumber;
+        frame.opening = tableNumber >= firstInterchangeableTable && unfilledSeats == seatsPerTable;
+        frame.starting = tableNumber != lastTable; //nobody has been seated here by the search yet
+        frame.first = frame.starting ? 0 : lastIndex + 1; //carry on from the last guest seated here
+        frame.last = order.length - unfilledSeats; //leave enough guests after the candidate for the other seats
+        frame.required = -1;
+        if (forwardChecking && availableGuests == freeSeats) {
+            int required = firstRequiredGuest(tableNumber);
+            if (required < frame.first) { //they can only sit here, but the search has already gone past them
+                if (backjumping) {
+                    long[] conflict = conflictAt(level);
+                    blameRequired(conflict, required, tableNumber);
+                    blameBit(conflict, level - 1); //the guest seated here last is the one who went past them
+                }
+                return FRAME_FAILED;
+            }
+            if (required < frame.last) {
+                frame.last = required;
+                frame.required = required;
+            }
+        }
+        //groupmates first means one pass for the guests whose group is at this table and one for everyone else
+        frame.passes = candidateOrdering == CandidateOrdering.LEAST_CONSTRAINING && tableSizes[tableNumber] > 0 ? 2 : 1;
+        frame.pass = 0;
+        frame.next = frame.first;
+        frame.start = trailSize;
+        frame.excludedStart = excludedSize;
+        frame.fingerprint = fingerprint;
+        frame.shortOfGuests = false;
+        if (backjumping) conflictAt(level);
+        return FRAME_READY;
+    }
+
+    /**
+     * Method to seat the next guest a level of the search can try, that the placement checks don't rule out straight away.
+     * If every candidate has been tried, the level is closed with closeFrame().
+     * @param level the depth of the level
+     * @return true if a guest was seated and the search should go a level deeper, false if this level has failed
+     */
+    private boolean nextCandidate(int level) {
+        Frame frame = frames[level];
+        while (frame.pass < frame.passes) {
+            while (frame.next <= frame.last) {
+                int i = frame.next++;
+                if (placed[i] || !canJoin(i, frame.table)) {
+                    continue;
+                }
+                if (frame.passes == 2 && (groupTable[groupOf[i]] == frame.table) != (frame.pass == 0)) {
+                    continue; //not this guest's pass
+                }
+
+                frame.candidate = i;
+                frame.mark = trailSize;
+                frame.planMark = planTrail.checkpoint();
+                if (!planTrail.place(frame.table, order[i])) {
+                    continue; //the plan wouldn't take them, so nothing was seated and there is nothing to undo
+                }
+                seat(i, frame.table);
+                if (placementOK(i, frame.table)) {
+                    return true;
+                }
+                if (candidateFailed(level) == FRAME_FAILED) {
+                    return false;
+                }
+            }
+            frame.pass++;
+            frame.next = frame.first;
+        }
+        closeFrame(level);
+        return false;
+    }
+
+    /**
+     * Method to take a level's candidate back out once everything under them has failed.
+     * A guest who couldn't start an empty table is ruled out of the other empty tables too.
+     * With backjumping, a candidate who wasn't to blame means every other guest in this seat fails the same way, so
+     * the whole level fails.
+     * @param level the depth of the level
+     * @return FRAME_READY if the level can try its next candidate, or FRAME_FAILED if it has failed
+     */
+    private int candidateFailed(int level) {
+        Frame frame = frames[level];
+        int i = frame.candidate;
+        undoTo(frame.mark);
+        planTrail.rollbackTo(frame.planMark);
+        unseat(i, frame.table);
+
+        if (backjumping) {
+            long[] conflict = conflicts[level];
+            long[] blamed = conflicts[level + 1];
+            if (!isSet(blamed, level)) { //this guest wasn't to blame, so every other guest in this seat fails the same way
+                System.arraycopy(blamed, 0, conflict, 0, conflictWords);
+                undoTo(frame.start);
+                excludedSize = frame.excludedStart;
+                endFrame(level);
+                return FRAME_FAILED;
+            }
+            orInto(conflict, blamed);
+            conflict[level >>> 6] &= ~(1L << level);
+        }
+        if (frame.opening) { //they can't start any of the other empty tables either
+            exclude(i, CLEARED_BELOW - level);
+            if (availableGuests < freeSeats) {
+                frame.shortOfGuests = true;
+                closeFrame(level);
+                return FRAME_FAILED;
+            }
+        }
+        return FRAME_READY;
+    }
+
+    /**
+     * Method to finish a level of the search which has run out of candidates.
+     * With backjumping, what stopped the guests who weren't candidates is added to its conflict set first.
+     * @param level the depth of the level
+     */
+    private void closeFrame(int level) {
+        Frame frame = frames[level];
+        undoTo(frame.start); //let the excluded guests back in for the other branches above this one
+        excludedSize = frame.excludedStart;
+        if (backjumping) {
+            if (frame.shortOfGuests) { //only the guest just ruled out made it short, and everything above is to blame for that
+                blameEverything(conflicts[level]);
+            }
+            else {
+                blameSeat(conflicts[level], frame);
+            }
+        }
+        endFrame(level);
+    }
+
+    /**
+     * Method to remember what was learned from a level which has failed: the state it started in is a dead end, and
+     * with backjumping its conflict set might be kept as a nogood
+     * @param level the depth of the level, which has already been put back the way it started
+     */
+    private void endFrame(int level) {
+        Frame frame = frames[level];
+        if (backjumping) learn(frame.starting, conflicts[level]);
+        deadEnd(frame.fingerprint);
+    }
+
+    /**
+     * Method to return the frame for a depth, making it the first time that depth is reached
+     */
+    private Frame frameAt(int level) {
+        if (frames[level] == null) {
+            frames[level] = new Frame();
+        }
+        return frames[level];
+    }
+
+    /**
+     * Method to check a guest who has just been seated: that the placement is allowed, that forward checking doesn't
+     * leave too few guests with somewhere to go, and that it doesn't complete a nogood.
+     * If it fails with backjumping on, the placements to blame are left in the conflict set for the depth below.
+     * @param i the guest's position in the order
+     * @param table the table they were seated at
+     * @return true if the search should carry on under this placement
+     */
+    private boolean placementOK(int i, int table) {
+        if (!rules.isPlacementOK(plan, table, order[i])) {
+            if (backjumping) blamePlacement(conflictAt(depth), i, table);
+            return false;
+        }
+        if (forwardChecking && !propagate(i, table, depth - 1)) {
+            if (backjumping) blameShortage(conflictAt(depth));
+            return false;
+        }
+        if (nogoods != null) {
+            int[] broken = nogoods.findBroken(i, table, tableOf);
+            if (broken != null) {
+                long[] conflict = conflictAt(depth);
+                for (int member : broken) {
+                    blameBit(conflict, depthOf[member]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to set up the transposition table and the Zobrist keys for a search, or to drop them if it is turned off
+     */
+    private void setUpTranspositionTable() {
+        if (transpositionBytes == 0 || !(rules instanceof Rules)) {
+            deadEnds = null;
+            return;
+        }
+        int n = order.length;
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        seatedKeys = new long[n];
+        tableKeys = new long[n];
+        emptyKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            seatedKeys[i] = random.nextLong();
+            tableKeys[i] = random.nextLong();
+            emptyKeys[i] = random.nextLong();
+        }
+        seatedHash = 0;
+        tableHashes = new long[plan.getNumberOfTables()];
+        emptyHash = 0;
+        deadEnds = new TranspositionTable(transpositionBytes);
+    }
+
+    /**
+     * Method to record the state a level of the search started in as a dead end, unless the failure wasn't real
+     * because expand() is only collecting branches or the search was stopped
+     */
+    private void deadEnd(long fingerprint) {
+        if (deadEnds != null && branches == null && !stopped) {
+            deadEnds.addDeadEnd(fingerprint);
+        }
+    }
+
+    /**
+     * Method to set up the backjumping state for a search, or to drop it if backjumping is off
+     */
+    private void setUpBackjumping() {
+        if (!backjumping) {
+            depthOf = null;
+            tableOf = null;
+            wiped = null;
+            conflicts = null;
+            tableDepths = null;
+            reasons = null;
+            nogoods = null;
+            return;
+        }
+        int n = order.length;
+        int numTables = plan.getNumberOfTables();
+        depthOf = new int[n];
+        tableOf = new int[n];
+        Arrays.fill(depthOf, -1);
+        Arrays.fill(tableOf, -1);
+        wiped = new int[n];
+        wipedSize = 0;
+        fixedWiped = 0;
+        conflictWords = (n + 64) >>> 6; //one more than the deepest the search can go
+        conflicts = new long[n + 2][];
+        tableDepths = new long[numTables][conflictWords];
+        reasons = new int[n * numTables];
+        Arrays.fill(reasons, FIXED);
+        nogoods = new NogoodStore(NOGOOD_CAPACITY, numTables);
+    }
+
+    /**
+     * Method to return the (emptied) conflict set for a depth, making it the first time that depth is reached
+     */
+    private long[] conflictAt(int level) {
+        if (conflicts[level] == null) {
+            conflicts[level] = new long[conflictWords];
+        }
+        else {
+            Arrays.fill(conflicts[level], 0);
+        }
+        return conflicts[level];
+    }
+
+    /**
+     * Method to keep the conflict set of a level as a nogood.
+     * Only failures to fill the first seat the search uses at a table are kept. Deeper in a table, some guests are
+     * only left out because of the order the table is being filled in, which isn't a real rule, but by the first
+     * seat every combination for the table has been tried and the failure doesn't depend on the order any more.
+     * Nothing is learned while expand() is collecting branches or after the search was stopped, as those failures
+     * aren't real either.
+     */
+    private void learn(boolean startingTable, long[] conflict) {
+        if (!startingTable || branches != null || stopped) {
+            return;
+        }
+        int size = 0;
+        for (long bits : conflict) {
+            size += Long.bitCount(bits);
+        }
+        if (size == 0 || size > MAX_NOGOOD_SIZE) {
+            return; //empty means there is no solution at all, and the search is about to find that out anyway
+        }
+        int[] members = new int[size];
+        int[] tables = new int[size];
+        int count = 0;
+        for (int w = 0; w < conflictWords; w++) {
+            for (long bits = conflict[w]; bits != 0; bits &= bits - 1) {
+                int k = (w << 6) + Long.numberOfTrailingZeros(bits);
+                members[count] = seatedPositions[k];
+                tables[count++] = seatedTables[k];
+            }
+        }
+        nogoods.add(members, tables);
+    }
+
+    /**
+     * Method to blame every placement the search has made, for when nothing more precise is known
+     */
+    private void blameEverything(long[] conflict) {
+        blameBelow(conflict, depth);
+    }
+
+    private void blameBelow(long[] conflict, int level) {
+        for (int w = 0; w < level >>> 6; w++) {
+            conflict[w] = -1L;
+        }
+        if ((level & 63) != 0) {
+            conflict[level >>> 6] |= (1L << level) - 1;
+        }
+    }
+
+    private static void blameBit(long[] conflict, int k) {
+        conflict[k >>> 6] |= 1L << k;
+    }
+
+    /**
+     * Method to blame the placements which took a table out of a guest's domain
+     * @param conflict the set to add them to
+     * @param i the guest's position in the order
+     * @param table a table which isn't in their domain
+     */
+    private void blameRemoval(long[] conflict, int i, int table) {
+        int reason = reasons[i * plan.getNumberOfTables() + table];
+        if (reason >= 0) {
+            blameBit(conflict, reason);
+        }
+        else if (reason == FULL) {
+            orInto(conflict, tableDepths[table]);
+        }
+        else if (reason <= CLEARED_BELOW) {
+            blameBelow(conflict, CLEARED_BELOW - reason);
+        }
+    }
+
+    /**
+     * Method to blame the placements which left too few guests with somewhere to go: everything that emptied the
+     * domain of a guest who isn't seated, as the number of those is all that decides if there are enough guests left
+     */
+    private void blameShortage(long[] conflict) {
+        int numTables = plan.getNumberOfTables();
+        for (int k = fixedWiped; k < wipedSize; k++) {
+            for (int table = 0; table < numTables; table++) {
+                blameRemoval(conflict, wiped[k], table);
+            }
+        }
+    }
+
+    /**
+     * Method to blame the placements which forced a required guest onto this table: those that mean every guest left
+     * has to be seated, and those that took the other tables out of their domain. Which seat at the table they can
+     * still take only depends on the order the table is filled in, which the caller blames if it matters.
+     */
+    private void blameRequired(long[] conflict, int required, int table) {
+        blameShortage(conflict);
+        for (int other = 0; other < plan.getNumberOfTables(); other++) {
+            if (other != table) {
+                blameRemoval(conflict, required, other);
+            }
+        }
+    }
+
+    /**
+     * Method to blame the placements which made a guest's own placement fail. With the normal Rules that is the
+     * guest and an enemy of theirs at the table, or everyone at a full table for the friend rule. Other rules might
+     * look at the whole plan, so everything is blamed.
+     */
+    private void blamePlacement(long[] conflict, int i, int table) {
+        if (rules instanceof Rules) {
+            int blamed = -1;
+            for (int enemy : enemiesOf[i]) {
+                if (tableOf[enemy] == table) {
+                    if (depthOf[enemy] < 0) { //they were there before the search, so only the guest themselves is to blame
+                        blamed = FIXED;
+                        break;
                     }
+                    blamed = blamed < 0 ? depthOf[enemy] : Math.min(blamed, depthOf[enemy]);
+                }
+            }
+            if (blamed != -1) {
+                blameBit(conflict, depthOf[i]);
+                if (blamed >= 0) {
+                    blameBit(conflict, blamed);
+                }
+                return;
+            }
+            if (tableSizes[table] == plan.getSeatsPerTable()) {
+                orInto(conflict, tableDepths[table]);
+                return;
+            }
+        }
+        blameEverything(conflict);
+    }
+
+    /**
+     * Method to blame the placements which stopped a seat from being filled, once every candidate has failed.
+     * The conflict set already has what each candidate was blamed for (without the candidate). On top of that, for
+     * every guest between the first and last candidate who wasn't one: whatever took this table out of their domain,
+     * or, if they were seated somewhere else, what would still keep them away from here (see blameSeatedElsewhere()).
+     * Below the first seat at a table, the guest seated here last is always blamed, as the guests before them in the
+     * order are only left out because the table is filled in order. The guests after the last candidate need no
+     * blame: there aren't enough guests after them in the order for the seats left, whatever is undone above.
+     */
+    private void blameSeat(long[] conflict, Frame frame) {
+        if (!frame.starting) {
+            blameBit(conflict, depth - 1);
+        }
+        if (frame.required >= 0) {
+            blameRequired(conflict, frame.required, frame.table);
+        }
+        for (int i = frame.first; i <= frame.last; i++) {
+            if (!placed[i]) {
+                if (!canJoin(i, frame.table)) {
+                    blameRemoval(conflict, i, frame.table);
+                }
+            }
+            else if (depthOf[i] >= 0 && tableOf[i] != frame.table) {
+                blameSeatedElsewhere(conflict, i, frame.table);
+            }
+        }
+    }
+
+    /**
+     * Method to blame what keeps a guest the search seated at another table from taking a seat at this one: the
+     * shallowest of their own placement, an enemy's placement at this table, and whatever took this table out of
+     * their domain before they were seated (a seated guest's domain isn't touched again until they are taken back
+     * out, so that still keeps them away once they are).
+     */
+    private void blameSeatedElsewhere(long[] conflict, int i, int table) {
+        int blamed = depthOf[i];
+        if (!canJoin(i, table)) {
+            int reason = reasons[i * plan.getNumberOfTables() + table];
+            if (reason == FIXED) {
+                return;
+            }
+            if (reason >= 0) {
+                blamed = Math.min(blamed, reason);
+            }
+        }
+        for (int enemy : enemiesOf[i]) {
+            if (tableOf[enemy] == table) {
+                if (depthOf[enemy] < 0) {
+                    return; //an enemy who was there before the search would have kept them away anyway
+                }
+                blamed = Math.min(blamed, depthOf[enemy]);
+            }
+        }
+        blameBit(conflict, blamed);
+    }
+
+    private static boolean isSet(long[] set, int k) {
+        return (set[k >>> 6] & (1L << k)) != 0;
+    }
+
+    private static void orInto(long[] into, long[] from) {
+        for (int w = 0; w < into.length; w++) {
+            into[w] |= from[w];
+        }
+    }
+
+    /**
+     * Method to update the search's counters after the guest at a position in the order has been seated
+     * @param i the guest's position in the order
+     * @param table the table they were seated at
+     */
+    private void seat(int i, int table) {
+        seatedPositions[depth] = i;
+        seatedTables[depth] = table;
+        if (deadEnds != null) {
+            seatedHash ^= seatedKeys[i];
+            tableHashes[table] ^= tableKeys[i];
+        }
+        if (backjumping) {
+            depthOf[i] = depth;
+            tableOf[i] = table;
+            tableDepths[table][depth >>> 6] |= 1L << depth;
+        }
+        depth++;
+        placed[i] = true;
+        availableGuests--;
+        freeSeats--;
+        tableSizes[table]++;
+        if (groupSeated[groupOf[i]]++ == 0) { //only the group's first member decides its table, so unseat() can undo it
+            groupTable[groupOf[i]] = table;
+        }
+    }
+
+    /**
+     * Method to update the search's counters after the guest at a position in the order has been removed again
+     * @param i the guest's position in the order
+     * @param table the table they were removed from
+     */
+    private void unseat(int i, int table) {
+        depth--;
+        if (deadEnds != null) {
+            seatedHash ^= seatedKeys[i];
+            tableHashes[table] ^= tableKeys[i];
+        }
+        if (backjumping) {
+            depthOf[i] = -1;
+            tableOf[i] = -1;
+            tableDepths[table][depth >>> 6] &= ~(1L << depth);
+        }
+        placed[i] = false;
+        availableGuests++;
+        freeSeats++;
+        tableSizes[table]--;
+        if (--groupSeated[groupOf[i]] == 0) {
+            groupTable[groupOf[i]] = -1;
+        }
+    }
+
+    /**
+     * Method for forward checking after a guest has been seated. Their table is taken out of their enemies' domains,
+     * their groupmates' domains are narrowed to just that table, and if the table is now full it is taken out of
+     * everyone's domain.
+     * @param i the position of the guest who was seated
+     * @param table the table they were seated at
+     * @param reason the depth they were seated at, or FIXED if they were already seated before the search
+     * @return true if there are still enough guests with somewhere to go to fill the free seats
+     * Runtime --> O(E + M) where E and M are the numbers of enemies and groupmates, or O(G) when the table fills up
+     */
+    private boolean propagate(int i, int table, int reason) {
+        for (int enemy : enemiesOf[i]) {
+            if (!placed[enemy]) {
+                removeTable(enemy, table, reason);
+            }
+        }
+        for (int mate : matesOf[i]) {
+            if (!placed[mate]) {
+                restrictTo(mate, table, reason);
+            }
+        }
+        if (tableSizes[table] == plan.getSeatsPerTable()) {
+            for (int j = 0; j < order.length; j++) {
+                if (!placed[j]) {
+                    removeTable(j, table, reason == FIXED ? FIXED : FULL);
                 }
+            }
+        }
+        return availableGuests >= freeSeats;
+    }
+
+    /**
+     * Method to find the first guest in the order who isn't seated and can only go to the given table
+     * @param table the table number
+     * @return their position in the order, or the number of guests if there isn't one
+     */
+    private int firstRequiredGuest(int table) {
+        for (int j = 0; j < order.length; j++) {
+            if (!placed[j] && onlyTable(j, table)) {
+                return j;
+            }
+        }
+        return order.length;
+    }
+
+    private boolean canJoin(int i, int table) {
+        return (domains[i * words + (table >>> 6)] & (1L << table)) != 0;
+    }
+
+    private boolean onlyTable(int i, int table) {
+        for (int w = 0; w < words; w++) {
+            if (domains[i * words + w] != (w == table >>> 6 ? 1L << table : 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
+    private boolean isDomainEmpty(int i) {
+        for (int w = 0; w < words; w++) {
+            if (domains[i * words + w] != 0) {
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Method to take a table out of a guest's domain, recording the change on the trail
+     */
+    private void removeTable(int i, int table, int reason) {
+        int slot = i * words + (table >>> 6);
+        long old = domains[slot];
+        if ((old & (1L << table)) != 0) {
+            record(slot, old);
+            domains[slot] = old & ~(1L << table);
+            if (backjumping) {
+                reasons[i * plan.getNumberOfTables() + table] = reason;
+            }
+            if (domains[slot] == 0 && isDomainEmpty(i)) {
+                emptied(i);
+            }
+        }
+    }
+
+    /**
+     * Method to narrow a guest's domain down to (at most) one table, recording the changes on the trail
+     */
+    private void restrictTo(int i, int table, int reason) {
+        boolean hadTables = !isDomainEmpty(i);
+        for (int w = 0; w < words; w++) {
+            int slot = i * words + w;
+            long narrowed = w == table >>> 6 ? domains[slot] & (1L << table) : 0;
+            if (narrowed != domains[slot]) {
+                record(slot, domains[slot]);
+                setReasons(i, w, domains[slot] & ~narrowed, reason);
+                domains[slot] = narrowed;
+            }
+        }
+        if (hadTables && isDomainEmpty(i)) {
+            emptied(i);
+        }
+    }
+
+    /**
+     * Method to rule a guest out of the empty tables for the rest of this branch, by emptying their domain
+     */
+    private void exclude(int i, int reason) {
+        clearDomain(i, reason);
+        excluded[excludedSize++] = i;
+    }
+
+    /**
+     * Method to empty a guest's domain, recording the changes on the trail
+     */
+    private void clearDomain(int i, int reason) {
+        boolean hadTables = !isDomainEmpty(i);
+        for (int w = 0; w < words; w++) {
+            int slot = i * words + w;
+            if (domains[slot] != 0) {
+                record(slot, domains[slot]);
+                setReasons(i, w, domains[slot], reason);
+                domains[slot] = 0;
+            }
+        }
+        if (hadTables) {
+            emptied(i);
+        }
+    }
+
+    /**
+     * Method to record why the tables in one word of a guest's domain were taken out
+     */
+    private void setReasons(int i, int w, long removed, int reason) {
+        if (backjumping) {
+            for (long bits = removed; bits != 0; bits &= bits - 1) {
+                reasons[i * plan.getNumberOfTables() + (w << 6) + Long.numberOfTrailingZeros(bits)] = reason;
+            }
+        }
+    }
+
+    private void emptied(int i) {
+        availableGuests--;
+        if (backjumping) {
+            wiped[wipedSize++] = i;
+        }
+        if (deadEnds != null) {
+            emptyHash ^= emptyKeys[i];
+        }
+    }
+
+    private void record(int slot, long oldValue) {
+        if (trailSize == trailSlots.length) {
+            trailSlots = Arrays.copyOf(trailSlots, trailSize * 2);
+            trailValues = Arrays.copyOf(trailValues, trailSize * 2);
+        }
+        trailSlots[trailSize] = slot;
+        trailValues[trailSize] = oldValue;
+        trailSize++;
+    }
+
+    /**
+     * Method to put the domains back the way they were when the trail was a given size.
+     * Changes are undone newest first, and any guest whose domain goes from empty back to having a table counts as
+     * available again.
+     * @param mark the size of the trail to go back to
+     */
+    private void undoTo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            int slot = trailSlots[trailSize];
+            int i = slot / words;
+            boolean wasEmpty = isDomainEmpty(i);
+            domains[slot] = trailValues[trailSize];
+            if (wasEmpty && domains[slot] != 0) {
+                availableGuests++;
+                if (backjumping) {
+                    wipedSize--; //undone newest first, so it's always the last guest to have been emptied
+                }
+                if (deadEnds != null) {
+                    emptyHash ^= emptyKeys[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to turn a set of guest names into their positions in the order, leaving out the guest themselves and
+     * anyone who isn't in the guest list
+     */
+    private static int[] positionsOf(Set<String> names, Map<String, Integer> positions, int self) {
+        int[] found = new int[names.size()];
+        int count = 0;
+        for (String name : names) {
+            Integer position = positions.get(name);
+            if (position != null && position != self) {
+                found[count++] = position;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * One level of the search: the seat it is filling, the candidates it is going through and where to undo back to
+     */
+    private static final class Frame {
+
+        private int table; //the table with the seat being filled
+        private boolean opening; //true if the table is empty and so are all the tables after it
+        private int first; //the first and last positions in the order which can be tried in the seat
+        private int last;
+        private int passes; //how many passes over the candidates there are, and which one it is on
+        private int pass;
+        private int next; //the position to try next in this pass
+        private boolean starting; //true if nobody has been seated at the table by the search yet
+        private int required; //the guest who has to take this seat or a later one at the table, or -1
+        private boolean shortOfGuests; //true if ruling out a candidate left too few guests for the seats
+        private int candidate; //the guest in the seat at the moment
+        private int start; //the size of the domain trail when the level started
+        private int excludedStart; //how many guests were ruled out of the empty tables when the level started
+        private int mark; //the size of the domain trail and the plan trail before the candidate was seated
+        private int planMark;
+        private long fingerprint; //the state the level started in, for the transposition table
+    }
+
     //ALTERNATE SOLUTION - TRIED TO PRE-FILL TABLES WITH MUST-HAVE GROUPS TO REDUCE RUNTIME OF BRUTE FORCE RECURSIVE SOLVER ALGORITHM
     //OUTCOME -- SUCCESSFULLY MERGED GROUPS AND RULES TESTS PASSED, HOWEVER SOLVER TESTS FAILED WHEN IMPLEMENTING THE PRE-FILL
     /*
@@ -93,26 +1346,9 @@ public class Solver implements ISolver {
 
     If I had more time, I might've improved on this algorithm to make it work, however by that point I was tired and gave up,
     as slightly improving on a brute force algorithm seems pointless when there are algorithms in general for this wedding seating planner. And I'm also lazy ¯\_(ツ)_/¯
-    */
-
-    /*private void preFill() {
-        List<Set<String>> friends = rules.organiseGroups(); //organise the groups into final seating rules (i.e. rule A B C and rule E F C would merge into a combined rule A B C E F)
-        int numTables = plan.getNumberOfTables();
-        int seatsPerTable = plan.getSeatsPerTable();
-        int unfilledSeats;
-
-        for (Set<String> friendGroup : friends) {
 
-            for (int tableNumber = 0; tableNumber < numTables; tableNumber++) {
-                Set<String> currentTable = plan.getGuestsAtTable(tableNumber);
-                unfilledSeats = seatsPerTable - currentTable.size();
-
-                if (unfilledSeats == seatsPerTable && friendGroup.size() <= unfilledSeats){ //if no one at table and they can all fit
-                    currentTable.addAll(friendGroup); //add the group to the table
-                    break; //move onto the next group
-                }
-            }
-        }
-    }*/
+    Update: the group sizes problem is now looked at before the search starts by CapacityCheck, which treats seating the groups
+    as bin-packing and gives up straight away if they can't all fit, rather than leaving the search to find out the slow way.
+    */
 }
 
@@ -0,0 +1,203 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A disjoint-set (union-find) structure for the groups of guests who must sit together, indexed by the
+ * guest IDs given out by a GuestRegistry. Every guest starts in a group of their own, and joining two guests
+ * merges their whole groups, so a rule A-B followed by B-C always ends up as the one group {A B C}.
+ * It uses path compression and union by size, so finding a guest's group is near-O(1) amortised.
+ *
+ * Each group also keeps its size, its members and the set of guests who are enemies of anyone in it,
+ * all held against the group's root.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+public class TogetherGroups {
+
+    private int[] parent; //parent[id] == id means id is the root of its group
+    private int[] size; //only meaningful for roots
+    private List<List<Integer>> members; //only meaningful for roots
+    private List<Set<Integer>> enemies; //guests who are an enemy of someone in the group, only meaningful for roots
+    private int guestCount;
+    private int mergedGroups; //how many groups have more than one guest in them
+
+    /**
+     * Constructor to create an empty set of groups.
+     */
+    public TogetherGroups(){
+        this.parent = new int[16];
+        this.size = new int[16];
+        this.members = new ArrayList<>();
+        this.enemies = new ArrayList<>();
+        this.guestCount = 0;
+        this.mergedGroups = 0;
+    }
+
+    /**
+     * Method to find the root of the group a guest is in.
+     * Uses path halving, so every guest on the way up ends up closer to the root for next time.
+     * @param id the guest's ID
+     * @return the ID of the root of the guest's group (the guest themselves if they were never added)
+     * Runtime --> O(α(n)) amortised, which is as good as O(1)
+     */
+    public int find(int id){
+        if (id < 0 || id >= guestCount){
+            return id;
+        }
+        while (parent[id] != id){
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Method to return how many guests are in the same group as the given guest (including them)
+     * @param id the guest's ID
+     * @return the size of the group, 1 if the guest isn't in any group
+     * Runtime --> O(α(n))
+     */
+    public int sizeOf(int id){
+        return id < 0 || id >= guestCount ? 1 : size[find(id)];
+    }
+
+    /**
+     * Method to check if two guests are in the same group
+     * @param a a guest's ID
+     * @param b another guest's ID
+     * @return true if they have to sit together
+     * Runtime --> O(α(n))
+     */
+    public boolean sameGroup(int a, int b){
+        return a == b || (a >= 0 && b >= 0 && a < guestCount && b < guestCount && find(a) == find(b));
+    }
+
+    /**
+     * Method to return the guests in the same group as the given guest
+     * @param id the guest's ID
+     * @return the IDs of everyone in the group (just the guest if they were never added). This MUST NOT be modified.
+     * Runtime --> O(α(n))
+     */
+    public List<Integer> membersOf(int id){
+        return id < 0 || id >= guestCount ? List.of(id) : members.get(find(id));
+    }
+
+    /**
+     * Method to return everyone who is an enemy of at least one guest in the given guest's group
+     * @param id the guest's ID
+     * @return the IDs of the group's enemies. This MUST NOT be modified.
+     * Runtime --> O(α(n))
+     */
+    public Set<Integer> enemiesOf(int id){
+        return id < 0 || id >= guestCount ? Set.of() : enemies.get(find(id));
+    }
+
+    /**
+     * Method to check if any groups have been merged yet, meaning there is at least one must-be-together rule
+     * @return true if there is a group with more than one guest
+     */
+    public boolean hasGroups(){
+        return mergedGroups > 0;
+    }
+
+    /**
+     * Method to merge the groups of two guests.
+     * The smaller group is always hung under the root of the larger one, and its members and enemies are moved over,
+     * so no guest is ever moved more than log(n) times.
+     * The merge is refused if it would put two enemies in the same group.
+     * @param a a guest's ID
+     * @param b another guest's ID
+     * @return true if the guests are now in the same group, false if they are enemies (or have enemies in each other's group)
+     * Runtime --> O(α(n)) amortised, plus the cost of moving the smaller group's members and enemies
+     */
+    public boolean union(int a, int b){
+        ensureCapacity(Math.max(a, b));
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB){
+            return true;
+        }
+        if (size[rootA] < size[rootB]){ //union by size - always merge into the bigger group
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        if (!canJoin(rootA, rootB)){
+            return false;
+        }
+
+        if (size[rootA] == 1) mergedGroups++;
+        if (size[rootB] > 1) mergedGroups--;
+
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        members.get(rootA).addAll(members.get(rootB));
+        enemies.get(rootA).addAll(enemies.get(rootB));
+        members.set(rootB, null); //only roots keep these, so let the old ones be collected
+        enemies.set(rootB, null);
+        return true;
+    }
+
+    /**
+     * Method to record that two guests are enemies, so that both of their groups know about it.
+     * @param a a guest's ID
+     * @param b another guest's ID
+     * Runtime --> O(α(n))
+     */
+    public void addEnemies(int a, int b){
+        ensureCapacity(Math.max(a, b));
+        enemies.get(find(a)).add(b);
+        enemies.get(find(b)).add(a);
+    }
+
+    /**
+     * Method to check that two groups could be merged without putting enemies together.
+     * Enemies are always recorded both ways, so it's enough to look through whichever enemy set is smaller
+     * for anyone who belongs to the other group.
+     * @param rootA the root of a group
+     * @param rootB the root of another group
+     * @return true if no-one in one group is an enemy of someone in the other
+     */
+    private boolean canJoin(int rootA, int rootB){
+        Set<Integer> enemiesA = enemies.get(rootA);
+        Set<Integer> enemiesB = enemies.get(rootB);
+        int otherRoot = rootB;
+        if (enemiesB.size() < enemiesA.size()){
+            enemiesA = enemiesB;
+            otherRoot = rootA;
+        }
+        for (int enemy : enemiesA){
+            if (find(enemy) == otherRoot){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to make sure every ID up to the given one has its own group.
+     * @param id the highest ID that needs to be stored
+     */
+    private void ensureCapacity(int id){
+        if (id >= parent.length){
+            int length = Math.max(id + 1, parent.length * 2);
+            parent = Arrays.copyOf(parent, length);
+            size = Arrays.copyOf(size, length);
+        }
+        while (guestCount <= id){
+            parent[guestCount] = guestCount;
+            size[guestCount] = 1;
+            List<Integer> group = new ArrayList<>(1);
+            group.add(guestCount);
+            members.add(group);
+            enemies.add(new HashSet<>());
+            guestCount++;
+        }
+    }
+}
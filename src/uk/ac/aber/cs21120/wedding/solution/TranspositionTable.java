@@ -0,0 +1,89 @@
+package uk.ac.aber.cs21120.wedding.solution;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size cache of search states which are known to be dead ends, each kept as its 64-bit Zobrist fingerprint.
+ * The cache is lossy: a fingerprint goes in the slot picked by its low bits, replacing whatever was there, so a dead end
+ * can be forgotten (and searched again) but a state is only ever reported as a dead end if its whole fingerprint matches.
+ *
+ * The table starts small and doubles whenever as many dead ends have been added as it has slots, up to the memory
+ * it was given, so a search which only takes a few milliseconds doesn't have to clear megabytes of memory first.
+ * The slots are read and written atomically, so the tasks of a ParallelSolver can share one table without locking.
+ *
+ * @author Owain Gibson
+ * @version 1.0
+ */
+class TranspositionTable {
+
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final int maxSlots;
+    private final AtomicLong added;
+    private volatile AtomicLongArray slots; //0 is an empty slot
+
+    /**
+     * Constructor for an empty table using at most the given amount of memory
+     * @param bytes how much memory the fingerprints can take up, which is rounded down to a power of two
+     * number of 8-byte slots (and at least one slot, at most 2^30)
+     */
+    TranspositionTable(long bytes) {
+        long wanted = Math.max(1, Math.min(bytes / Long.BYTES, 1L << 30));
+        this.maxSlots = (int) Long.highestOneBit(wanted);
+        this.added = new AtomicLong();
+        this.slots = new AtomicLongArray(Math.min(INITIAL_SLOTS, maxSlots));
+    }
+
+    /**
+     * Method to check if a state is a known dead end
+     * @param fingerprint the state's fingerprint
+     * @return true if it was added as a dead end and hasn't been replaced since
+     * Runtime --> O(1)
+     */
+    boolean isDeadEnd(long fingerprint) {
+        long key = keyOf(fingerprint);
+        AtomicLongArray current = slots;
+        return current.getOpaque(slotOf(key, current)) == key;
+    }
+
+    /**
+     * Method to record a state as a dead end, replacing whatever was in its slot
+     * @param fingerprint the state's fingerprint
+     * Runtime --> O(1) amortised, as the table only grows after as many adds as it has slots
+     */
+    void addDeadEnd(long fingerprint) {
+        long key = keyOf(fingerprint);
+        AtomicLongArray current = slots;
+        current.setOpaque(slotOf(key, current), key);
+        if (added.incrementAndGet() >= current.length() && current.length() < maxSlots) {
+            grow(current);
+        }
+    }
+
+    /**
+     * Method to double the size of the table, moving the dead ends in it across.
+     * Dead ends added by other threads while it is copying can be lost, which is fine for a lossy cache.
+     */
+    private synchronized void grow(AtomicLongArray current) {
+        if (slots != current) { //another thread has already grown it
+            return;
+        }
+        AtomicLongArray bigger = new AtomicLongArray(current.length() * 2);
+        for (int i = 0; i < current.length(); i++) {
+            long key = current.getOpaque(i);
+            if (key != 0) {
+                bigger.setOpaque(slotOf(key, bigger), key);
+            }
+        }
+        slots = bigger;
+    }
+
+    private static int slotOf(long key, AtomicLongArray in) {
+        return (int) key & (in.length() - 1);
+    }
+
+    private static long keyOf(long fingerprint) {
+        return fingerprint == 0 ? 1 : fingerprint; //0 marks an empty slot
+    }
+}
@@ -5,10 +5,43 @@ import org.junit.jupiter.api.Test;
 import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
 import uk.ac.aber.cs21120.wedding.interfaces.IRules;
 import uk.ac.aber.cs21120.wedding.interfaces.ISolver;
+import uk.ac.aber.cs21120.wedding.solution.BitsetPlan;
+import uk.ac.aber.cs21120.wedding.solution.CancellationToken;
+import uk.ac.aber.cs21120.wedding.solution.CandidateOrdering;
+import uk.ac.aber.cs21120.wedding.solution.CapacityCheck;
+import uk.ac.aber.cs21120.wedding.solution.CdclSolver;
+import uk.ac.aber.cs21120.wedding.solution.DecompositionSolver;
+import uk.ac.aber.cs21120.wedding.solution.EnemyGraphCheck;
+import uk.ac.aber.cs21120.wedding.solution.GuestOrdering;
+import uk.ac.aber.cs21120.wedding.solution.GuestRegistry;
+import uk.ac.aber.cs21120.wedding.solution.LocalSearchSolver;
+import uk.ac.aber.cs21120.wedding.solution.OptimisingSolver;
+import uk.ac.aber.cs21120.wedding.solution.ParallelSolver;
 import uk.ac.aber.cs21120.wedding.solution.Plan;
+import uk.ac.aber.cs21120.wedding.solution.PlanEnumerator;
+import uk.ac.aber.cs21120.wedding.solution.PlanTrail;
+import uk.ac.aber.cs21120.wedding.solution.PortfolioSolver;
+import uk.ac.aber.cs21120.wedding.solution.RepairSolver;
 import uk.ac.aber.cs21120.wedding.solution.Rules;
+import uk.ac.aber.cs21120.wedding.solution.SatEncoding;
+import uk.ac.aber.cs21120.wedding.solution.SatSolver;
+import uk.ac.aber.cs21120.wedding.solution.SolveResult;
 import uk.ac.aber.cs21120.wedding.solution.Solver;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public class AddedTests {
 
     /**
@@ -90,4 +123,1096 @@ public class AddedTests {
         Assertions.assertTrue(s.solve());
     }
 
+    /**
+     * Test that getTableOf follows a guest as they are added, removed and re-added to the plan
+     */
+    @Test
+    public void testGetTableOf() {
+        IPlan p = new Plan(3, 2);
+        Assertions.assertEquals(-1, p.getTableOf("A"));
+        p.addGuestToTable(2, "A");
+        Assertions.assertEquals(2, p.getTableOf("A"));
+        p.addGuestToTable(1, "A"); //already seated, so nothing changes
+        Assertions.assertEquals(2, p.getTableOf("A"));
+        p.removeGuestFromTable("A");
+        Assertions.assertEquals(-1, p.getTableOf("A"));
+        Assertions.assertFalse(p.isGuestPlaced("A"));
+        p.addGuestToTable(0, "A");
+        Assertions.assertEquals(0, p.getTableOf("A"));
+        Assertions.assertEquals(-1, p.getTableOf(null));
+    }
+
+    /**
+     * Test that the set of guests at a table can't be used to change the plan, but still shows changes made through it
+     */
+    @Test
+    public void testGuestsAtTableReadOnly() {
+        IPlan p = new Plan(2, 3);
+        p.addGuestToTable(0, "A");
+        Set<String> guests = p.getGuestsAtTable(0);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> guests.add("B"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> guests.remove("A"));
+        Assertions.assertThrows(UnsupportedOperationException.class, guests::clear);
+        Assertions.assertEquals(0, p.getTableOf("A"));
+        Assertions.assertFalse(p.isGuestPlaced("B"));
+
+        p.addGuestToTable(0, "C");
+        Assertions.assertEquals(Set.of("A", "C"), guests);
+        Assertions.assertSame(guests, p.getGuestsAtTable(0));
+    }
+
+    /**
+     * Test that both plans count the guests at a table without needing the set of them, and agree with it
+     */
+    @Test
+    public void testNumberOfGuestsAtTable() {
+        for (IPlan p : new IPlan[] {new Plan(3, 2), new BitsetPlan(3, 2)}) {
+            p.addGuestToTable(1, "A");
+            p.addGuestToTable(1, "B");
+            p.addGuestToTable(1, "C");
+            p.addGuestToTable(2, "C");
+            p.removeGuestFromTable("A");
+            Assertions.assertEquals(0, p.getNumberOfGuestsAtTable(0));
+            Assertions.assertEquals(1, p.getNumberOfGuestsAtTable(1));
+            Assertions.assertEquals(1, p.getNumberOfGuestsAtTable(2));
+            for (int t = 0; t < 3; t++) {
+                Assertions.assertEquals(p.getGuestsAtTable(t).size(), p.getNumberOfGuestsAtTable(t));
+            }
+            Assertions.assertThrows(IndexOutOfBoundsException.class, () -> p.getNumberOfGuestsAtTable(3));
+        }
+    }
+
+    /**
+     * Test that checking a single placement agrees with checking the whole plan
+     */
+    @Test
+    public void testIsPlacementOK() {
+        IRules r = new Rules();
+        r.addMustBeApart("A", "B");
+        r.addMustBeTogether("C", "D");
+
+        IPlan p = createPlan(2, 2, "A", null, "C", null);
+        p.addGuestToTable(0, "B"); //enemy of A
+        Assertions.assertFalse(r.isPlacementOK(p, 0, "B"));
+        Assertions.assertFalse(r.isPlanOK(p));
+        p.removeGuestFromTable("B");
+
+        p.addGuestToTable(1, "E"); //fills table 1 without C's friend
+        Assertions.assertFalse(r.isPlacementOK(p, 1, "E"));
+        Assertions.assertFalse(r.isPlanOK(p));
+        p.removeGuestFromTable("E");
+
+        p.addGuestToTable(1, "D");
+        Assertions.assertTrue(r.isPlacementOK(p, 1, "D"));
+        Assertions.assertTrue(r.isPlanOK(p));
+    }
+
+    /**
+     * Test that together rules sharing a guest are merged into one group, however they are added
+     */
+    @Test
+    public void testTogetherGroupsMerge() {
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeTogether("C", "D");
+        r.addMustBeTogether("D", "E");
+        Assertions.assertEquals(2, r.getGroupSize("A"));
+        Assertions.assertEquals(3, r.getGroupSize("E"));
+        Assertions.assertEquals(1, r.getGroupSize("F"));
+
+        r.addMustBeTogether("B", "E"); //joins the two groups
+        Assertions.assertEquals(5, r.getGroupSize("C"));
+        Assertions.assertEquals(r.getGroupOf("A"), r.getGroupOf("D"));
+        Assertions.assertEquals(Set.of("A", "B", "C", "D", "E"), r.getGroupMembers("A"));
+
+        // A and C are now in the same group, so they can't become enemies
+        r.addMustBeApart("A", "C");
+        IPlan p = createPlan(2, 5, "A", "B", "C", "D", "E", "F", "G", "H", "I", "J");
+        Assertions.assertTrue(r.isPlanOK(p));
+        p = createPlan(2, 5, "A", "B", "C", "D", "F", "E", "G", "H", "I", "J");
+        Assertions.assertFalse(r.isPlanOK(p));
+    }
+
+    /**
+     * Test that merging two groups is refused if someone would end up in a group with an enemy
+     */
+    @Test
+    public void testTogetherGroupsEnemyMerge() {
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeTogether("C", "D");
+        r.addMustBeApart("B", "C");
+        r.addMustBeTogether("A", "D"); //would put B and C together
+        Assertions.assertEquals(2, r.getGroupSize("A"));
+        Assertions.assertEquals(2, r.getGroupSize("D"));
+    }
+
+    /**
+     * Test that the rules give the same answers for a BitsetPlan sharing their registry as for a Plan,
+     * with enough guests that the bitsets need more than one word
+     */
+    @Test
+    public void testRulesOnSharedBitsetPlan() {
+        GuestRegistry registry = new GuestRegistry();
+        IRules r = new Rules(registry);
+        for (int i = 0; i < 100; i += 2) {
+            r.addMustBeApart(Integer.toString(i), Integer.toString(i + 1));
+        }
+        r.addMustBeTogether("0", "98");
+
+        IPlan[] plans = {new Plan(2, 50), new BitsetPlan(2, 50, registry)};
+        for (IPlan p : plans) {
+            for (int i = 0; i < 100; i++) {
+                // evens on table 0, odds on table 1
+                p.addGuestToTable(i % 2, Integer.toString(i));
+                Assertions.assertTrue(r.isPlacementOK(p, i % 2, Integer.toString(i)));
+            }
+            Assertions.assertTrue(r.isPlanOK(p));
+
+            p.removeGuestFromTable("98");
+            p.removeGuestFromTable("99");
+            p.addGuestToTable(0, "99"); //no enemies at table 0, but it is full again without 0's friend 98
+            Assertions.assertFalse(r.isPlacementOK(p, 0, "99"));
+            Assertions.assertFalse(r.isPlanOK(p));
+
+            p.removeGuestFromTable("2");
+            p.removeGuestFromTable("3");
+            p.removeGuestFromTable("99");
+            p.addGuestToTable(0, "3"); //3 is an enemy of 2, who is about to come back
+            p.addGuestToTable(0, "2");
+            Assertions.assertFalse(r.isPlacementOK(p, 0, "2"));
+            Assertions.assertFalse(r.isPlanOK(p));
+        }
+    }
+
+    /**
+     * Test that checking a plan doesn't allocate anything, by measuring how many bytes this thread allocates while
+     * the rules check a full Plan and a full BitsetPlan sharing their registry over and over
+     */
+    @Test
+    public void testRulesDoNotAllocate() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return; //this JVM can't say how much a thread has allocated
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        String[] guests = new String[200];
+        for (int i = 0; i < 200; i++) {
+            guests[i] = Integer.toString(i);
+        }
+        GuestRegistry registry = new GuestRegistry();
+        IRules r = new Rules(registry);
+        for (int i = 0; i < 192; i += 4) {
+            r.addMustBeTogether(guests[i], guests[i + 1]);
+            r.addMustBeApart(guests[i], guests[i + 8]);
+        }
+
+        for (IPlan p : new IPlan[] {new Plan(25, 8), new BitsetPlan(25, 8, registry)}) {
+            for (int i = 0; i < 200; i++) {
+                p.addGuestToTable(i / 8, guests[i]);
+            }
+            p.removeGuestFromTable("4"); //so one table's guests have been moved about
+            p.addGuestToTable(0, "4");
+            boolean ok = true;
+            for (int round = 0; round < 2; round++) { //the first round is to warm up the rules' buffers
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                for (int i = 0; i < 1000; i++) {
+                    ok &= r.isPlanOK(p);
+                    ok &= r.isPlacementOK(p, i % 25, guests[i % 25 * 8]);
+                }
+                long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+                if (round == 1) {
+                    Assertions.assertTrue(allocated < 1000, p.getClass().getSimpleName() + " allocated " + allocated + " bytes");
+                }
+            }
+            Assertions.assertTrue(ok);
+        }
+    }
+
+    /**
+     * Test that every combination of search strategies still solves the ABCDEF problem, and still proves the
+     * unsatisfiable one can't be solved
+     */
+    @Test
+    public void testSolverStrategies() {
+        String[] guests = {"A", "B", "C", "D", "E", "F"};
+        for (GuestOrdering guestOrdering : GuestOrdering.values()) {
+            for (CandidateOrdering candidateOrdering : CandidateOrdering.values()) {
+                IRules r = new Rules();
+                r.addMustBeTogether("A", "D");
+                r.addMustBeApart("A", "B");
+                r.addMustBeApart("C", "D");
+                IPlan p = new Plan(2, 3);
+                Assertions.assertTrue(new Solver(guests, p, r, guestOrdering, candidateOrdering).solve());
+                Assertions.assertTrue(r.isPlanOK(p));
+
+                r.addMustBeApart("A", "E");
+                r.addMustBeApart("A", "F");
+                p = new Plan(2, 3);
+                Assertions.assertFalse(new Solver(guests, p, r, guestOrdering, candidateOrdering).solve());
+            }
+        }
+    }
+
+    /**
+     * Test that the Solver gets the same answers with and without forward checking
+     */
+    @Test
+    public void testSolverForwardChecking() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I"};
+        for (boolean forwardChecking : new boolean[]{true, false}) {
+            IRules r = new Rules();
+            r.addMustBeTogether("A", "B");
+            r.addMustBeApart("A", "C");
+            r.addMustBeApart("C", "D");
+            r.addMustBeApart("D", "E");
+            IPlan p = new Plan(3, 3);
+            Solver s = new Solver(guests, p, r);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertTrue(s.solve());
+            Assertions.assertTrue(r.isPlanOK(p));
+
+            // A, C, D and E all have to be apart now, and there are only three tables
+            r.addMustBeApart("A", "D");
+            r.addMustBeApart("A", "E");
+            r.addMustBeApart("C", "E");
+            p = new Plan(3, 3);
+            s = new Solver(guests, p, r);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertFalse(s.solve());
+        }
+    }
+
+    /**
+     * Test that the transposition table doesn't change the answer, whether it is off, tiny or big,
+     * with and without forward checking
+     */
+    @Test
+    public void testSolverTranspositionTable() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        for (boolean forwardChecking : new boolean[]{true, false}) {
+            for (long bytes : new long[]{0, 8, 1 << 20}) {
+                IRules r = new Rules();
+                r.addMustBeTogether("F", "G");
+                r.addMustBeApart("A", "B");
+                r.addMustBeApart("B", "C");
+                r.addMustBeApart("C", "D");
+                r.addMustBeApart("D", "E");
+                IPlan p = new Plan(2, 5);
+                Solver s = new Solver(guests, p, r);
+                s.setForwardChecking(forwardChecking);
+                s.setTranspositionTableSize(bytes);
+                Assertions.assertTrue(s.solve());
+                Assertions.assertTrue(r.isPlanOK(p));
+
+                // the circle of five enemies again, which the search has to get through every way of splitting
+                r.addMustBeApart("E", "A");
+                p = new Plan(2, 5);
+                s = new Solver(guests, p, r);
+                s.setForwardChecking(forwardChecking);
+                s.setTranspositionTableSize(bytes);
+                Assertions.assertFalse(s.solve());
+                Assertions.assertEquals(0, p.getNumberOfGuestsAtTable(0));
+            }
+        }
+
+        Solver s = new Solver(guests, new Plan(2, 5), new Rules());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> s.setTranspositionTableSize(-1));
+    }
+
+    /**
+     * Test that backjumping gets the same answers as the normal search, with and without forward checking, including
+     * on plans where it does jump
+     */
+    @Test
+    public void testSolverBackjumping() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        for (boolean forwardChecking : new boolean[]{true, false}) {
+            IRules r = new Rules();
+            r.addMustBeTogether("F", "G");
+            r.addMustBeApart("A", "B");
+            r.addMustBeApart("B", "C");
+            r.addMustBeApart("C", "D");
+            r.addMustBeApart("D", "E");
+            IPlan p = new Plan(2, 5);
+            Solver s = new Solver(guests, p, r);
+            s.setBackjumping(true);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertTrue(s.solve());
+            Assertions.assertTrue(r.isPlanOK(p));
+
+            // closing the line of enemies into a circle of five can't be split between two tables,
+            // but there is no clique bigger than two, so it is left to the search to find out
+            r.addMustBeApart("E", "A");
+            p = new Plan(2, 5);
+            s = new Solver(guests, p, r);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertFalse(s.solve());
+            Assertions.assertEquals(0, s.getNogoodCount());
+            s = new Solver(guests, p, r);
+            s.setBackjumping(true);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertFalse(s.solve());
+            Assertions.assertTrue(s.getUnsatisfiableClique().isEmpty());
+            Assertions.assertTrue(s.getNogoodCount() > 0);
+            Assertions.assertEquals(0, p.getNumberOfGuestsAtTable(0));
+
+            // with A already at table 1, whoever fills table 0 last can't have gone to table 1 anyway,
+            // so the search jumps over them
+            r = new Rules();
+            String[][] apart = {{"H", "E"}, {"B", "F"}, {"E", "G"}, {"C", "I"}, {"A", "I"}, {"B", "C"}, {"D", "E"},
+                    {"C", "F"}, {"H", "D"}, {"E", "I"}};
+            for (String[] pair : apart) {
+                r.addMustBeApart(pair[0], pair[1]);
+            }
+            p = new Plan(2, 4);
+            p.addGuestToTable(1, "A");
+            s = new Solver(Arrays.copyOf(guests, 9), p, r, GuestOrdering.INPUT_ORDER, CandidateOrdering.IN_ORDER);
+            s.setBackjumping(true);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertFalse(s.solve());
+            Assertions.assertEquals(1, p.getNumberOfGuestsAtTable(1));
+
+            // groupmates can't go to the next table once their group is seated, so they can be jumped over too
+            r = new Rules();
+            r.addMustBeTogether("D", "G");
+            r.addMustBeTogether("J", "B");
+            r.addMustBeTogether("I", "E");
+            r.addMustBeTogether("J", "C");
+            p = new Plan(3, 3);
+            p.addGuestToTable(0, "H");
+            p.addGuestToTable(2, "D");
+            s = new Solver(guests, p, r, GuestOrdering.INPUT_ORDER, CandidateOrdering.LEAST_CONSTRAINING);
+            s.setBackjumping(true);
+            s.setForwardChecking(forwardChecking);
+            Assertions.assertTrue(s.solve());
+            Assertions.assertTrue(r.isPlanOK(p));
+        }
+    }
+
+    /**
+     * Test that a group's table stays where its first member was seated, when a groupmate is tried at another table
+     * and taken back out again. Otherwise the least constraining ordering can lose track of g4 and g7's table and
+     * never offers g7 at it.
+     */
+    @Test
+    public void testSolverGroupTableAfterUnseat() {
+        String[] guests = {"g1", "g2", "g7", "g0", "g5", "g3", "g4", "g6"};
+        String[][] apart = {{"g3", "g1"}, {"g7", "g1"}, {"g0", "g3"}, {"g5", "g7"}, {"g1", "g5"}, {"g1", "g2"},
+                {"g2", "g3"}, {"g2", "g5"}, {"g0", "g7"}, {"g5", "g3"}, {"g7", "g3"}};
+        IRules r = new Rules();
+        r.addMustBeTogether("g4", "g7");
+        for (String[] pair : apart) {
+            r.addMustBeApart(pair[0], pair[1]);
+        }
+        for (boolean backjumping : new boolean[]{false, true}) {
+            for (long bytes : new long[]{0, 1 << 20}) {
+                IPlan p = new Plan(2, 3);
+                p.addGuestToTable(1, "g4");
+                Solver s = new Solver(guests, p, r, GuestOrdering.ENEMY_DEGREE, CandidateOrdering.LEAST_CONSTRAINING);
+                s.setForwardChecking(false);
+                s.setBackjumping(backjumping);
+                s.setTranspositionTableSize(bytes);
+                Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+                Assertions.assertTrue(r.isPlanOK(p));
+                Assertions.assertEquals(1, p.getTableOf("g7"));
+            }
+        }
+    }
+
+    /**
+     * Test that groups which can't fit on the tables are found before searching
+     */
+    @Test
+    public void testCapacityCheck() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeTogether("B", "C");
+        r.addMustBeTogether("D", "E");
+        r.addMustBeTogether("E", "F");
+        r.addMustBeTogether("G", "H");
+        r.addMustBeTogether("H", "I");
+        r.addMustBeTogether("I", "J");
+        // {A B C} {D E F} {G H I J} can't be split into two tables of five
+        IPlan p = new Plan(2, 5);
+        Assertions.assertFalse(new CapacityCheck(guests, p, r).mightFit());
+        Assertions.assertFalse(new Solver(guests, p, r).solve());
+
+        // {G H I J} is too big for a table of three, which leaves 6 guests for 6 seats
+        p = new Plan(2, 3);
+        CapacityCheck check = new CapacityCheck(guests, p, r);
+        Assertions.assertTrue(check.mightFit());
+        Assertions.assertFalse(check.isSeatable("G"));
+        Assertions.assertTrue(check.isSeatable("D"));
+        Assertions.assertTrue(new Solver(guests, p, r).solve());
+        Assertions.assertFalse(p.isGuestPlaced("J"));
+
+        // not enough guests who can be seated to fill three tables of three
+        p = new Plan(3, 3);
+        Assertions.assertFalse(new CapacityCheck(guests, p, r).mightFit());
+    }
+
+    /**
+     * Test that a clique of enemies bigger than the number of tables is found and reported before searching
+     */
+    @Test
+    public void testEnemyGraphCheck() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L"};
+        IRules r = new Rules();
+        String[] clique = {"A", "B", "C", "D", "E"};
+        for (int i = 0; i < clique.length; i++) {
+            for (int j = i + 1; j < clique.length; j++) {
+                r.addMustBeApart(clique[i], clique[j]);
+            }
+        }
+        r.addMustBeTogether("E", "F");
+
+        // the clique needs five tables but there are four, and no-one can be left out
+        IPlan p = new Plan(4, 3);
+        Solver s = new Solver(guests, p, r);
+        Assertions.assertFalse(s.solve());
+        Assertions.assertEquals(5, s.getUnsatisfiableClique().size());
+        Assertions.assertTrue(s.getUnsatisfiableClique().contains(Set.of("E", "F")));
+
+        // with three guests to spare, A and B can be left out instead
+        p = new Plan(3, 3);
+        EnemyGraphCheck check = new EnemyGraphCheck(guests, p, r, new CapacityCheck(guests, p, r));
+        Assertions.assertTrue(check.mightFit());
+        Assertions.assertEquals(5, check.getColoursNeeded());
+        s = new Solver(guests, p, r);
+        Assertions.assertTrue(s.solve());
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertTrue(s.getUnsatisfiableClique().isEmpty());
+    }
+
+    /**
+     * Test that the ParallelSolver gets the same answers as the Solver, keeps guests who were already seated,
+     * and only changes the plan when it finds a solution
+     */
+    @Test
+    public void testParallelSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeApart("A", "C");
+        r.addMustBeApart("C", "D");
+        r.addMustBeApart("D", "E");
+        r.addMustBeApart("E", "F");
+        r.addMustBeApart("F", "G");
+
+        for (int threads = 1; threads <= 4; threads++) {
+            IPlan p = new Plan(4, 3);
+            p.addGuestToTable(2, "G");
+            Assertions.assertTrue(new ParallelSolver(guests, p, r, threads).solve());
+            Assertions.assertTrue(r.isPlanOK(p));
+            Assertions.assertEquals(2, p.getTableOf("G"));
+            for (int t = 0; t < 4; t++) {
+                Assertions.assertEquals(3, p.getGuestsAtTable(t).size());
+            }
+        }
+
+        // C, D, E and F can't share a table with A and B, so someone is left with nowhere to go
+        r.addMustBeApart("B", "D");
+        r.addMustBeApart("B", "E");
+        r.addMustBeApart("B", "F");
+        r.addMustBeApart("A", "G");
+        String[] fewer = {"A", "B", "C", "D", "E", "F"};
+        IPlan p = new Plan(2, 3);
+        Assertions.assertFalse(new Solver(fewer, p, r).solve());
+        Assertions.assertFalse(new ParallelSolver(fewer, p, r, 4).solve());
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelSolver(guests, new Plan(1, 1), r, 0));
+    }
+
+    /**
+     * Test that the PortfolioSolver copies the winning plan back, and agrees with the Solver when there is no solution
+     */
+    @Test
+    public void testPortfolioSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeTogether("B", "C");
+        r.addMustBeApart("A", "D");
+        r.addMustBeApart("D", "E");
+        r.addMustBeApart("E", "F");
+
+        IPlan p = new Plan(3, 3);
+        p.addGuestToTable(1, "E");
+        PortfolioSolver s = new PortfolioSolver(guests, p, r);
+        Assertions.assertTrue(s.solve());
+        Assertions.assertNotNull(s.getWinner());
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(1, p.getTableOf("E"));
+        for (int t = 0; t < 3; t++) {
+            Assertions.assertEquals(3, p.getGuestsAtTable(t).size());
+        }
+
+        // D, E and F now all have to be apart, and so does the group {A B C} from D and F
+        r.addMustBeApart("D", "F");
+        r.addMustBeApart("A", "F");
+        p = new Plan(3, 3);
+        Assertions.assertFalse(new PortfolioSolver(guests, p, r, 0).solve());
+        Assertions.assertFalse(new Solver(guests, new Plan(3, 3), r).solve());
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+    }
+
+    /**
+     * Test that the local search solver finds solutions, gives up on a plan with no solution, and leaves seated guests alone
+     */
+    @Test
+    public void testLocalSearchSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeTogether("B", "C");
+        r.addMustBeApart("A", "D");
+        r.addMustBeApart("D", "E");
+        r.addMustBeApart("E", "F");
+
+        IPlan p = new Plan(3, 3);
+        p.addGuestToTable(1, "E");
+        LocalSearchSolver s = new LocalSearchSolver(guests, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(1, p.getTableOf("E"));
+        for (int t = 0; t < 3; t++) {
+            Assertions.assertEquals(3, p.getGuestsAtTable(t).size());
+        }
+
+        // {A B C}, D, E and F all have to be apart, which the checks before searching find
+        r.addMustBeApart("D", "F");
+        r.addMustBeApart("A", "F");
+        r.addMustBeApart("A", "E");
+        s = new LocalSearchSolver(guests, new Plan(3, 3), r);
+        Assertions.assertEquals(SolveResult.UNSATISFIABLE, s.solve(new CancellationToken()));
+        Assertions.assertFalse(s.getUnsatisfiableClique().isEmpty());
+
+        // a circle of five enemies can't be split between two tables, but only searching finds that out
+        String[] circle = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        r = new Rules();
+        r.addMustBeApart("A", "B");
+        r.addMustBeApart("B", "C");
+        r.addMustBeApart("C", "D");
+        r.addMustBeApart("D", "E");
+        r.addMustBeApart("E", "A");
+        p = new Plan(2, 5);
+        s = new LocalSearchSolver(circle, p, r);
+        s.setMaxSteps(2000);
+        Assertions.assertEquals(SolveResult.GAVE_UP, s.solve(new CancellationToken()));
+        Assertions.assertEquals(2000, s.getStepsTaken());
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+
+        // 200 guests, where guest i and i+20 are together and guest i and i+1 are apart
+        String[] many = new String[200];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "guest" + i;
+        }
+        r = new Rules();
+        for (int i = 0; i < many.length; i++) {
+            if (i + 20 < many.length) r.addMustBeTogether(many[i], many[i + 20]);
+            if (i + 1 < many.length) r.addMustBeApart(many[i], many[i + 1]);
+        }
+        p = new Plan(20, 10);
+        s = new LocalSearchSolver(many, p, r);
+        s.setTabuTenure(5);
+        s.setAnnealing(1.0, 0.99);
+        Assertions.assertTrue(s.solve());
+        Assertions.assertTrue(r.isPlanOK(p));
+
+        LocalSearchSolver settings = new LocalSearchSolver(guests, new Plan(3, 3), new Rules());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> settings.setTabuTenure(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> settings.setAnnealing(-1, 0.9));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> settings.setAnnealing(1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> settings.setMaxSteps(-1));
+    }
+
+    /**
+     * Test that the SAT solver finds solutions, proves there isn't one when the search has to find out, and leaves seated guests alone
+     */
+    @Test
+    public void testSatSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeTogether("B", "C");
+        r.addMustBeApart("A", "D");
+        r.addMustBeApart("D", "E");
+        r.addMustBeApart("E", "F");
+
+        IPlan p = new Plan(3, 3);
+        p.addGuestToTable(1, "E");
+        Assertions.assertTrue(new SatSolver(guests, p, r).solve());
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(1, p.getTableOf("E"));
+        for (int t = 0; t < 3; t++) {
+            Assertions.assertEquals(3, p.getGuestsAtTable(t).size());
+        }
+
+        // a circle of five enemies can't be split between two tables, but only searching finds that out
+        String[] circle = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        r = new Rules();
+        r.addMustBeApart("A", "B");
+        r.addMustBeApart("B", "C");
+        r.addMustBeApart("C", "D");
+        r.addMustBeApart("D", "E");
+        r.addMustBeApart("E", "A");
+        p = new Plan(2, 5);
+        SatSolver s = new SatSolver(circle, p, r);
+        Assertions.assertEquals(SolveResult.UNSATISFIABLE, s.solve(new CancellationToken()));
+        Assertions.assertTrue(s.getUnsatisfiableClique().isEmpty());
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+    }
+
+    /**
+     * Test that a plan written out in DIMACS format can be read back in and solved, and the model turned back into a plan
+     */
+    @Test
+    public void testSatEncodingRoundTrip() throws IOException {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        IRules r = new Rules();
+        r.addMustBeTogether("F", "G");
+        r.addMustBeApart("A", "B");
+        r.addMustBeApart("B", "C");
+        r.addMustBeApart("C", "D");
+        r.addMustBeApart("D", "E");
+        IPlan p = new Plan(2, 5);
+        p.addGuestToTable(0, "C");
+
+        SatEncoding encoding = new SatEncoding(guests, p, r);
+        Assertions.assertEquals(0, encoding.variableOf("C", 0)); //already seated
+        Assertions.assertEquals(0, encoding.variableOf("B", 0)); //C's enemy
+        Assertions.assertNotEquals(0, encoding.variableOf("B", 1));
+        StringWriter dimacs = new StringWriter();
+        encoding.writeDimacs(dimacs);
+        Assertions.assertTrue(dimacs.toString().contains("p cnf " + encoding.getVariableCount() + " " + encoding.getClauseCount()));
+
+        CdclSolver sat = CdclSolver.readDimacs(new StringReader(dimacs.toString()));
+        Assertions.assertEquals(encoding.getVariableCount(), sat.getVariableCount());
+        Assertions.assertEquals(Boolean.TRUE, sat.solve(null));
+        encoding.decodeInto(p, sat.getModel());
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(0, p.getTableOf("C"));
+        for (int t = 0; t < 2; t++) {
+            Assertions.assertEquals(5, p.getGuestsAtTable(t).size());
+        }
+
+        // nine pigeons don't fit in eight holes
+        sat = new CdclSolver(72);
+        for (int pigeon = 0; pigeon < 9; pigeon++) {
+            int[] somewhere = new int[8];
+            for (int hole = 0; hole < 8; hole++) {
+                somewhere[hole] = pigeon * 8 + hole + 1;
+                for (int other = 0; other < pigeon; other++) {
+                    sat.addClause(-(pigeon * 8 + hole + 1), -(other * 8 + hole + 1));
+                }
+            }
+            sat.addClause(somewhere);
+        }
+        Assertions.assertEquals(Boolean.FALSE, sat.solve(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CdclSolver.readDimacs(new StringReader("1 -2 0\n")));
+    }
+
+    /**
+     * Test that soft rules add up, cancel out, and give plans the right score
+     */
+    @Test
+    public void testPreferences() {
+        IRules r = new Rules();
+        r.preferTogether("A", "B", 3);
+        r.preferApart("B", "A", 1);
+        Assertions.assertEquals(Map.of("B", 2), r.getPreferences("A"));
+        r.preferApart("A", "B", 2); //cancels out
+        Assertions.assertEquals(Map.of(), r.getPreferences("B"));
+        r.preferApart("A", "C", 4);
+        r.preferTogether("C", "D", 5);
+        Assertions.assertEquals(Map.of("A", -4, "D", 5), r.getPreferences("C"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> r.preferTogether("A", "D", 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> r.preferApart("A", "A", 1));
+
+        IPlan p = createPlan(2, 2, "A", "C", "B", "D");
+        Assertions.assertEquals(-4, r.getScore(p));
+        p = createPlan(2, 2, "A", "B", "C", "D");
+        Assertions.assertEquals(5, r.getScore(p));
+        Assertions.assertTrue(r.isPlanOK(p)); //soft rules never make a plan wrong
+    }
+
+    /**
+     * Test that the optimising solver finds the plan with the best score, keeps seated guests where they are,
+     * and gives back the best plan so far when it runs out of time
+     */
+    @Test
+    public void testOptimisingSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F"};
+        IRules r = new Rules();
+        r.addMustBeApart("A", "B");
+        r.preferTogether("A", "C", 5);
+        r.preferTogether("A", "E", 4);
+        r.preferTogether("B", "D", 3);
+        r.preferTogether("B", "F", 3);
+        r.preferApart("C", "D", 10);
+
+        IPlan p = new Plan(2, 3);
+        p.addGuestToTable(1, "E");
+        OptimisingSolver s = new OptimisingSolver(guests, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertTrue(s.isOptimal());
+        Assertions.assertEquals(15, s.getBestScore());
+        Assertions.assertEquals(15, r.getScore(p));
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(Set.of("A", "C", "E"), p.getGuestsAtTable(1));
+
+        // only the plans the rules allow count, however good the score
+        r.addMustBeApart("A", "C");
+        p = new Plan(2, 3);
+        s = new OptimisingSolver(guests, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(r.getScore(p), s.getBestScore());
+        CancellationToken cancelled = new CancellationToken();
+        cancelled.cancel();
+        p = new Plan(2, 3);
+        Assertions.assertEquals(SolveResult.CANCELLED, new OptimisingSolver(guests, p, r).solve(cancelled));
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+
+        // 48 guests with lots of preferences is too many to prove the best plan quickly, but there is always a plan to give back
+        String[] many = new String[48];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "guest" + i;
+        }
+        r = new Rules();
+        for (int i = 0; i < many.length; i++) {
+            r.addMustBeApart(many[i], many[(i + 1) % many.length]);
+            r.preferTogether(many[i], many[(i * 7 + 3) % many.length], 1 + i % 5);
+            r.preferApart(many[i], many[(i * 11 + 5) % many.length], 1 + i % 3);
+        }
+        p = new Plan(6, 8);
+        s = new OptimisingSolver(many, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(Duration.ofMillis(200)));
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(r.getScore(p), s.getBestScore());
+    }
+
+    /**
+     * Test that every solution is streamed once, whichever order the empty tables are in, and that counting them agrees
+     */
+    @Test
+    public void testPlanEnumerator() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G"};
+        IRules r = new Rules();
+        r.addMustBeApart("A", "B");
+        IPlan p = new Plan(2, 3);
+        PlanEnumerator e = new PlanEnumerator(guests, p, r);
+
+        // 10 ways to split the six others into two tables if A or B is left out, 6 ways for each of the other five
+        Assertions.assertEquals(BigInteger.valueOf(50), e.countSolutions());
+        List<IPlan> plans = e.stream().collect(Collectors.toList());
+        Assertions.assertEquals(50, plans.size());
+        Set<Set<Set<String>>> seatings = new HashSet<>();
+        for (IPlan plan : plans) {
+            Assertions.assertTrue(r.isPlanOK(plan));
+            seatings.add(Set.of(plan.getGuestsAtTable(0), plan.getGuestsAtTable(1)));
+        }
+        Assertions.assertEquals(50, seatings.size()); //no two are the same plan with the tables swapped
+        Assertions.assertEquals(50, e.stream().parallel().count());
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+
+        // once A and C are seated the tables are different: 4 guests could join them, then 4 ways to leave one out
+        p.addGuestToTable(1, "C");
+        p.addGuestToTable(1, "A");
+        e = new PlanEnumerator(guests, p, r);
+        Assertions.assertEquals(BigInteger.valueOf(16), e.countSolutions());
+        Assertions.assertTrue(e.stream().allMatch(plan -> plan.getGuestsAtTable(1).containsAll(Set.of("A", "C"))));
+        Assertions.assertEquals(16, e.stream().count());
+
+        r.addMustBeApart("A", "D");
+        r.addMustBeApart("A", "E");
+        r.addMustBeApart("A", "F");
+        r.addMustBeApart("A", "G");
+        e = new PlanEnumerator(guests, p, r);
+        Assertions.assertEquals(BigInteger.ZERO, e.countSolutions());
+        Assertions.assertEquals(0, e.stream().count());
+
+        // 40 guests with no rules at 4 tables of 10 can be seated in 40! / (10!^4 * 4!) ways, far too many to go through
+        String[] many = new String[40];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "guest" + i;
+        }
+        e = new PlanEnumerator(many, new Plan(4, 10), new Rules());
+        BigInteger expected = factorial(40).divide(factorial(10).pow(4).multiply(factorial(4)));
+        Assertions.assertEquals(expected, e.countSolutions());
+        Assertions.assertEquals(5, e.stream().limit(5).count());
+    }
+
+    /**
+     * Work out n! for the counting tests
+     */
+    private static BigInteger factorial(int n) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    /**
+     * Test that repairing a plan after a new rule only moves the guests it has to, and puts the plan back if it can't
+     */
+    @Test
+    public void testRepairSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J"};
+        IRules r = new Rules();
+        IPlan p = createPlan(3, 3, "A", "B", "C", "D", "E", "F", "G", "H", "I");
+        RepairSolver s = new RepairSolver(guests, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertEquals(0, s.getRounds()); //nothing to repair
+        Assertions.assertTrue(s.getReleasedGuests().isEmpty());
+
+        // J isn't seated, so A and J can only sit together if one of A's table gives up their seat
+        r.addMustBeTogether("A", "J");
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(2, s.getRounds());
+        Assertions.assertEquals(Set.of("A", "B", "C"), s.getReleasedGuests());
+        Assertions.assertEquals(Set.of("D", "E", "F"), p.getGuestsAtTable(1));
+        Assertions.assertEquals(Set.of("G", "H", "I"), p.getGuestsAtTable(2));
+
+        // A and J now have to move to another table
+        r.addMustBeApart("J", "B");
+        r.addMustBeApart("J", "C");
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertTrue(r.isPlanOK(p));
+        for (int t = 0; t < 3; t++) {
+            Assertions.assertEquals(3, p.getGuestsAtTable(t).size());
+        }
+
+        // nobody can sit with A, so there is no solution at all, and the plan is left alone
+        p = createPlan(2, 2, "A", "B", "C", "D");
+        r = new Rules();
+        r.addMustBeApart("A", "B");
+        r.addMustBeApart("A", "C");
+        r.addMustBeApart("A", "D");
+        s = new RepairSolver(new String[]{"A", "B", "C", "D"}, p, r);
+        Assertions.assertEquals(SolveResult.UNSATISFIABLE, s.solve(new CancellationToken()));
+        Assertions.assertEquals(Set.of("A", "B"), p.getGuestsAtTable(0));
+        Assertions.assertEquals(Set.of("C", "D"), p.getGuestsAtTable(1));
+    }
+
+    /**
+     * Test the DecompositionSolver splits the guests with rules into clusters, packs them and fills in round them,
+     * and hands the problem to the Solver when it can't
+     */
+    @Test
+    public void testDecompositionSolver() {
+        String[] guests = {"A", "B", "C", "D", "E", "F", "G", "H"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeApart("A", "C");
+        r.addMustBeApart("D", "E");
+        IPlan p = new Plan(2, 3);
+        DecompositionSolver s = new DecompositionSolver(guests, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertTrue(s.wasDecomposed());
+        Assertions.assertEquals(2, s.getComponents());
+        Assertions.assertEquals(Set.of("A", "B", "D"), p.getGuestsAtTable(0));
+        Assertions.assertEquals(Set.of("C", "E", "F"), p.getGuestsAtTable(1));
+        Assertions.assertEquals(-1, p.getTableOf("G")); //the guests with no rules are the ones left over
+        Assertions.assertEquals(-1, p.getTableOf("H"));
+
+        // someone already seated means the Solver is used
+        p = createPlan(2, 3, "C", null, null, null, null, null);
+        s = new DecompositionSolver(guests, p, r);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertFalse(s.wasDecomposed());
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(0, p.getTableOf("C"));
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        Assertions.assertEquals(SolveResult.CANCELLED, new DecompositionSolver(guests, new Plan(2, 3), r).solve(token));
+
+        // three guests who all have to be apart can't fit at two tables, when there is a seat for everyone
+        r.addMustBeApart("A", "F");
+        r.addMustBeApart("C", "F");
+        s = new DecompositionSolver(new String[]{"A", "B", "C", "D", "E", "F"}, new Plan(2, 3), r);
+        Assertions.assertEquals(SolveResult.UNSATISFIABLE, s.solve(new CancellationToken()));
+        Assertions.assertFalse(s.getUnsatisfiableClique().isEmpty());
+
+        // a big wedding with lots of small groups of guests linked by rules
+        int numTables = 40;
+        int seats = 10;
+        String[] many = new String[numTables * seats + 5];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "Guest" + i;
+        }
+        IRules big = new Rules();
+        Random random = new Random(1);
+        for (int i = 0; i < 150; i++) {
+            big.addMustBeApart(many[random.nextInt(many.length)], many[random.nextInt(many.length)]);
+        }
+        for (int i = 0; i < 60; i++) {
+            big.addMustBeTogether(many[random.nextInt(many.length)], many[random.nextInt(many.length)]);
+        }
+        p = new Plan(numTables, seats);
+        s = new DecompositionSolver(many, p, big);
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(Duration.ofSeconds(30)));
+        Assertions.assertTrue(s.wasDecomposed());
+        Assertions.assertTrue(big.isPlanOK(p));
+        for (int t = 0; t < numTables; t++) {
+            Assertions.assertEquals(seats, p.getGuestsAtTable(t).size());
+        }
+    }
+
+    /**
+     * Test a PlanTrail rolls a Plan and a BitsetPlan back to a checkpoint, leaving everything from before it alone
+     */
+    @Test
+    public void testPlanTrail() {
+        for (IPlan p : List.of(new Plan(2, 2), new BitsetPlan(2, 2))) {
+            p.addGuestToTable(0, "A"); //seated before the trail, so never rolled back
+            PlanTrail trail = new PlanTrail(p);
+            Assertions.assertTrue(trail.place(0, "B"));
+            int checkpoint = trail.checkpoint();
+            Assertions.assertEquals(1, checkpoint);
+            Assertions.assertFalse(trail.place(0, "C")); //the table is full
+            Assertions.assertFalse(trail.place(1, "A")); //already seated
+            Assertions.assertFalse(trail.place(1, " "));
+            Assertions.assertTrue(trail.place(1, "C"));
+            Assertions.assertTrue(trail.place(1, "D"));
+            Assertions.assertEquals(3, trail.checkpoint());
+
+            trail.rollbackTo(checkpoint);
+            Assertions.assertEquals(Set.of("A", "B"), p.getGuestsAtTable(0));
+            Assertions.assertTrue(p.getGuestsAtTable(1).isEmpty());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> trail.rollbackTo(2));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> trail.rollbackTo(-1));
+
+            Assertions.assertTrue(trail.place(1, "D"));
+            trail.rollbackTo(0);
+            Assertions.assertEquals(Set.of("A"), p.getGuestsAtTable(0));
+            Assertions.assertEquals(-1, p.getTableOf("D"));
+        }
+    }
+
+    /**
+     * Test that the Solver only counts a guest as seated if the plan actually took them, so a plan which turns someone
+     * away can't leave a seat empty while the Solver thinks every table is full
+     */
+    @Test
+    public void testSolverPlanRefusesGuest() {
+        IPlan p = new Plan(2, 2) {
+            @Override
+            public void addGuestToTable(int tableNumber, String guestName) {
+                if (!guestName.equals("B")) {
+                    super.addGuestToTable(tableNumber, guestName);
+                }
+            }
+        };
+        Solver s = new Solver(new String[]{"A", "B", "C", "D", "E"}, p, new Rules());
+        Assertions.assertEquals(SolveResult.SOLVED, s.solve(new CancellationToken()));
+        Assertions.assertFalse(p.isGuestPlaced("B"));
+        Assertions.assertEquals(2, p.getGuestsAtTable(0).size());
+        Assertions.assertEquals(2, p.getGuestsAtTable(1).size());
+    }
+
+    /**
+     * Test the Solver can seat thousands of guests on a thread with a small stack, as its search doesn't recurse
+     */
+    @Test
+    public void testDeepSearch() throws InterruptedException {
+        int numTables = 600;
+        int seats = 3;
+        String[] guests = new String[numTables * seats];
+        for (int i = 0; i < guests.length; i++) {
+            guests[i] = "Guest" + i;
+        }
+        IRules r = new Rules();
+        for (int i = 0; i + 1 < guests.length; i += 7) {
+            r.addMustBeApart(guests[i], guests[i + 1]);
+        }
+        for (int i = 2; i + 1 < guests.length; i += 9) {
+            r.addMustBeTogether(guests[i], guests[i + 1]);
+        }
+        IPlan p = new Plan(numTables, seats);
+        SolveResult[] result = new SolveResult[1];
+        Thread thread = new Thread(null, () -> result[0] = new Solver(guests, p, r).solve(Duration.ofMinutes(1)), "deep", 128 * 1024);
+        thread.start();
+        thread.join();
+        Assertions.assertEquals(SolveResult.SOLVED, result[0]);
+        Assertions.assertTrue(r.isPlanOK(p));
+        for (int t = 0; t < numTables; t++) {
+            Assertions.assertEquals(seats, p.getGuestsAtTable(t).size());
+        }
+    }
+
+    /**
+     * Test the rules still see the right guests at a table after guests have been taken out of the middle of it,
+     * including by a name which is equal to the one seated but isn't the same String
+     */
+    @Test
+    public void testPlanOKAfterRemovals() {
+        IRules r = new Rules();
+        r.addMustBeApart("A", "D");
+        r.addMustBeTogether("B", "C");
+        IPlan p = createPlan(1, 3, "A", "B", "C");
+        Assertions.assertTrue(r.isPlanOK(p));
+
+        p.removeGuestFromTable(new String("B"));
+        Assertions.assertEquals(Set.of("A", "C"), p.getGuestsAtTable(0));
+        Assertions.assertTrue(r.isPlanOK(p));
+        p.addGuestToTable(0, "D");
+        Assertions.assertFalse(r.isPlanOK(p));
+        Assertions.assertFalse(r.isPlacementOK(p, 0, "D"));
+
+        p.removeGuestFromTable("A");
+        p.addGuestToTable(0, "E");
+        Assertions.assertFalse(r.isPlanOK(p)); //a full table with C but not B
+        p.removeGuestFromTable("D");
+        p.removeGuestFromTable("E");
+        p.addGuestToTable(0, "B");
+        Assertions.assertTrue(r.isPlanOK(p));
+        Assertions.assertEquals(Set.of("B", "C"), p.getGuestsAtTable(0));
+    }
+
+    /**
+     * Test the time limits, cancellation and solveAsync, and that a search which is stopped leaves the plan alone
+     */
+    @Test
+    public void testTimeoutsAndCancellation() throws Exception {
+        String[] guests = {"A", "B", "C", "D", "E", "F"};
+        IRules r = new Rules();
+        r.addMustBeTogether("A", "B");
+        r.addMustBeApart("A", "C");
+
+        IPlan p = new Plan(2, 3);
+        Assertions.assertEquals(SolveResult.TIMED_OUT, new Solver(guests, p, r).solve(Duration.ZERO));
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+        Assertions.assertEquals(SolveResult.SOLVED, new Solver(guests, p, r).solve(Duration.ofMinutes(1)));
+        Assertions.assertTrue(r.isPlanOK(p));
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        p = new Plan(2, 3);
+        Assertions.assertEquals(SolveResult.CANCELLED, new Solver(guests, p, r).solve(token));
+        Assertions.assertEquals(SolveResult.CANCELLED, new ParallelSolver(guests, p, r, 2).solve(token));
+        Assertions.assertEquals(SolveResult.CANCELLED, new PortfolioSolver(guests, p, r).solve(token));
+        Assertions.assertEquals(SolveResult.CANCELLED, new Solver(guests, p, r).solveAsync(token).get());
+        Assertions.assertEquals(0, p.getGuestsAtTable(0).size());
+
+        Assertions.assertEquals(SolveResult.SOLVED, new ParallelSolver(guests, p, r, 2).solveAsync().get());
+        Assertions.assertTrue(r.isPlanOK(p));
+
+        // {A B} can't fit anywhere once both tables have someone who is an enemy of one of them
+        r.addMustBeApart("B", "D");
+        p = new Plan(2, 3);
+        p.addGuestToTable(0, "C");
+        p.addGuestToTable(1, "D");
+        Assertions.assertEquals(SolveResult.UNSATISFIABLE, new Solver(guests, p, r).solve(Duration.ofMinutes(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Solver(guests, new Plan(1, 1), r).solve(Duration.ofSeconds(-1)));
+    }
+
 }
@@ -0,0 +1,96 @@
+package uk.ac.aber.cs21120.wedding.test;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import uk.ac.aber.cs21120.wedding.interfaces.IPlan;
+import uk.ac.aber.cs21120.wedding.solution.BitsetPlan;
+import uk.ac.aber.cs21120.wedding.solution.GuestRegistry;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests to make sure that BitsetPlan keeps to the same IPlan contract as Plan. The tests in PlanContractTests
+ * are run against a BitsetPlan, and these add the things only BitsetPlan has.
+ */
+public class BitsetPlanTests extends PlanContractTests {
+
+    /**
+     * Run the contract tests against a BitsetPlan
+     */
+    @Override
+    protected IPlan createPlan(int tables, int seats) {
+        return new BitsetPlan(tables, seats);
+    }
+
+    /**
+     * Test removing guests, including ones that were never there, or are null or blank
+     */
+    @Test
+    public void testRemoveNullOrBlank() {
+        IPlan p = new BitsetPlan(10, 3);
+        p.addGuestToTable(3, "Banquo");
+        p.addGuestToTable(3, "Hamlet");
+
+        p.removeGuestFromTable("Banquo");
+        p.removeGuestFromTable("Banquo");
+        p.removeGuestFromTable("Feste");
+        p.removeGuestFromTable(null);
+        p.removeGuestFromTable("  ");
+
+        Assertions.assertFalse(p.isGuestPlaced("Banquo"));
+        Assertions.assertTrue(p.isGuestPlaced("Hamlet"));
+        Assertions.assertEquals(Set.of("Hamlet"), p.getGuestsAtTable(3));
+
+        // the seat should be free again
+        p.addGuestToTable(3, "Banquo");
+        p.addGuestToTable(3, "Feste");
+        Assertions.assertEquals(3, p.getGuestsAtTable(3).size());
+    }
+
+    /**
+     * Test that the bitsets grow properly once there are more than 64 guests,
+     * and that guests keep the IDs from a shared registry
+     */
+    @Test
+    public void testManyGuestsSharedRegistry() {
+        GuestRegistry registry = new GuestRegistry();
+        IPlan p = new BitsetPlan(10, 30, registry);
+        for (int i = 0; i < 300; i++) {
+            p.addGuestToTable(i % 10, Integer.toString(i));
+        }
+        for (int t = 0; t < 10; t++) {
+            Set<String> guests = p.getGuestsAtTable(t);
+            Assertions.assertEquals(30, guests.size());
+            Assertions.assertTrue(guests.contains(Integer.toString(t + 290)));
+        }
+        Assertions.assertEquals(300, registry.size());
+        Assertions.assertEquals(299, registry.idOf("299"));
+        Assertions.assertEquals("150", registry.nameOf(150));
+    }
+
+    /**
+     * Test that the set of guests at a table is a read-only view of the bitset, which keeps up with the plan
+     * even after the bitsets have grown
+     */
+    @Test
+    public void testGuestsAtTableView() {
+        IPlan p = new BitsetPlan(2, 100);
+        p.addGuestToTable(0, "A");
+        Set<String> guests = p.getGuestsAtTable(0);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> guests.add("B"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> guests.remove("A"));
+        Assertions.assertSame(guests, p.getGuestsAtTable(0));
+
+        for (int i = 0; i < 99; i++) {
+            p.addGuestToTable(i % 2, Integer.toString(i));
+        }
+        p.removeGuestFromTable("A");
+        Assertions.assertEquals(50, guests.size());
+        Assertions.assertTrue(guests.contains("98"));
+        Assertions.assertFalse(guests.contains("A"));
+        Assertions.assertFalse(guests.contains("97"));
+        Assertions.assertEquals(50, new HashSet<>(guests).size());
+        Assertions.assertEquals(49, p.getGuestsAtTable(1).size());
+    }
+}